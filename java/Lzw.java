@@ -30,7 +30,7 @@
 // This is the top level execution class for the LZW Java implementation.
 // As the main() method must be a static, it cannot call non-static 
 // methods within the same class, so a Codec object is created, and
-// its top level method called.
+// its top level method called. A failure exits with its error status.
 //=======================================================================
 
 import Lzw.codec.*;
@@ -38,7 +38,9 @@ import Lzw.codec.*;
 public class Lzw {
     public static void main(String[] argv) {
         Codec codec = new Codec();
+        int   status;
 
-        codec.run(argv);
+        if ((status = codec.run(argv)) != LzConsts.NOERROR)
+            System.exit(status);
     }
 }
@@ -0,0 +1,267 @@
+//=======================================================================
+//
+// BatchCodec.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The BatchCodec class compresses (or decompresses) many files in one
+// run, as separate streams, each written alongside its input. Compressing
+// adds a ".lzw" suffix to the output file name, and decompressing removes
+// it. Directories are searched recursively, for all files when
+// compressing (except those already with the suffix), or for files with
+// the suffix when decompressing.
+//
+// The files are coded concurrently on a fixed pool of worker threads,
+// with the engines taken from an LzwPool, so that each worker reuses an
+// engine, and its dictionary and buffers, from one file to the next.
+// The engines are copies of a template encoder and decoder, so have 
+// their settings. Framed streams are decompressed on the worker's thread,
+// with a FrameDecomp kept by each worker for its files.
+//
+// A file which can't be opened, read or written fails with IO_ERROR,
+// without stopping the other files, and its output is removed.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.*;
+
+public class BatchCodec extends Lz {
+
+    // Suffix of compressed file names
+    private static final String SUFFIX = ".lzw";
+
+    private boolean    compress_mode;
+    private int        num_threads;
+    private LzwDecoder decoder_template;
+    private LzwPool    engines;
+
+    // Each worker's framed stream decompressor, made on its first framed
+    // file
+    private ThreadLocal<FrameDecomp> frame_decoders = 
+        ThreadLocal.withInitial(() -> new FrameDecomp(1, decoder_template));
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public BatchCodec(boolean compmode, int threads, int maxcwlen, int policy, DictFile df) {
+        this(compmode, threads, new LzwEncoder(maxcwlen, policy, df), new LzwDecoder(df));
+    }
+
+    public BatchCodec(boolean compmode, int threads, LzwEncoder enc, LzwDecoder dec) {
+        compress_mode    = compmode;
+        num_threads      = Math.max(threads, 1);
+        decoder_template = dec;
+        engines          = new LzwPool(num_threads, enc, dec);
+    }
+
+    //=======================================================================
+    // Method name: run
+    //
+    // Description:
+    //    Codes the named files, and the files within the named directories.
+    //    A failed file is reported, and its output removed, with the rest
+    //    of the files still coded. Returns NOERROR, or the error status of
+    //    the first file (or path) to fail.
+    //=======================================================================
+
+    public int run(String[] paths) {
+
+        ArrayList<Path>            files   = new ArrayList<Path>();
+        ArrayList<Future<Integer>> results = new ArrayList<Future<Integer>>();
+        ExecutorService            workers;
+        int                        status  = NOERROR;
+        int                        file_status;
+
+        for (String path : paths)
+            if ((file_status = find_files(Paths.get(path), files)) != NOERROR && status == NOERROR)
+                status = file_status;
+
+        workers = Executors.newFixedThreadPool(num_threads);
+
+        try {
+            for (Path file : files)
+                results.add(workers.submit(() -> code_file(file)));
+
+            for (Future<Integer> result : results)
+                if ((file_status = wait_result(result)) != NOERROR && status == NOERROR)
+                    status = file_status;
+        } finally {
+            workers.shutdown();
+        }
+
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: code_file
+    //
+    // Description:
+    //    Compresses or decompresses a single file, with an engine from the
+    //    pool, returning its status. Framed streams are decompressed on the
+    //    worker's thread, with its FrameDecomp. An engine is returned to
+    //    the pool even if coding throws.
+    //=======================================================================
+
+    private int code_file(Path ip_path) {
+
+        Path                 op_path = output_path(ip_path);
+        BufferedInputStream  ifp;
+        BufferedOutputStream ofp;
+        LzwEncoder           encoder;
+        LzwDecoder           decoder;
+        int                  status;
+
+        if (op_path == null) {
+            System.out.format("***code_file: Error --- NO %s SUFFIX: %s\n", SUFFIX, ip_path);
+            return USER_ERROR;
+        }
+
+        try {
+            ifp = new BufferedInputStream(new FileInputStream(ip_path.toFile()));
+        } catch (IOException e) {
+            System.out.format("***code_file: Error --- CAN'T READ %s (%s)\n", ip_path, e.getMessage());
+            return IO_ERROR;
+        }
+
+        try {
+            ofp = new BufferedOutputStream(new FileOutputStream(op_path.toFile()));
+        } catch (IOException e) {
+            System.out.format("***code_file: Error --- CAN'T WRITE %s (%s)\n", op_path, e.getMessage());
+            close_file(ifp);
+            return IO_ERROR;
+        }
+
+        if (compress_mode) {
+            encoder = engines.acquire_encoder();
+
+            try {
+                status = encoder.encode(ifp, ofp);
+            } finally {
+                engines.release_encoder(encoder);
+            }
+        } else if (FrameHeader.is_framed(ifp)) {
+            status = frame_decoders.get().decompress(ifp, ofp);
+        } else {
+            decoder = engines.acquire_decoder();
+
+            try {
+                status = decoder.decode(ifp, ofp);
+            } finally {
+                engines.release_decoder(decoder);
+            }
+        }
+
+        close_file(ifp);
+
+        // The output's last bytes may fail to be written when it's closed
+        if (close_file(ofp) != NOERROR && status == NOERROR)
+            status = IO_ERROR;
+
+        if (status != NOERROR) {
+            System.out.format("***code_file: Error --- FAILED (STATUS %d): %s\n", status, ip_path);
+            delete(op_path);
+        }
+
+        return status;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Adds the file, or the files to code within the directory, to the list
+    private int find_files(Path path, ArrayList<Path> files) {
+
+        if (Files.isRegularFile(path)) {
+            files.add(path);
+            return NOERROR;
+        }
+
+        if (!Files.isDirectory(path)) {
+            System.out.format("***find_files: Error --- NO SUCH FILE OR DIRECTORY: %s\n", path);
+            return USER_ERROR;
+        }
+
+        try (Stream<Path> walk = Files.walk(path)) {
+            walk.filter(Files::isRegularFile)
+                .filter(p -> p.toString().endsWith(SUFFIX) != compress_mode)
+                .forEach(files::add);
+        } catch (IOException | UncheckedIOException e) {
+            System.out.format("***find_files: Error --- CAN'T SEARCH %s (%s)\n", path, e.getMessage());
+            return IO_ERROR;
+        }
+
+        return NOERROR;
+    }
+
+    // The output file name, or null when decompressing a file without the
+    // suffix
+    private Path output_path(Path ip_path) {
+        String name = ip_path.toString();
+
+        if (compress_mode)
+            return Paths.get(name + SUFFIX);
+
+        if (!name.endsWith(SUFFIX) || ip_path.getFileName().toString().equals(SUFFIX))
+            return null;
+
+        return Paths.get(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    // The file's status, or IO_ERROR if its task failed
+    private int wait_result(Future<Integer> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.format("***wait_result: Error --- %s\n", e);
+            return IO_ERROR;
+        }
+    }
+
+    // Closes a file, returning NOERROR, or IO_ERROR if it failed
+    private int close_file(Closeable file) {
+        try {
+            file.close();
+        } catch (IOException e) {
+            System.out.format("***close_file: Error --- %s\n", e.getMessage());
+            return IO_ERROR;
+        }
+
+        return NOERROR;
+    }
+
+    // Removes a failed file's output, if it can
+    private void delete(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.out.format("***delete: Error --- CAN'T REMOVE %s (%s)\n", path, e.getMessage());
+        }
+    }
+}
@@ -28,22 +28,26 @@
 
 //=======================================================================
 // This class implements the LZW algorithm. It has a dictionary space of 
-// 4K---See Dict.java.                       
+// 4K by default, configurable from 512 to 16M---See Dict.java.                       
 //=======================================================================
 
 package Lzw.codec;
 
 import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.function.ToIntFunction;
 import gnu.getopt.Getopt;
 
 public class Codec extends Lz {
 
     // References to codec objects
-    private Dict     dict;
-    private Packer   packer;
-    private Comp     comp; 
-    private Decomp   decomp; 
-    private Unpacker unpacker; 
+    private LzwEncoder encoder;
+    private LzwDecoder decoder;
+    private StringCache cache;
+    private Header     header;
+    private DictFile   dictfile;
+    private SeekIndex  index;
 
     // The following variables are initialised to the equivalent of
     // a hardware reset. 
@@ -55,8 +59,29 @@ public class Codec extends Lz {
     private String op_filename;
     private BufferedOutputStream ofp;
     private BufferedInputStream  ifp;
+    private FileChannel          ifc;
+    private FileChannel          ofc;
 
+    private int config_max_cw_len;
+    private int config_reset_policy;
+    private boolean config_cw_len_specified;
+    private boolean config_policy_specified;
+    private int config_format;
+    private boolean config_range_coded;
+    private boolean config_phased_in;
     private int config_max_str_len;
+    private int config_cache_size;
+    private boolean config_mapped;
+    private boolean config_pipelined;
+    private int config_threads;
+    private int config_block_size;
+    private String train_filename;
+    private String dict_filename;
+    private String[] batch_paths;
+    private String index_filename;
+    private boolean range_specified;
+    private long range_offset;
+    private int range_length;
 
     //=======================================================================
     // Constructor
@@ -68,7 +93,9 @@ public class Codec extends Lz {
     public Codec() {
         compress_mode = true;
         previous_codeword = NULLCW;
-        config_max_str_len = MAXWORDLENGTH;
+        config_max_cw_len = MAXCWLEN;
+        config_reset_policy = POLICY_RESET;
+        config_block_size = FRAMEBLOCKSIZE;
 
         ofp = new BufferedOutputStream(System.out);
         ifp = new BufferedInputStream(System.in);
@@ -80,42 +107,169 @@ public class Codec extends Lz {
     //=======================================================================
     public int run (String[] argv) {
 
-        int status = NOERROR;
+        int                 status = NOERROR;
+        BufferedInputStream fp;
     
         if ((status = set_user_config(argv)) != NOERROR)
             return status;
 
-        // Create a dictionary (inform whether compressing or decompressing---
-        // dictionary is used as CAM in compression, SRAM in decompression)
-        dict = new Dict(compress_mode);
+        // Load a dictionary to prime with, if one is specified. When 
+        // compressing, its codeword length is used unless one is given.
+        if (dict_filename != null) {
+            dictfile = new DictFile();
 
-        // Select compression/decompression routines as specified 
-        if (compress_mode) {
+            if ((fp = file_open_read(dict_filename)) == null)
+                return IO_ERROR;
 
-            // Create a packer (arguments configure formatter)
-            packer = new Packer(compress_mode, ofp);
+            status = dictfile.read(fp);
+            close(fp);
 
-            // Create a compression encoder
-            comp = new Comp(config_max_str_len, ifp);
+            if (status != NOERROR)
+                return status;
 
-            // Connect dictionary and packer, and start compressing from input stream
-            comp.compress(dict, packer);
+            if (!config_cw_len_specified)
+                config_max_cw_len = dictfile.max_cw_len;
+        }
 
-        } else {
-            // Create an unpacker (arguments configure formatter)
-            unpacker = new Unpacker(compress_mode, ifp);
+        // The encoder and decoder configured from the options, for a single
+        // stream, or as the templates for the engines of batch mode and 
+        // parallel compression and decompression
+        encoder = new LzwEncoder(config_max_cw_len, config_reset_policy, dictfile, config_format);
+        decoder = new LzwDecoder(dictfile);
+        decoder.set_string_cache(config_cache_size);
+
+        if (compress_mode && (status = configure_encoder(encoder)) != NOERROR)
+            return status;
+
+        // Batch mode codes each of the files (and directories) given, with
+        // the -p threads (default, the number of processors)
+        if (batch_paths != null)
+            return new BatchCodec(compress_mode, (config_threads > 0) ? config_threads :
+                                  Runtime.getRuntime().availableProcessors(), encoder, 
+                                  decoder).run(batch_paths);
+
+        // Reading a range decompresses just the segment covering it, using
+        // the stream's seek index
+        if (range_specified) {
+            SeekReader reader;
+            byte[]     data;
+
+            index = new SeekIndex();
+
+            if ((fp = file_open_read(index_filename)) == null)
+                return IO_ERROR;
+
+            status = index.read(fp);
+            close(fp);
+
+            if (status != NOERROR)
+                return status;
+
+            reader = new SeekReader(ifc, index, dictfile);
+
+            if ((data = reader.read(range_offset, range_length)) == null)
+                return reader.status();
+
+            write_block(ofp, data, 0, data.length);
+            flush(ofp);
+            channel_close(ifc);
+
+            return io_status("run", this);
+        }
 
-            // Create a decompression decoder
-            decomp = new Decomp(config_max_str_len, ofp);
+        // Training a dictionary from the input just writes the dictionary,
+        // for streams with the configured header parameters
+        if (train_filename != null) {
+            header   = new Header(config_max_cw_len, config_reset_policy);
+            dictfile = new DictFile();
 
-            // Connect dictionary and unpacker, and start decompressing from input stream
-            status = decomp.decompress(dict, unpacker);
+            if ((status = dictfile.train(ifp, header)) != NOERROR)
+                return status;
 
+            return write_file(train_filename, dictfile::write);
+        }
+
+        // Select compression/decompression engines as specified. The 
+        // encoder writes a stream header from its configuration, and the
+        // decoder configures itself from the header it reads. In mapped
+        // mode, the files are accessed through their channels. Parallel
+        // compression writes a framed stream, which decompression detects.
+        // Pipelined compression writes the same stream as the encoder, 
+        // which it compresses with.
+        if (compress_mode && config_threads > 0) {
+            status  = new FrameComp(config_threads, config_block_size, encoder).compress(ifp, ofp);
+        } else if (!compress_mode && !config_mapped && FrameHeader.is_framed(ifp)) {
+            status  = new FrameDecomp((config_threads > 0) ? config_threads : 
+                                      Runtime.getRuntime().availableProcessors(), decoder).decompress(ifp, ofp);
+        } else if (compress_mode) {
+            if (index_filename != null)
+                encoder.set_index(index = new SeekIndex());
+
+            if (config_pipelined)
+                status = new PipeComp(encoder).compress(ifp, ofp);
+            else
+                status = config_mapped ? encoder.encode(ifc, ofc) : encoder.encode(ifp, ofp);
+
+            if (status == NOERROR && index != null)
+                status = write_file(index_filename, index::write);
+        } else {
+            status  = config_mapped ? decoder.decode(ifc, ofc) : decoder.decode(ifp, ofp);
+
+            if ((cache = decoder.string_cache()) != null)
+                System.err.format("Lzw: string cache %.1f%% hits (%d of %d), %d KBytes, %d flushes\n",
+                                  cache.hit_rate() * 100.0, cache.hits(), cache.lookups(),
+                                  cache.memory() / 1024, cache.flushes());
+        }
+
+        if (config_mapped) {
+            channel_close(ifc);
+            channel_close(ofc);
         }
 
         return status;
     }
 
+    //=======================================================================
+    // Write a dictionary or index file with its write method
+    //=======================================================================
+
+    private int write_file(String filename, ToIntFunction<BufferedOutputStream> writer) {
+
+        BufferedOutputStream fp;
+        int                  status;
+
+        if ((fp = file_open_write(filename)) == null)
+            return IO_ERROR;
+
+        status = writer.applyAsInt(fp);
+        close(fp);
+
+        return (status == NOERROR) ? io_status("write_file", this) : status;
+    }
+
+    //=======================================================================
+    // Apply the encoder options to an encoder
+    //=======================================================================
+
+    private int configure_encoder(LzwEncoder enc) {
+
+        int status;
+
+        if ((status = enc.status()) != NOERROR)
+            return status;
+
+        if (config_range_coded && (status = enc.set_range_coding(true)) != NOERROR)
+            return status;
+
+        if (config_phased_in && (status = enc.set_phased_coding(true)) != NOERROR)
+            return status;
+
+        if (config_max_str_len != 0 && (status = enc.set_max_string_length(config_max_str_len)) != NOERROR)
+            return status;
+
+        return NOERROR;
+    }
+
     //=======================================================================
     // Configure the codec from the command line options                     
     //=======================================================================
@@ -129,7 +283,7 @@ public class Codec extends Lz {
     
         // Instantiate the Getopt object and define the common command line 
         // option arguments. 
-        Getopt g = new Getopt("Lzw", argv, "i:o:dh");
+        Getopt g = new Getopt("Lzw", argv, "i:o:b:r:l:c:T:D:x:R:mPp:s:Zetdh");
     
     
         // Process the command line options 
@@ -148,29 +302,314 @@ public class Codec extends Lz {
                 op_filename = g.getOptarg();
                 op_file_specified = true;
                 break;
+
+            // Maximum codeword length (compression only---decompression
+            // takes this from the stream header)
+            case 'b':
+                config_cw_len_specified = true;
+                arg = g.getOptarg();
+                try {
+                    config_max_cw_len = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    config_max_cw_len = 0;
+                }
+
+                if (!Header.valid_cw_len(config_max_cw_len)) {
+                    System.out.format("Lzw: bad codeword length '%s' (must be %d to %d)\n", 
+                                      arg, MINCWLEN, MAXCWLENLIMIT);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Compress to the Unix compress (.Z) format
+            case 'Z':
+                config_format = FORMAT_Z;
+                break;
+
+            // Range code the codewords (decompression detects range coded
+            // streams)
+            case 'e':
+                config_range_coded = true;
+                break;
+
+            // Phase in the codewords (decompression detects phased in 
+            // streams)
+            case 't':
+                config_phased_in = true;
+                break;
+
+            // Maximum string length a codeword may represent (compression 
+            // only---decompression takes this from the stream header)
+            case 'l':
+                arg = g.getOptarg();
+                try {
+                    config_max_str_len = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    config_max_str_len = 0;
+                }
+
+                if (!Header.valid_str_len(config_max_str_len)) {
+                    System.out.format("Lzw: bad maximum string length '%s' (must be %d to %d)\n", 
+                                      arg, MINSTRLEN, MAXSTRLEN);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Decoded string cache size in KBytes (decompression only)
+            case 'c':
+                arg = g.getOptarg();
+                try {
+                    config_cache_size = Integer.parseInt(arg) * 1024;
+                } catch (NumberFormatException e) {
+                    config_cache_size = 0;
+                }
+
+                if (config_cache_size < MINCACHESIZE || config_cache_size > MAXCACHESIZE) {
+                    System.out.format("Lzw: bad string cache size '%s' (must be %d to %d KBytes)\n", 
+                                      arg, MINCACHESIZE / 1024, MAXCACHESIZE / 1024);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Train a dictionary from the input, written to the named file
+            case 'T':
+                train_filename = g.getOptarg();
+                break;
+
+            // Dictionary to prime with
+            case 'D':
+                dict_filename = g.getOptarg();
+                break;
+
+            // Seek index file, written when compressing, and used to read a
+            // range when decompressing
+            case 'x':
+                index_filename = g.getOptarg();
+                break;
+
+            // Range of the uncompressed data to read, as <offset>:<length>
+            case 'R':
+                arg = g.getOptarg();
+                range_specified = true;
+                try {
+                    String[] fields = arg.split(":");
+                    range_offset = Long.parseLong(fields[0]);
+                    range_length = (fields.length == 2) ? Integer.parseInt(fields[1]) : -1;
+                } catch (NumberFormatException e) {
+                    range_length = -1;
+                }
+
+                if (range_offset < 0 || range_length < 0) {
+                    System.out.format("Lzw: bad range '%s' (must be <offset>:<length>)\n", arg);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Memory mapped/file channel IO for the input and output files
+            case 'm':
+                config_mapped = true;
+                break;
+
+            // Pipelined compression, with reading, compressing and packing
+            // on separate threads
+            case 'P':
+                config_pipelined = true;
+                break;
+
+            // Parallel compression threads (compressing to a framed stream),
+            // or decompression threads for a framed stream
+            case 'p':
+                arg = g.getOptarg();
+                try {
+                    config_threads = Integer.parseInt(arg);
+                } catch (NumberFormatException e) {
+                    config_threads = 0;
+                }
+
+                if (config_threads < 1) {
+                    System.out.format("Lzw: bad thread count '%s'\n", arg);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Block size in KBytes, for parallel compression
+            case 's':
+                arg = g.getOptarg();
+                try {
+                    config_block_size = Integer.parseInt(arg) * 1024;
+                } catch (NumberFormatException e) {
+                    config_block_size = 0;
+                }
+
+                if (config_block_size < MINFRAMEBLOCK || config_block_size > MAXFRAMEBLOCK) {
+                    System.out.format("Lzw: bad block size '%s' (must be %d to %d KBytes)\n", 
+                                      arg, MINFRAMEBLOCK / 1024, MAXFRAMEBLOCK / 1024);
+                    return USER_ERROR;
+                }
+                break;
+
+            // Dictionary reset policy (compression only)
+            case 'r':
+                config_policy_specified = true;
+                arg = g.getOptarg();
+                if (arg.equals("reset"))
+                    config_reset_policy = POLICY_RESET;
+                else if (arg.equals("freeze"))
+                    config_reset_policy = POLICY_FREEZE;
+                else if (arg.equals("ratio"))
+                    config_reset_policy = POLICY_RATIO;
+                else if (arg.equals("lru"))
+                    config_reset_policy = POLICY_LRU;
+                else {
+                    System.out.format("Lzw: bad reset policy '%s' (must be reset, freeze, ratio or lru)\n", arg);
+                    return USER_ERROR;
+                }
+                break;
     
             // Unknown option specified 
             case 'h':
             case '?':
                 // An unrecognised option was specified 
-                System.out.format  ("Usage: Lzw [-h] [-d] [-i <filename>] [-o <filename>]\n" +
+                System.out.format  ("Usage: Lzw [-h] [-d] [-b <bits>] [-r <policy>] [-l <bytes>] [-c <KBytes>] [-Z] [-e] [-t] [-T <dictfile>] [-D <dictfile>] [-x <indexfile>] [-R <offset>:<length>] [-m] [-P] [-p <threads>] [-s <KBytes>] [-i <filename>] [-o <filename>] [<file|dir> ...]\n" +
                                     "\nOptions:\n" +
                                     "   -h Print help message\n" +
                                     "   -d Perform decompression\n" +
+                                    "   -b Maximum codeword length, 9 to 24 bits (default 12)\n" +
+                                    "   -r Dictionary reset policy: reset, freeze, ratio or lru (default reset)\n" +
+                                    "   -l Maximum string length in bytes a codeword may represent (default no limit)\n" +
+                                    "   -c Decompress with a decoded string cache of the specified size in KBytes\n" +
+                                    "   -Z Compress to the Unix compress (.Z) format (default 16 bits, ratio policy)\n" +
+                                    "   -e Range code the codewords, for a smaller but slower to code stream\n" +
+                                    "   -t Phase in (truncated binary code) the codewords, saving a little\n" +
+                                    "   -T Train a dictionary from the input, written to the specified file\n" +
+                                    "   -D Prime the dictionary from the specified file\n" +
+                                    "   -x Write a seek index to the specified file (or use it with -R)\n" +
+                                    "   -R Decompress only the range <offset>:<length> of the data (needs -x and -i)\n" +
+                                    "   -m Use memory mapped/file channel IO (needs -i and -o)\n" +
+                                    "   -P Pipeline compression over reader, compressor and packer threads\n" +
+                                    "   -p Compress (or decompress) blocks in parallel with the specified number of threads\n" +
+                                    "   -s Block size in KBytes for parallel compression (default 1024)\n" +
                                     "   -i Specify input file (default stdin)\n" +
                                     "   -o Specify output file (default stdout)\n" +
+                                    "   Files or directories given after the options are coded in batch mode, on -p threads\n" +
                                     "\n" +
                                     "All debug information sent to standard error\n");
                 return USER_ERROR;
             }// end switch 
     
-        // Open files if specified, else defaults to standard IO
-        if (ip_file_specified) 
-            ifp = file_open_read(ip_filename);
-    
-        if (op_file_specified) 
-            ofp = file_open_write(op_filename);
+        // Any remaining arguments are files or directories for batch mode, 
+        // which writes each output alongside its input
+        if (g.getOptind() < argv.length) {
+            batch_paths = Arrays.copyOfRange(argv, g.getOptind(), argv.length);
+
+            if (ip_file_specified || op_file_specified || train_filename != null || 
+                config_mapped || config_pipelined) {
+                System.out.format("Lzw: batch mode can't be used with -i, -o, -T, -m or -P\n");
+                return USER_ERROR;
+            }
+        }
+
+        // Mapped IO is only for compressing or decompressing between files
+        if (config_mapped && (!ip_file_specified || !op_file_specified || train_filename != null ||
+                              config_threads > 0)) {
+            System.out.format("Lzw: -m needs input and output files, and can't be used with -T or -p\n");
+            return USER_ERROR;
+        }
+
+        // Pipelining is for compressing a single stream
+        if (config_pipelined && (!compress_mode || config_mapped || config_threads > 0)) {
+            System.out.format("Lzw: -P is for compression only, and can't be used with -m or -p\n");
+            return USER_ERROR;
+        }
+
+        // The .Z format is compress(1)'s, defaulting to its maximum codeword
+        // length and block mode. Decompression detects .Z streams.
+        if (config_format == FORMAT_Z) {
+            if (!config_cw_len_specified)
+                config_max_cw_len = ZMAXCWLEN;
+
+            if (!config_policy_specified)
+                config_reset_policy = POLICY_RATIO;
+
+            if (!compress_mode || batch_paths != null || train_filename != null || dict_filename != null ||
+                config_threads > 0) {
+                System.out.format("Lzw: -Z is for compression only, and can't be used with -T, -D, -p or batch mode\n");
+                return USER_ERROR;
+            }
+
+            if (!Header.valid_cw_len(config_max_cw_len, FORMAT_Z) || 
+                (config_reset_policy != POLICY_FREEZE && config_reset_policy != POLICY_RATIO)) {
+                System.out.format("Lzw: -Z needs a codeword length of %d to %d, and the freeze or ratio policy\n",
+                                  MINCWLEN, ZMAXCWLEN);
+                return USER_ERROR;
+            }
+        }
+
+        // Range coding is done by the encoder (or the pool's copies of it)
+        if (config_range_coded && (!compress_mode || config_format == FORMAT_Z || train_filename != null || 
+                                   index_filename != null)) {
+            System.out.format("Lzw: -e is for compression only, and can't be used with -Z, -T or -x\n");
+            return USER_ERROR;
+        }
+
+        // Phased in codewords are packed by the encoder (or the pool's 
+        // copies of it)
+        if (config_phased_in && (!compress_mode || config_format == FORMAT_Z || config_range_coded ||
+                                 train_filename != null)) {
+            System.out.format("Lzw: -t is for compression only, and can't be used with -Z, -e or -T\n");
+            return USER_ERROR;
+        }
+
+        // A maximum string length is set on the encoder (or the pool's 
+        // copies of it)
+        if (config_max_str_len != 0 && (!compress_mode || config_format == FORMAT_Z || train_filename != null)) {
+            System.out.format("Lzw: -l is for compression only, and can't be used with -Z or -T\n");
+            return USER_ERROR;
+        }
+
+        // The string cache is used by the decoder (or the pool's copies of
+        // it)
+        if (config_cache_size != 0 && (compress_mode || range_specified)) {
+            System.out.format("Lzw: -c is for decompression only, and can't be used with -R\n");
+            return USER_ERROR;
+        }
+
+        // An index is written for a single compressed stream, and read to 
+        // decompress a range of a compressed file
+        if (index_filename != null && compress_mode && (batch_paths != null || train_filename != null ||
+                                                        config_threads > 0)) {
+            System.out.format("Lzw: -x can't be used with -T, -p or batch mode\n");
+            return USER_ERROR;
+        }
+
+        if ((range_specified || (index_filename != null && !compress_mode)) &&
+            (compress_mode || index_filename == null || !range_specified || !ip_file_specified || config_mapped)) {
+            System.out.format("Lzw: -R decompresses a range of an input file with its -x index, and can't be used with -m\n");
+            return USER_ERROR;
+        }
+
+        // Open files if specified, else defaults to standard IO. A range 
+        // is read through the input file's channel.
+        if (range_specified) {
+            ifc = channel_open_read(ip_filename);
+
+            if (op_file_specified) 
+                ofp = file_open_write(op_filename);
+        } else if (config_mapped) {
+            ifc = channel_open_read(ip_filename);
+            ofc = channel_open_write(op_filename);
+        } else {
+            if (ip_file_specified) 
+                ifp = file_open_read(ip_filename);
     
+            if (op_file_specified) 
+                ofp = file_open_write(op_filename);
+        }
+
+        // A file which couldn't be opened has been reported
+        if (ifp == null || ofp == null || (config_mapped && (ifc == null || ofc == null)) || 
+            (range_specified && ifc == null))
+            return IO_ERROR;
         
         return NOERROR;
     }
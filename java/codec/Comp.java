@@ -28,9 +28,27 @@
 
 //=======================================================================
 // The Comp class implements the LZW compression algorithm. It takes a
-// stream of bytes from the input, and sends 12 bit codeword to the
+// stream of bytes from the input, and sends 9 to 24 bit codewords to the
 // packer, using the dictionary to store the entries for previously seen
 // strings.
+//
+// What happens when the dictionary fills is set by the reset policy:
+// it is reset (POLICY_RESET), frozen (POLICY_FREEZE), frozen whilst
+// the compression ratio holds up, with a CLEAR codeword sent to reset
+// it once the ratio drops (POLICY_RATIO), or has its least recently used
+// entries replaced (POLICY_LRU).
+//
+// A sync flush outputs the codeword being matched, and a FLUSH codeword
+// padded to a byte boundary, so that the decompressor has all of the
+// input so far, without ending the stream. The entry for the flushed 
+// codeword is built with the next input byte, as it would have been had
+// the match ended there, so the dictionary carries on as normal.
+//
+// A match is never extended beyond the maximum string length, so that
+// no codeword output represents a longer string, and the decompressor
+// can size its output for it. The entry for a maximum length match is 
+// still built, as for any other, so the dictionary (and codeword length)
+// stays in step with the decompressor, though it is never matched.
 //=======================================================================
 
 package Lzw.codec;
@@ -40,14 +58,30 @@ import java.io.*;
 public class Comp extends Lz {
 
     private int match_length_so_far;
-    private int match_addr;
-    private short ipbyte;
     private int code_size;
 
     private int previous_codeword;
-    private int ip_bytecount, op_bytecount;
+    private int flushed_codeword;
+    private long ip_bytecount, op_bytecount;
     private int max_string_length;
-    private BufferedInputStream ip_file;
+    private LzInput input;
+
+    // Dictionary and packer connected for the current compression
+    private Dict   dict;
+    private Packer packer;
+
+    // Seek index to record restart points in (if any), and the dictionary
+    // reset count when last checked
+    private SeekIndex index;
+    private int       resets;
+
+    // Reset policy, and ratio monitoring state. Ratios are input over 
+    // output bytes, in fixed point with RATIOSHIFT fractional bits
+    private static final int RATIOSHIFT = 8;
+
+    private int  reset_policy;
+    private long window_ip_bytecount, window_op_bytecount;
+    private long best_ratio;
 
     //=======================================================================
     // Constructors
@@ -55,107 +89,314 @@ public class Comp extends Lz {
 
     // Default constructor
     public Comp() {
-        match_length_so_far = 0;
-        set_max_string_length(MAXWORDLENGTH);
-        ip_file = new BufferedInputStream(System.in);
-        ip_bytecount = 0;
-        op_bytecount = 0;
+        this(MAXWORDLENGTH, System.in);
     }
 
     // Constructor with configuration parameters
-    public Comp(int maxstrlen, BufferedInputStream ifp) {
+    public Comp(int maxstrlen, InputStream ifp) {
+        this(maxstrlen, ifp, POLICY_RESET);
+    }
+
+    public Comp(int maxstrlen, InputStream ifp, int policy) {
+        this(maxstrlen, new LzInput(ifp), policy);
+    }
+
+    public Comp(int maxstrlen, LzInput ip, int policy) {
         match_length_so_far = 0;
         set_max_string_length(maxstrlen);
-        ip_file = ifp;
+        input = ip;
         ip_bytecount = 0;
         op_bytecount = 0;
+        reset_policy = policy;
     }
 
     //========================================================================
     // Method name: compress                                                
     //                                                                        
     // Description: 
-    //    Performs LZW compression on input stream, outputing codewords 
-    //    (via the packer) to an output stream.                                                                 
+    //    Performs LZW compression on the input, outputing codewords 
+    //    (via the packer) to an output stream. The input is compressed a
+    //    block at a time, as returned by the input source.
     //========================================================================
 
     protected void compress(Dict dict, Packer packer) {
 
+        int len;
+
+        start(dict, packer);
+
+        while ((len = input.refill()) != 0) {
+            compress_block(input.buf, input.pos, len);
+            input.pos += len;
+        }
+
+        finish();
+
+    } // end compress() 
+
+    //========================================================================
+    // Method name: start
+    //                                                                        
+    // Description: 
+    //    Connects the dictionary and packer, and resets the compression
+    //    state, ready for compress_block() calls with a new input.
+    //========================================================================
+
+    protected void start(Dict d, Packer p) {
+
+        dict   = d;
+        packer = p;
+
         previous_codeword = NULLCW;
+        flushed_codeword  = NULLCW;
         match_length_so_far = 0;
+        ip_bytecount = 0;
+        op_bytecount = 0;
         code_size = dict.reset_dictionary();
+        restart_ratio_monitor();
+
+        if (index != null) {
+            index.clear();
+            index.add(0, 0);
+            resets = dict.reset_count();
+        }
+    }
+
+    //========================================================================
+    // Method name: compress_block
+    //                                                                        
+    // Description: 
+    //    Compresses the next len bytes of the input, from buf[off]. The
+    //    matching state is carried from one block to the next, so the
+    //    codewords are the same however the input is split into blocks.
+    //    The state is kept in locals whilst running over the block.
+    //========================================================================
 
-        // Process bytes for the while length of the file.
-        while ((ipbyte = getc(ip_file)) != -1) {
+    protected void compress_block(byte[] buf, int off, int len) {
 
-            //output_graphics_data_point();
+        int  prev_cw   = previous_codeword;
+        int  match_len = match_length_so_far;
+        int  cw_len    = code_size;
+        int  end       = off + len;
+        int  counted   = off;
+        int  match_addr;
+        byte ipbyte;
 
-            // Increment the byte counter for each input 
-            ip_bytecount++;
-            //System.err.println("ip_bytecount="+ip_bytecount+ " ipbyte="+ipbyte);
+        // Process bytes for the whole block.
+        for (int idx = off; idx < end; idx++) {
+
+            ipbyte = buf[idx];
 
             // First byte, so we need to go round the loop once more for
             // another byte, and find the root codeword representation for 
             // this byte.  
-            if (previous_codeword == NULLCW) {
+            if (prev_cw == NULLCW) {
+
+                // After a sync flush, build the flushed codeword's entry 
+                // with this byte, as for a match not found
+                if (flushed_codeword != NULLCW) {
+                    ip_bytecount += idx + 1 - counted;
+                    counted = idx + 1;
+
+                    cw_len = next_entry(flushed_codeword, ipbyte, cw_len);
+                    flushed_codeword = NULLCW;
+                }
 
-                previous_codeword = convert_to_rootcw(ipbyte);
+                prev_cw = convert_to_rootcw(ipbyte);
 
                 // We have an implied root codeword match i.e. match length = 1 
-                match_length_so_far = 1;
+                match_len = 1;
+
+            // Match found (and still short of the maximum string length)
+            } else if (match_len < max_string_length &&
+                       (match_addr = dict.entry_match(prev_cw, ipbyte)) != NOMATCH) {
+
+                // A match increases our string length representation by
+                // one, which mustn't exceed the maximum string length, so
+                // that the string fits the decompressor's output.
+                match_len++;
 
-            // Otherwise, process the string as normal 
+                // Previous matched codeword becomes codeword value of dictionary 
+                // entry we've just matched 
+                prev_cw = match_addr;
+
+            // Match not found 
             } else {
-             
-                // Match found 
-                if ((match_addr = dict.entry_match(previous_codeword, (byte)ipbyte)) != NOMATCH) {
 
-                    // A match increases our string length representation by
-                    // one. This is used simply to check that we can fit on
-                    // the stack at decompression (shouldn't reach this 
-                    // limit).
-                    match_length_so_far++;
+                // Output the last matched codeword, and mark its entry as used
+                op_bytecount += packer.pack(prev_cw, cw_len, dict.next_available());
+                dict.touch_entry(prev_cw);
 
-                    // Previous matched codeword becomes codeword value of dictionary 
-                    // entry we've just matched 
-                    previous_codeword = match_addr;
+                // The byte count, up to and including this byte, is only
+                // needed for the ratio monitor
+                ip_bytecount += idx + 1 - counted;
+                counted = idx + 1;
 
-                // Match not found 
-                } else { // entry_match(addr) is TRUE 
+                cw_len = next_entry(prev_cw, ipbyte, cw_len);
 
-                    // Output the last matched codeword 
-                    op_bytecount += packer.pack(previous_codeword, code_size);
+                // Carry forward the input byte as a 'matched' root codeword 
+                prev_cw = convert_to_rootcw(ipbyte);
 
-                    // Build an entry for the new string (if possible) 
-                    code_size = dict.build_entry(previous_codeword, (byte)ipbyte);
-                
-                    // Carry forward the input byte as a 'matched' root codeword 
-                    previous_codeword = convert_to_rootcw(ipbyte);
+                // Now we have just a single root codeword match, yet to be processed
+                match_len = 1;
+            }
 
-                    // Now we have just a single root codeword match, yet to be processed
-                    match_length_so_far = 1;
+        } // end for 
 
-                }
+        ip_bytecount += end - counted;
 
-            } // endelse (previous_codeword == NULLCW) 
+        previous_codeword   = prev_cw;
+        match_length_so_far = match_len;
+        code_size           = cw_len;
+    }
 
-        } // end while 
+    //========================================================================
+    // Method name: sync_flush
+    //                                                                        
+    // Description: 
+    //    Outputs any codeword still being matched, followed by a FLUSH
+    //    codeword, and pads the output to a byte boundary. The stream 
+    //    carries on with the next compress_block() call. FLUSH is sent at
+    //    the length (and count) following the flushed codeword's (still to
+    //    be done) build, as the decompressor anticipates it.
+    //========================================================================
+
+    protected void sync_flush() {
+
+        if (previous_codeword != NULLCW) {
+            op_bytecount += packer.pack(previous_codeword, code_size, dict.next_available());
+            dict.touch_entry(previous_codeword);
+
+            flushed_codeword    = previous_codeword;
+            previous_codeword   = NULLCW;
+            match_length_so_far = 0;
+        }
+
+        if (flushed_codeword != NULLCW)
+            op_bytecount += packer.pack(FLUSHCW, dict.next_build_length(), dict.next_build_count());
+        else
+            op_bytecount += packer.pack(FLUSHCW, code_size, dict.next_available());
+        op_bytecount += packer.align();
+    }
+
+    //========================================================================
+    // Method name: finish
+    //                                                                        
+    // Description: 
+    //    Ends the input, outputing any codeword still being matched, and
+    //    flushing the packer.
+    //========================================================================
+
+    protected void finish() {
 
         // If we've terminated and still have a codeword to output, 
         // then we have to output the codeword which represents all the 
         // matched  string so far (and it could be just a root codeword).
         if (previous_codeword != NULLCW) {
-            op_bytecount += packer.pack(previous_codeword, code_size);
+            op_bytecount += packer.pack(previous_codeword, code_size, dict.next_available());
 
             // Pipeline flushed, so no previous codeword 
             previous_codeword = NULLCW;
             match_length_so_far = 0;
         }
 
+        flushed_codeword = NULLCW;
+
         // We let the packer know we've finished and thus to flush its pipeline 
         op_bytecount += packer.pack(EOFFLUSH, code_size);
 
-    } // end compress() 
+        if (index != null)
+            index.set_length(ip_bytecount);
+    }
+
+    //=======================================================================
+    // Method name: next_entry
+    //
+    // Description:
+    //    Called when a match ends with ipbyte, after codeword has been 
+    //    output, this builds the entry for the new string (if possible),
+    //    or, if the dictionary is full and frozen and the compression has
+    //    degraded, tells the decompressor to reset with a CLEAR codeword
+    //    and resets the dictionary. Returns the new codeword length.
+    //=======================================================================
+
+    private int next_entry(int codeword, byte ipbyte, int cw_len) {
+
+        if (reset_policy == POLICY_RATIO && dict.dictionary_full() && ratio_degraded()) {
+            op_bytecount += packer.pack(CLEARCW, cw_len, dict.next_available());
+            cw_len = dict.reset_dictionary();
+            restart_ratio_monitor();
+        } else 
+            cw_len = dict.build_entry(codeword, ipbyte);
+
+        // After a reset, the next codeword starts from an empty 
+        // dictionary, so the decompressor can restart there
+        if (index != null && dict.reset_count() != resets) {
+            resets = dict.reset_count();
+            index.add(ip_bytecount - 1, op_bytecount * BYTESIZE + packer.residue_bits());
+        }
+
+        return cw_len;
+    }
+
+    //=======================================================================
+    // Method name: ratio_degraded
+    //
+    // Description:
+    //    Called with a full dictionary, this returns true when the 
+    //    compression ratio over the last RATIOWINDOW input bytes has
+    //    dropped more than RATIOTHRESHOLD percent below the best window 
+    //    ratio since the dictionary last filled, or when the window 
+    //    expanded the data (a dictionary frozen on one kind of data can
+    //    otherwise be kept indefinitely on another). The ratio is only 
+    //    checked once a window's worth of input has been seen.
+    //=======================================================================
+
+    private boolean ratio_degraded() {
+
+        long ip_count = ip_bytecount - window_ip_bytecount;
+        long op_count = op_bytecount - window_op_bytecount;
+        long ratio;
+
+        if (ip_count < RATIOWINDOW)
+            return false;
+
+        // Start a new window
+        window_ip_bytecount = ip_bytecount;
+        window_op_bytecount = op_bytecount;
+
+        ratio = (ip_count << RATIOSHIFT) / Math.max(op_count, 1);
+
+        if (ratio < (1 << RATIOSHIFT))
+            return true;
+
+        if (ratio > best_ratio) {
+            best_ratio = ratio;
+            return false;
+        }
+
+        return ratio * 100 < best_ratio * (100 - RATIOTHRESHOLD);
+    }
+
+    private void restart_ratio_monitor() {
+        window_ip_bytecount = ip_bytecount;
+        window_op_bytecount = op_bytecount;
+        best_ratio          = 0;
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Sets a seek index to record the restart points in, or null for none
+    protected void set_index(SeekIndex idx) {
+        index = idx;
+    }
+
+    // Number of bytes output by the last compress() call
+    protected long output_bytecount() {
+        return op_bytecount;
+    }
 
     //=======================================================================
     // Internal access functions
@@ -164,12 +405,12 @@ public class Comp extends Lz {
         return max_string_length; 
     }
 
-    private void set_max_string_length(int val) { 
+    protected void set_max_string_length(int val) { 
         max_string_length = val; 
     }
 
-    private int convert_to_rootcw(short byte_val) { 
-        return (int)byte_val; 
+    private int convert_to_rootcw(byte byte_val) { 
+        return byte_val & BYTEMASK; 
     }
 
 }
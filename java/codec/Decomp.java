@@ -31,19 +31,28 @@
 //  calls to the unpacker) and formulates a dictionary as it goes. The  
 //  output is a byte sequence constructed  from following a linked list  
 //  of entries starting with the entry for the input codeword until  
-//  reaching a root  codeword (pointing to NULL).The bytes are pushed  
-//  onto a stack as the list is followed, and then flushed upon list  
-//  termination. An exception condition  exists (called the K omega K  
+//  reaching a root  codeword (pointing to NULL). The dictionary holds
+//  each entry's string length and first byte, so the space for the 
+//  string is known before the list is followed, and the bytes are 
+//  placed from its end backwards, straight into the output (or, if the
+//  output hasn't the space, a string buffer copied to it in one go).
+//  The string buffer starts small and is grown as longer strings are
+//  met, up to the maximum string length, so nothing is allocated per 
+//  byte or per codeword. If the stream sets a maximum string length, the
+//  buffer is allocated at that length once instead. An exception condition  exists (called the K omega K  
 //  case, as originally  described by Welch) where a codeword is input  
 //  that has a yet to be constructed entry in the linked list it points
 //  to. The code will reconstruct the entry before proceeding down the
 //  rest of the list.
+//
+//  Where the unpacker can, codewords are unpacked a batch at a time into
+//  an array, with the lengths for the batch anticipated by the 
+//  dictionary, rather than by an unpacker call per codeword.
 //=======================================================================
 
 package Lzw.codec;
 
 import java.io.*;
-import java.util.*;
 
 public class Decomp extends Lz {
 
@@ -53,29 +62,55 @@ public class Decomp extends Lz {
     // Algorithm variables 
     private int                  previous_codeword = NULLCW;
     private int                  code_size         = MINCWLEN;
-    private int                  ip_bytecount      = 0;
-    private int                  op_bytecount      = 0;
+    private long                 ip_bytecount      = 0;
+    private long                 op_bytecount      = 0;
     private int                  last_word_length;
+    private int                  next_free_entry;
     private byte                 string_terminator_byte;
 
-    private BufferedOutputStream op_file;
+    private LzOutput             output;
+    private Dict                 dict;
+    private Unpacker             unpacker;
     private IntRef               ip_codeword       = new IntRef();
-    private Stack<Byte>          stack             = new Stack<Byte>();
+    private byte[]               string_buf;
+    private StringCache          cache;
+
+    // Batch of unpacked codewords (and their lengths), the index of the
+    // next, and the number in the batch
+    private int[]                batch             = new int[BATCHSIZE];
+    private int[]                batch_lengths     = new int[BATCHSIZE];
+    private int                  batch_idx;
+    private int                  batch_count;
+    private IntRef               batch_bytes       = new IntRef();
+
+    // Initial string buffer size
+    private static final int INITSTRINGSIZE = 1024;
+
+    // Number of codewords unpacked at a time
+    private static final int BATCHSIZE      = 0x400;
 
     //=======================================================================
     // Constructors
     //=======================================================================
 
     public Decomp() {
-        max_string_length = MAXWORDLENGTH;
-        op_file = new BufferedOutputStream(System.out);
-        stack.clear();
+        this(MAXWORDLENGTH, new LzOutput(System.out));
+    }
+
+    public Decomp(int maxstr, OutputStream ofp) {
+        this(maxstr, new LzOutput(ofp));
+    }
+
+    public Decomp(int maxstr, LzOutput op) {
+        this(maxstr, false, op);
     }
 
-    public Decomp(int maxstr, BufferedOutputStream ofp) {
+    // With a maximum string length set (limited), the string buffer is 
+    // allocated at it, rather than grown
+    public Decomp(int maxstr, boolean limited, LzOutput op) {
         max_string_length = maxstr;
-        op_file = ofp;
-        stack.clear();
+        output = op;
+        string_buf = new byte[limited ? maxstr : Math.min(maxstr, INITSTRINGSIZE)];
     }
 
     //========================================================================
@@ -89,19 +124,109 @@ public class Decomp extends Lz {
 
     protected int decompress(Dict dict, Unpacker unpacker) {
 
+        int status;
+
+        start(dict, unpacker);
+
+        if ((status = decompress_block(Long.MAX_VALUE)) == NOERROR)
+            output.flush();
+
+        return status;
+    }
+
+    //========================================================================
+    // Method name: start
+    //                                                                        
+    // Description: 
+    //    Connects the dictionary and unpacker, ready for decompress_block()
+    //    calls with a new stream.
+    //========================================================================
+
+    protected void start(Dict d, Unpacker u) {
+
+        dict     = d;
+        unpacker = u;
+
+        // Start from the dictionary's reset (possibly primed) state, with
+        // nothing left over from any previous stream
+        reset_decompression_engine();
+        code_size = dict.reset_dictionary();
+
+        if (cache != null)
+            cache.reset();
+    }
+
+    //========================================================================
+    // Method name: decompress_block
+    //                                                                        
+    // Description: 
+    //    Decompresses codewords until the unpacker's input runs out, or at
+    //    least max_output bytes have been output (the last codeword's 
+    //    string may take the output past max_output). The decompression
+    //    carries on from where it stopped on the next call, so the input
+    //    may be given to the unpacker a block at a time.
+    //========================================================================
+
+    protected int decompress_block(long max_output) {
+
         int byte_count;
+        int cw_count;
         IntRef status      = new IntRef(NOERROR);
+        long op_start      = op_bytecount;
+
+        // Keep going until thare are no more codewords, or enough output.
+        // The number of codewords the next may be (for phased in 
+        // codewords) is the compressor's, which is one build ahead, unless
+        // the dictionary has just started.
+        while (op_bytecount - op_start < max_output) {
+
+            // Unpack another batch of codewords when this one is used up
+            // (or just the one, if the unpacker can't do batches)
+            if (batch_idx == batch_count) {
+                batch_idx = 0;
+
+                if (unpacker.batch_unpacking()) {
+                    dict.codeword_lengths(batch_lengths, BATCHSIZE, previous_codeword != NULLCW);
+                    batch_count = unpacker.unpack_batch(batch, batch_lengths, BATCHSIZE, dict.first_codeword(), batch_bytes);
+                    ip_bytecount += batch_bytes.value;
+                } else {
+                    cw_count = (previous_codeword != NULLCW) ? dict.next_build_count() : dict.next_available();
+                    byte_count    = unpacker.unpack(ip_codeword, code_size, cw_count);
+                    ip_bytecount += byte_count;
+                    batch[0]      = ip_codeword.value;
+                    batch_count   = (byte_count == 0) ? 0 : 1;
+                }
+
+                if (batch_count == 0)
+                    break;
+            }
+
+            ip_codeword.value = batch[batch_idx++];
 
-        // Keep going until thare are no more codewords 
-        while ((byte_count = unpacker.unpack(ip_codeword, code_size)) != 0) {
+            // A CLEAR codeword resets the dictionary, and the next codeword 
+            // starts afresh, as for the first in the stream
+            if (dict.is_clear_codeword(ip_codeword.value)) {
+                code_size = dict.reset_dictionary();
+                previous_codeword = NULLCW;
+                continue;
+            }
+
+            // A FLUSH codeword is padded to a byte boundary. The previous
+            // codeword is kept, as the compressor builds its entry with
+            // the next byte, as usual
+            if (dict.is_flush_codeword(ip_codeword.value)) {
+                unpacker.align();
+                continue;
+            }
 
-            ip_bytecount += byte_count;
+            // Find where the next entry will be built, in case the
+            // codeword refers to it (the KwK case)
+            next_free_entry = (previous_codeword != NULLCW) ? dict.next_free_entry(previous_codeword) : NULLCW;
 
-            if (dict.codeword_valid(ip_codeword.value)) {
+            if (ip_codeword.value == next_free_entry || dict.codeword_valid(ip_codeword.value)) {
 
-                // Traverse down the dictionary's linked list placing bytes onto 
-                // the stack. Empty the stack when reached a NULLCW pointer and remember 
-                // the last flushed  byte.
+                // Traverse down the dictionary's linked list placing bytes in 
+                // the output, and remember the first  byte.
                 string_terminator_byte = output_linked_list(dict, status);
 
                 if (status.value != 0)
@@ -113,6 +238,14 @@ public class Decomp extends Lz {
                 if (previous_codeword != NULLCW)
                     code_size = dict.build_entry(previous_codeword, string_terminator_byte);
 
+                // A replaced (LRU) entry's string is no longer valid
+                if (cache != null && next_free_entry != NULLCW)
+                    cache.invalidate(next_free_entry);
+
+                // Mark the codeword's entry as used, after the build, as
+                // the compressor marked it after its own build
+                dict.touch_entry(ip_codeword.value);
+
             } else {  // No valid entry exists
                 // Unknown codeword error
                 System.out.format("***decompress: Error --- UNKNOWN CODEWORD %08x\n", ip_codeword.value);
@@ -123,8 +256,6 @@ public class Decomp extends Lz {
 
         } // end while 
 
-        flush(op_file);
-
         return status.value;
     }
 
@@ -133,76 +264,113 @@ public class Decomp extends Lz {
     //                                                                        
     // Description: 
     //    Follows a linked list of dictionary entries and outputs
-    //    the bytes in reverse order.                  
+    //    the bytes in reverse order. The string's length is known from 
+    //    the dictionary, so its bytes are placed from the end backwards,
+    //    straight into the output if it has the space, or else into the
+    //    string buffer, which is then output with a single copy.                  
     //========================================================================
 
     private byte output_linked_list(Dict dict, IntRef errflag) {
 
-        int pointer;
-        byte byte_val = 0;
+        int    codeword = ip_codeword.value;
+        int    pointer  = codeword;
+        int    len, idx, off;
+        byte   first_byte;
+        byte[] dst;
+        boolean cacheable;
 
         errflag.value = 0;
 
-        pointer = ip_codeword.value;
-
-        // While not at the end of the list, follow the linked list, placing
-        // byte values on a stack 
-        while (pointer != NULLCW) {
-
-            // If not a root codeword ... 
-            if (!dict.root_codeword(pointer)) {
-
-                // If an entry in the linked list is the next free codeword,
-                // then it must need building as a KwK case. 
-                if (dict.is_next_free_entry(pointer) && (previous_codeword != NULLCW)) {
-
-                    // The pointer and byte values are as for the KwK build;
-                    // i.e. the last codeword that was input and its first
-                    // character 
-                    byte_val = string_terminator_byte;
-                    pointer = previous_codeword;
-
-                } else {
-
-                    // Get the byte and pointer values from the entry. 
-                    byte_val = dict.dictionary_entry_byte(pointer);
-                    pointer = dict.dictionary_entry_pointer(pointer);
-
-                }
+        // The length and first byte of the string. If the codeword is the
+        // next free codeword, it must need building as a KwK case, i.e. 
+        // it is the last codeword that was input followed by its first
+        // byte
+        if (pointer == next_free_entry) {
+            len        = dict.string_length(previous_codeword) + 1;
+            first_byte = dict.string_first_byte(previous_codeword);
+        } else {
+            len        = dict.string_length(pointer);
+            first_byte = dict.string_first_byte(pointer);
+        }
+
+        // It is an error to have a codeword longer than the maximum string
+        // length 
+        if (len > max_string_length) {
+            System.out.format("decompress: Error --- BAD WORD LENGTH\n");
+            errflag.value = DECOMPRESSION_ERROR;
+            return 0;
+        }
+
+        // A cached string is output with a single copy. (A KwK codeword's
+        // entry isn't built yet, so it is never cached.)
+        cacheable = cache != null && len >= MINCACHESTRLEN && codeword != next_free_entry;
+
+        if (cacheable && (off = cache.lookup(codeword, dict.reset_count())) >= 0) {
+            output.put(cache.arena, off, len);
+
+            last_word_length = len;
+            op_bytecount    += len;
+
+            return first_byte;
+        }
+
+        // Place the string in the output's space, or else the string 
+        // buffer (made bigger if it is too small)
+        if (output.limit - output.pos >= len) {
+            dst         = output.buf;
+            idx         = output.pos + len;
+            output.pos  = idx;
+        } else {
+            if (string_buf.length < len)
+                string_buf = new byte[Math.min(Math.max(len, string_buf.length << 1), max_string_length)];
+
+            dst = string_buf;
+            idx = len;
+        }
+
+        // The KwK entry's byte comes first (at the end), then the list is
+        // followed from the previous codeword 
+        if (pointer == next_free_entry) {
+            dst[--idx] = first_byte;
+            pointer    = previous_codeword;
+        }
+
+        // While not at a root codeword, follow the linked list, placing
+        // byte values in front of those so far 
+        while (!dict.root_codeword(pointer)) {
+            dst[--idx] = dict.dictionary_entry_byte(pointer);
+            pointer    = dict.dictionary_entry_pointer(pointer);
+        }
+
+        dst[--idx] = (byte)pointer;
+
+        if (cacheable)
+            cache.store(codeword, dst, idx, len);
+
+        if (dst == string_buf)
+            output.put(string_buf, 0, len);
 
-            // We have to generate the entry for root codewords 
-            } else {
-                byte_val = (byte)pointer;
-                pointer = NULLCW;
-            }
+        // Remember the length of the codeword string so that it can be
+        // capped within the main decompression algorithm 
+        last_word_length = len;
+        op_bytecount    += len;
 
-            // It is an error to have a codeword which overflows the stack 
-            if (stack.size() == max_string_length) {
-                System.out.format("decompress: Error --- BAD WORD LENGTH\n");
-                errflag.value = DECOMPRESSION_ERROR;
-                return 0;
-            }
+        // Return the first byte, for use in building dictionary entries
+        return first_byte;
+    }
 
-            // Push the current byte value on the stack 
-            stack.push(new Byte(byte_val));
+    //========================================================================
+    // Access functions
+    //========================================================================
 
-        } // end while 
+    // Number of bytes output by the last decompress() call
+    protected long output_bytecount() {
+        return op_bytecount;
+    }
 
-        // Remember the length of the codeword string so that it can be
-        // capped within the main decompression algorithm 
-        last_word_length = stack.size();
-
-        // Now flush the stack to the output stream 
-        do {
-	    Byte pop_val;
-	    
-	    pop_val = stack.pop();
-            putc(pop_val.byteValue(), op_file);
-            op_bytecount++;
-        } while (!stack.empty());
-
-        // Return the last flushed byte, for use in building dictionary entries
-        return byte_val;
+    // Cache of decoded strings to use (or null for none)
+    protected void set_string_cache(StringCache c) {
+        cache = c;
     }
 
     //========================================================================
@@ -211,7 +379,10 @@ public class Decomp extends Lz {
 
     private void reset_decompression_engine () { 
         previous_codeword = NULLCW; 
-        stack.clear(); 
+        ip_bytecount = 0;
+        op_bytecount = 0;
+        batch_idx    = 0;
+        batch_count  = 0;
     }
 
     private byte root_byte_value(int codeword) { 
@@ -29,80 +29,300 @@
 //=======================================================================
 // Dictionary access class for LZW algorithm                       
 //                                                                       
-// The dictionary is implemented as a contiguous array of a DICTIONARY   
-// structure (dictionary[]) with a 12 bit pointer (for 4K dictionary)    
-// space and a 'byte' value. 
+// The dictionary is implemented as two parallel columns, indexed by
+// codeword: a pointer column (dictionary_pointer[]) holding the 9 to 24
+// bit pointer (for a 512 to 16M entry dictionary) space, and a byte
+// column (dictionary_byte[]) holding the 'byte' value. 
+//
+// When compressing, (pointer, byte) pairs are looked up through a small
+// open addressed hash table, rather than a table with a row for every
+// codeword. When decompressing, there is no hash table, but two more
+// columns hold each entry's string length (dictionary_length[]) and 
+// first byte (dictionary_first[]), set as the entry is built from its
+// pointer's. The decompressor then knows a codeword's string length and
+// first byte without following its list.
+//
+// The columns (and hash table) start small and are doubled as entries
+// are built, so memory follows the number of entries in use rather than
+// the maximum codeword length.
+//
+// What happens when the dictionary is full is set by the stream header.
+// Either it is reset on the next build, or it is frozen (with no more
+// builds) until the compressor sends a CLEAR codeword, or (in LRU mode)
+// each build replaces the least recently used leaf entry---one which no
+// other entry points to. A legacy stream's dictionary (see Header.java)
+// still makes the build after a reset, at the first codeword, pointing to
+// a codeword from the old dictionary, which then follows that codeword's
+// new entry once it is rebuilt. When CLEAR is enabled, codeword CLEARCW is
+// reserved and entries start one above it. When FLUSH is enabled (for
+// sync flushes), codewords CLEARCW and FLUSHCW are both reserved, and 
+// entries start above FLUSHCW.
+//
+// For LRU mode, each entry has a count of the entries pointing to it, and
+// the leaf entries are kept on a doubly linked list, in order of use. An
+// entry is 'used' when its codeword is output by the compressor (or input
+// by the decompressor), so both sides see the same order, and so evict 
+// the same entries.
+//
+// A dictionary may be primed with entries trained from sample data (see
+// DictFile.java). A copy of the primed state is kept, and a reset 
+// restores it with array copies, rather than emptying the dictionary.
 //                                                                       
 //=======================================================================
 
 package Lzw.codec;
 
+import java.util.Arrays;
+
 public class Dict extends Lz {
 
+    // Initial number of entries allocated, before any growth
+    private static final int INITDICTSIZE = DICTFULL;
+
+    // Hash table constants. There are twice as many slots as entries, to 
+    // keep the probe sequences short, with each slot a (key, codeword)
+    // pair of ints
+    private static final int HASHMULT   = 0x9E3779B1;
+    private static final int EMPTYSLOT  = 0;
+
+    // Configuration
+    private boolean     compress_mode;
+    private int         max_codeword_len;
+    private int         dict_full;
+    private int         dict_mode;
+    private boolean     clear_enable;
+    private boolean     flush_enable;
+    private boolean     reset_build;
+    private int         first_cw;
+
     // Internal data structures
-    private int[][]     indirection_table = new int[DICTFULL][256];
     private int         next_available_codeword = FIRSTCW;
     private int         codeword_len = MINCWLEN;
-    private boolean     compress_mode;
-    private DictEntry[] dictionary = new DictEntry[DICTFULL];
+    private int         dict_size;
+    private int[]       dictionary_pointer;
+    private byte[]      dictionary_byte;
+    private int[]       dictionary_length;
+    private byte[]      dictionary_first;
+    private int[]       hash_table;
+    private int         hash_mask;
+    private int         hash_shift;
+
+    // LRU mode data structures
+    private short[]     child_count;
+    private int[]       lru_prev;
+    private int[]       lru_next;
+    private int         lru_head = NULLCW;
+    private int         lru_tail = NULLCW;
+
+    // Number of resets, so a reset within a build can be detected
+    private int         reset_count;
+
+    // Longest string of any entry built (decompressing only), never 
+    // lowered by a reset
+    private int         longest_string = 1;
+
+    // Primed (base) state, restored on reset. The base arrays are null 
+    // when not primed.
+    private int         base_next_available;
+    private int         base_codeword_len = MINCWLEN;
+    private int[]       base_pointer;
+    private byte[]      base_byte;
+    private int[]       base_length;
+    private byte[]      base_first;
+    private int[]       base_hash_table;
+    private short[]     base_child_count;
+    private int[]       base_lru_prev;
+    private int[]       base_lru_next;
+    private int         base_lru_head = NULLCW;
+    private int         base_lru_tail = NULLCW;
 
 
     //=======================================================================
     // Constructors
     //=======================================================================
     public Dict() {
-        compress_mode = true;
-
-        for (int idx = 0; idx < DICTFULL; idx++) 
-            dictionary[idx] = new DictEntry(); 
+        this(true, new Header());
     }
     
     public Dict(boolean mode) {
-        compress_mode = mode;
+        this(mode, new Header());
+    }
+    
+    public Dict(boolean mode, int maxcwlen) {
+        this(mode, new Header(maxcwlen));
+    }
+
+    public Dict(boolean mode, Header hdr) {
+        compress_mode    = mode;
+        max_codeword_len = hdr.max_cw_len;
+        dict_full        = 1 << hdr.max_cw_len;
+        dict_mode        = hdr.dict_mode;
+        clear_enable     = hdr.clear_enable;
+        flush_enable     = hdr.flush_enable;
+        reset_build      = (hdr.format == FORMAT_LEGACY);
+        first_cw         = flush_enable ? FLUSHCW + 1 : clear_enable ? CLEARCW + 1 : FIRSTCW;
+
+        next_available_codeword = first_cw;
+        base_next_available     = first_cw;
 
-        for (int idx = 0; idx < DICTFULL; idx++) 
-            dictionary[idx] = new DictEntry(); 
+        allocate(Math.min(INITDICTSIZE, dict_full));
     }
     
     //=======================================================================
     // Method name: reset_dictionary                                       
     //                                                                       
     // Description: 
-    //    Resets the dictionary
+    //    Resets the dictionary, to empty or to its primed state
     //=======================================================================
 
     public int reset_dictionary() {
         // Reset common state 
-        next_available_codeword = FIRSTCW;
+        reset_count++;
+        next_available_codeword = base_next_available;
+        codeword_len = base_codeword_len;
+        lru_head = base_lru_head;
+        lru_tail = base_lru_tail;
+
+        // Empty the hash table, so no stale entries are found. (No codeword
+        // below FIRSTCW is ever built, so zero marks an unused slot.)
+        if (base_pointer == null) {
+            if (compress_mode)
+                Arrays.fill(hash_table, EMPTYSLOT);
+
+            return codeword_len;
+        }
 
-        return MINCWLEN;
+        // When primed, copy back the primed entries (which LRU mode may
+        // have replaced) and their hash table and LRU state
+        System.arraycopy(base_pointer, first_cw, dictionary_pointer, first_cw, base_next_available - first_cw);
+        System.arraycopy(base_byte,    first_cw, dictionary_byte,    first_cw, base_next_available - first_cw);
+
+        if (!compress_mode) {
+            System.arraycopy(base_length, first_cw, dictionary_length, first_cw, base_next_available - first_cw);
+            System.arraycopy(base_first,  first_cw, dictionary_first,  first_cw, base_next_available - first_cw);
+        } else {
+            // If the hash table has grown since priming, rebuild the base
+            // copy to match it first
+            if (base_hash_table.length != hash_table.length) {
+                Arrays.fill(hash_table, EMPTYSLOT);
+                for (int addr = first_cw; addr < base_next_available; addr++)
+                    hash_insert(hash_key(base_pointer[addr], base_byte[addr]), addr);
+                base_hash_table = hash_table.clone();
+            } else
+                System.arraycopy(base_hash_table, 0, hash_table, 0, hash_table.length);
+        }
+
+        if (dict_mode == DICT_LRU) {
+            System.arraycopy(base_child_count, 0, child_count, 0, base_next_available);
+            System.arraycopy(base_lru_prev,    0, lru_prev,    0, base_next_available);
+            System.arraycopy(base_lru_next,    0, lru_next,    0, base_next_available);
+        }
+
+        return codeword_len;
+    }
+
+    //=======================================================================
+    // Method name: prime_dictionary
+    //
+    // Description:
+    //    Loads the dictionary with trained entries, as the starting state
+    //    for each reset. The number of entries must leave space for more 
+    //    entries, and not make the next free codeword a power of 2 (since
+    //    the decompressor can't then anticipate the compressor's first 
+    //    codeword length increment). DictFile ensures both.
+    //=======================================================================
+
+    protected int prime_dictionary(int num_entries, int[] pointers, byte[] bytes) {
+
+        base_pointer            = null;
+        base_next_available     = first_cw;
+        base_codeword_len       = MINCWLEN;
+        base_lru_head           = base_lru_tail = NULLCW;
+        reset_dictionary();
+
+        while (dict_size < first_cw + num_entries)
+            allocate(dict_size << 1);
+
+        next_available_codeword = first_cw + num_entries;
+
+        for (int addr = first_cw; addr < next_available_codeword; addr++) {
+            set_dictionary_entry_pointer(addr, pointers[addr - first_cw]);
+            set_dictionary_entry_byte(addr, bytes[addr - first_cw]);
+
+            if (compress_mode)
+                hash_insert(hash_key(dictionary_pointer[addr], dictionary_byte[addr]), addr);
+        }
+
+        // Trained entries may point to later entries, so their strings, and
+        // the LRU structures, are set once all the entries are in place,
+        // with the LRU leaves in codeword order
+        if (!compress_mode)
+            set_primed_strings();
+
+        if (dict_mode == DICT_LRU) {
+            Arrays.fill(child_count, (short)0);
+
+            for (int addr = first_cw; addr < next_available_codeword; addr++)
+                if (dictionary_pointer[addr] >= first_cw)
+                    child_count[dictionary_pointer[addr]]++;
+
+            for (int addr = first_cw; addr < next_available_codeword; addr++)
+                if (child_count[addr] == 0)
+                    lru_link(addr);
+        }
+
+        // Codeword length needed for the largest codeword
+        codeword_len = Math.max(MINCWLEN, 32 - Integer.numberOfLeadingZeros(next_available_codeword - 1));
+
+        // Take a copy of the primed state
+        base_next_available = next_available_codeword;
+        base_codeword_len   = codeword_len;
+        base_pointer        = Arrays.copyOf(dictionary_pointer, next_available_codeword);
+        base_byte           = Arrays.copyOf(dictionary_byte,    next_available_codeword);
+
+        if (compress_mode)
+            base_hash_table = hash_table.clone();
+        else {
+            base_length = Arrays.copyOf(dictionary_length, next_available_codeword);
+            base_first  = Arrays.copyOf(dictionary_first,  next_available_codeword);
+        }
+
+        if (dict_mode == DICT_LRU) {
+            base_child_count = Arrays.copyOf(child_count, next_available_codeword);
+            base_lru_prev    = Arrays.copyOf(lru_prev,    next_available_codeword);
+            base_lru_next    = Arrays.copyOf(lru_next,    next_available_codeword);
+            base_lru_head    = lru_head;
+            base_lru_tail    = lru_tail;
+        }
+
+        return codeword_len;
     }
 
     //=======================================================================
     // Method name: entry_match                                            
     //                                                                       
     // Description: 
-    //    Returns TRUE if the dictionary entry at the specified
-    //    address matches the specified byte. Otherwise FALSE.                   
+    //    Returns the address of the dictionary entry with the specified
+    //    pointer and byte values, if one exists. Otherwise NOMATCH.
     //=======================================================================
 
     protected int entry_match(int pointer, byte byte_val) {
+        int key = hash_key(pointer, byte_val);
+        int idx = hash_index(key);
         int addr;
 
-        // Get possible dictionary entry value for match. 
-        // (This is not part of algorithm, but a method for 
-        // speeding up dictionary searches).
-        addr = indirection_table[pointer][byte_val];
+        // Probe linearly from the hashed slot until the key is found, or 
+        // an empty slot is reached. (This is not part of the algorithm, 
+        // but a method for speeding up dictionary searches).
+        while ((addr = hash_table[idx+1]) != EMPTYSLOT) {
+            if (hash_table[idx] == key)
+                return addr;
 
-        // Test to see if we have a match at the address, and is in the
-        // valid portion of the dictionary. 
-        if (!(addr >= FIRSTCW && addr < next_available_codeword &&
-                    (dictionary_entry_byte(addr) == byte_val) &&
-                    (dictionary_entry_pointer(addr) == pointer)))
-            addr = NOMATCH; // Set addr to indicate no match 
-        
-        // Return address of match (or no match) 
-        return addr;
+            idx = (idx + 2) & hash_mask;
+        }
+
+        // Return no match 
+        return NOMATCH;
     }
 
     //=======================================================================
@@ -111,81 +331,490 @@ public class Dict extends Lz {
     // Description: 
     //    Creates a new dictionary entry at next_free_code, so
     //    long as the dictionary isn't full, in which case the     
-    //    build is not performed, and a partial_reset is done      
-    //    instead.            
+    //    build is not performed. A full dictionary is either reset,
+    //    left frozen, or has its least recently used leaf entry
+    //    replaced, depending on the dictionary mode.
     //=======================================================================
 
     protected int build_entry(int codeword, byte byte_val) {
 
-        // If the dictionary is full, reset it before doing a build
-        if (dictionary_full()) 
-            codeword_len = reset_dictionary();
+        int victim;
+
+        // If the dictionary is full, reset it (unless frozen) instead of
+        // doing a build. The entry is not built after the reset, as it
+        // would point to a codeword from the old dictionary (except for a
+        // legacy stream). In LRU mode, the entry is built in place of the
+        // least recently used leaf. 
+        if (dictionary_full()) {
+            if (dict_mode == DICT_RESET)
+                reset_dictionary();
+            else if (dict_mode == DICT_LRU && (victim = lru_victim(codeword)) != NULLCW) {
+                evict_entry(victim);
+                set_entry(victim, codeword, byte_val);
+            }
+
+            if (!reset_build)
+                return codeword_len;
+        }
+
+        // If the allocated space is used up (but not yet full), make room
+        if (next_available_codeword == dict_size)
+            allocate(dict_size << 1);
 
         // Set the entry values for the pointer and bytes 
-        set_dictionary_entry_pointer(next_available_codeword, codeword);
-        set_dictionary_entry_byte(next_available_codeword, byte_val);
+        set_entry(next_available_codeword, codeword, byte_val);
 
-        // Set the pointer table to point into the dictionary. (This is not
-        // part of the algorithm, but a mechanism for fast dictionary
-        // accesses.)  
-        if (compress_mode)
-           indirection_table[codeword][byte_val] = next_available_codeword;
+        // A legacy stream's first entry after a reset takes its string from
+        // the entry it points to, once that is rebuilt
+        if (reset_build && !compress_mode && next_available_codeword != first_cw &&
+            next_available_codeword == dictionary_pointer[first_cw]) {
+            dictionary_length[first_cw] = dictionary_length[next_available_codeword] + 1;
+            dictionary_first[first_cw]  = dictionary_first[next_available_codeword];
+            longest_string              = Math.max(longest_string, dictionary_length[first_cw]);
+        }
 
         // If we've just built an entry whose codeword value is greater than 
         // the current output codeword size, then increment the current codeword 
         // size. The decompression builds lag behind by one, so this event
         // is anticipated by an entry. 
-        if (codeword_len < MAXCWLEN) {
+        if (codeword_len < max_codeword_len) {
             if (next_available_codeword == (1 << codeword_len) - (!compress_mode ? 1 : 0))
                 codeword_len++;
 
         // If decompressing and we're one short of having a full dictionary,
         // reset the codeword_len. This anticipates a reset next build,
         // in a similar way as for the codeword length increment. 
-        } else if (!compress_mode && next_available_codeword == DICTFULL-1)  
-            codeword_len = MINCWLEN;
+        } else if (!compress_mode && dict_mode == DICT_RESET && next_available_codeword == dict_full-1)  
+            codeword_len = base_codeword_len;
 
-        if (next_available_codeword != DICTFULL)
+        if (next_available_codeword != dict_full)
             ++next_available_codeword;
 
         return codeword_len;
     }
 
+    //=======================================================================
+    // Method name: next_build_length
+    //
+    // Description:
+    //    Returns the codeword length there will be after the next build
+    //    (as returned by build_entry()), without doing it. After a sync 
+    //    flush, the compressor sends FLUSH at this length, as the 
+    //    decompressor anticipates the build when it receives the last
+    //    codeword before the flush.
+    //=======================================================================
+
+    protected int next_build_length() {
+
+        if (dictionary_full())
+            return (dict_mode == DICT_RESET) ? base_codeword_len : codeword_len;
+
+        if (codeword_len < max_codeword_len && next_available_codeword == (1 << codeword_len))
+            return codeword_len + 1;
+
+        return codeword_len;
+    }
+
+    //=======================================================================
+    // Method name: codeword_lengths
+    //
+    // Description:
+    //    Fills lengths[] with the codeword lengths of the next num input
+    //    codewords, as a decompressor's builds will change them, without
+    //    doing the builds. Each codeword builds an entry once it is 
+    //    input, except the first if 'building' is false (i.e. there is no
+    //    previous codeword). This holds up to a CLEAR or FLUSH codeword,
+    //    so the unpacker stops a batch there.
+    //=======================================================================
+
+    protected void codeword_lengths(int[] lengths, int num, boolean building) {
+
+        int next = next_available_codeword;
+        int len  = codeword_len;
+
+        for (int idx = 0; idx < num; idx++) {
+
+            lengths[idx] = len;
+
+            if (idx == 0 && !building)
+                continue;
+
+            // Follow build_entry()'s changes to the length, and to the next 
+            // available codeword
+            if (next == dict_full) {
+                if (dict_mode == DICT_RESET) {
+                    next = base_next_available + (reset_build ? 1 : 0);
+                    len  = base_codeword_len;
+                }
+            } else {
+                if (len < max_codeword_len) {
+                    if (next == (1 << len) - 1)
+                        len++;
+                } else if (dict_mode == DICT_RESET && next == dict_full-1)
+                    len = base_codeword_len;
+
+                next++;
+            }
+        }
+    }
+
+    //=======================================================================
+    // Method name: next_build_count
+    //
+    // Description:
+    //    Returns the number of codewords there will be (i.e. the next
+    //    available codeword) after the next build, without doing it. A
+    //    decompressor, one build behind the compressor, uses this for the
+    //    number of codewords the next input codeword may be, for phased
+    //    in codewords.
+    //=======================================================================
+
+    protected int next_build_count() {
+
+        if (dictionary_full())
+            return (dict_mode == DICT_RESET) ? base_next_available + (reset_build ? 1 : 0) : dict_full;
+
+        return next_available_codeword + 1;
+    }
+
     //=======================================================================
     // Public test and data hiding methods
     //=======================================================================
+    // True for a root codeword, or an entry that has been built
     protected boolean codeword_valid (int codeword) { 
-        return codeword <= next_available_codeword; 
+        return codeword < FIRSTCW || (codeword >= first_cw && codeword < next_available_codeword); 
     }
 
     protected boolean is_next_free_entry (int address) { 
         return address == next_available_codeword; 
     }
 
+    // Returns the address of the next entry to be built, with the
+    // specified codeword as its pointer, or NULLCW if there won't be a
+    // build. (A decompressor needs this before the build, for the KwK case.)
+    protected int next_free_entry (int codeword) { 
+        if (!dictionary_full())
+            return next_available_codeword;
+
+        if (reset_build)
+            return base_next_available;
+
+        return (dict_mode == DICT_LRU) ? lru_victim(codeword) : NULLCW;
+    }
+
+    protected int reset_count () { 
+        return reset_count;
+    }
+
     protected boolean dictionary_full () { 
-        return next_available_codeword == DICTFULL; 
+        return next_available_codeword == dict_full; 
+    }
+
+    protected int max_codeword_length () { 
+        return max_codeword_len; 
+    }
+
+    protected int first_codeword () { 
+        return first_cw; 
+    }
+
+    protected int next_available () { 
+        return next_available_codeword; 
+    }
+
+    // Longest string of any entry so far (decompressing only). As each
+    // build adds a byte to an entry's string, no codeword after n more 
+    // builds can be longer than this plus n+1.
+    protected int longest_string () { 
+        return longest_string; 
+    }
+
+    // Limit the number of entries to fewer than the codeword length allows
+    // (used when training, so that there is space left when primed)
+    protected void set_entry_limit (int limit) { 
+        dict_full = limit; 
+    }
+
+    protected boolean is_clear_codeword (int codeword) { 
+        return clear_enable && codeword == CLEARCW; 
+    }
+
+    protected boolean is_flush_codeword (int codeword) { 
+        return flush_enable && codeword == FLUSHCW; 
     }
 
     protected byte dictionary_entry_byte (int address) { 
-        return dictionary[address].byte_val; 
+        return dictionary_byte[address]; 
     }
 
     protected int dictionary_entry_pointer (int address) { 
-        return dictionary[address].pointer; 
+        return dictionary_pointer[address]; 
     }
 
     protected boolean root_codeword (int codeword) { 
         return  codeword < FIRSTCW; 
     }
 
+    // Length of the string for a codeword (decompressing only)
+    protected int string_length (int codeword) { 
+        return root_codeword(codeword) ? 1 : dictionary_length[codeword]; 
+    }
+
+    // First byte of the string for a codeword (decompressing only)
+    protected byte string_first_byte (int codeword) { 
+        return root_codeword(codeword) ? (byte)codeword : dictionary_first[codeword]; 
+    }
+
+    //=======================================================================
+    // Method name: touch_entry
+    //
+    // Description:
+    //    Marks the entry for the specified codeword as used. In LRU mode,
+    //    a leaf entry is moved to the most recently used end of the list.
+    //    Called as each codeword is output (or input). 
+    //=======================================================================
+
+    protected void touch_entry (int codeword) {
+        if (dict_mode == DICT_LRU && codeword >= first_cw && 
+            child_count[codeword] == 0 && codeword != lru_tail) {
+            lru_unlink(codeword);
+            lru_link(codeword);
+        }
+    }
+
     //=======================================================================
     // Internal update methods
     //=======================================================================
+
+    // Set an entry's values, and add it to the hash table (when 
+    // compressing) and LRU structures (in LRU mode)
+    private void set_entry (int address, int pointer, byte byte_val) { 
+        set_dictionary_entry_pointer(address, pointer);
+        set_dictionary_entry_byte(address, byte_val);
+
+        // Add the entry to the hash table. (This is not part of the 
+        // algorithm, but a mechanism for fast dictionary accesses.)  
+        if (compress_mode)
+           hash_insert(hash_key(pointer, byte_val), address);
+        else {
+            dictionary_length[address] = string_length(pointer) + 1;
+            dictionary_first[address]  = string_first_byte(pointer);
+
+            if (dictionary_length[address] > longest_string)
+                longest_string = dictionary_length[address];
+        }
+
+        // A new entry is a leaf, and its pointer (if not a root) no
+        // longer is 
+        if (dict_mode == DICT_LRU) {
+            child_count[address] = 0;
+            lru_link(address);
+
+            if (pointer >= first_cw && child_count[pointer]++ == 0)
+                lru_unlink(pointer);
+        }
+    }
+
     private void set_dictionary_entry_pointer (int address, int pointer) { 
-        dictionary[address].pointer = pointer; 
+        dictionary_pointer[address] = pointer; 
     }
 
     private void set_dictionary_entry_byte (int address, byte byte_val) { 
-        dictionary[address].byte_val = byte_val; 
+        dictionary_byte[address] = byte_val; 
+    }
+
+    //=======================================================================
+    // Method name: allocate
+    //
+    // Description:
+    //    (Re)allocates the dictionary columns for the specified number of
+    //    entries, keeping any existing entries. When compressing, the hash
+    //    table is resized to match, and any existing entries rehashed.
+    //=======================================================================
+
+    private void allocate (int size) {
+
+        dictionary_pointer = (dictionary_pointer == null) ? new int[size]  : Arrays.copyOf(dictionary_pointer, size);
+        dictionary_byte    = (dictionary_byte    == null) ? new byte[size] : Arrays.copyOf(dictionary_byte, size);
+        dict_size          = size;
+
+        if (compress_mode) {
+            int slots  = size << 1;
+
+            hash_table = new int[slots << 1];
+            hash_mask  = (slots << 1) - 1;
+            hash_shift = 32 - Integer.numberOfTrailingZeros(slots);
+
+            for (int addr = first_cw; addr < next_available_codeword; addr++)
+                hash_insert(hash_key(dictionary_pointer[addr], dictionary_byte[addr]), addr);
+        } else {
+            dictionary_length = (dictionary_length == null) ? new int[size]  : Arrays.copyOf(dictionary_length, size);
+            dictionary_first  = (dictionary_first  == null) ? new byte[size] : Arrays.copyOf(dictionary_first, size);
+        }
+
+        if (dict_mode == DICT_LRU) {
+            child_count = (child_count == null) ? new short[size] : Arrays.copyOf(child_count, size);
+            lru_prev    = (lru_prev    == null) ? new int[size]   : Arrays.copyOf(lru_prev, size);
+            lru_next    = (lru_next    == null) ? new int[size]   : Arrays.copyOf(lru_next, size);
+        }
+    }
+
+    //=======================================================================
+    // Method name: set_primed_strings
+    //
+    // Description:
+    //    Sets the string length and first byte of the primed entries. As
+    //    an entry may point to a later one, each list is followed up to
+    //    a root, or an entry already set, and the entries set on the way
+    //    back. An entry which is in a loop, or points to a codeword that
+    //    isn't an entry (only in a corrupt dictionary file), is given a
+    //    length longer than any string, so that the decompressor rejects
+    //    it.
+    //=======================================================================
+
+    private void set_primed_strings () {
+
+        int[] path = new int[next_available_codeword - first_cw];
+        int   depth, pointer, len;
+        byte  first;
+
+        Arrays.fill(dictionary_length, first_cw, next_available_codeword, 0);
+
+        for (int addr = first_cw; addr < next_available_codeword; addr++) {
+
+            // Follow the list until a root, or an entry already set (or 
+            // being set, if there's a loop), marking those on the way
+            depth   = 0;
+            pointer = addr;
+
+            while (pointer >= first_cw && pointer < next_available_codeword && dictionary_length[pointer] == 0) {
+                dictionary_length[pointer] = -1;
+                path[depth++] = pointer;
+                pointer       = dictionary_pointer[pointer];
+            }
+
+            if (root_codeword(pointer)) {
+                len   = 1;
+                first = (byte)pointer;
+            } else if (pointer >= first_cw && pointer < next_available_codeword && dictionary_length[pointer] > 0) {
+                len   = dictionary_length[pointer];
+                first = dictionary_first[pointer];
+            } else {
+                len   = MAXSTRLEN + 1;
+                first = 0;
+            }
+
+            while (depth > 0) {
+                pointer                    = path[--depth];
+                dictionary_length[pointer] = ++len;
+                dictionary_first[pointer]  = first;
+            }
+
+            longest_string = Math.max(longest_string, dictionary_length[addr]);
+        }
+    }
+
+    //=======================================================================
+    // LRU methods
+    //=======================================================================
+
+    // The least recently used leaf, other than the specified codeword
+    // (which will be the new entry's pointer, and so can't be replaced)
+    private int lru_victim (int codeword) {
+        return (lru_head == codeword) ? lru_next[lru_head] : lru_head;
+    }
+
+    // Remove a leaf entry from the dictionary, ready for reuse. Its
+    // pointer becomes a leaf (if not a root) when it has no other children.
+    private void evict_entry (int address) {
+        int pointer = dictionary_pointer[address];
+
+        lru_unlink(address);
+
+        if (compress_mode)
+            hash_remove(hash_key(pointer, dictionary_byte[address]), address);
+
+        if (pointer >= first_cw && --child_count[pointer] == 0)
+            lru_link(pointer);
+    }
+
+    // Add an entry at the most recently used end of the list
+    private void lru_link (int address) {
+        lru_prev[address] = lru_tail;
+        lru_next[address] = NULLCW;
+
+        if (lru_tail == NULLCW)
+            lru_head = address;
+        else
+            lru_next[lru_tail] = address;
+
+        lru_tail = address;
+    }
+
+    private void lru_unlink (int address) {
+        int prev = lru_prev[address];
+        int next = lru_next[address];
+
+        if (prev == NULLCW)
+            lru_head = next;
+        else
+            lru_next[prev] = next;
+
+        if (next == NULLCW)
+            lru_tail = prev;
+        else
+            lru_prev[next] = prev;
+    }
+
+    //=======================================================================
+    // Hash table methods
+    //=======================================================================
+
+    // Form a key from a pointer and byte value. The byte is masked so that
+    // values >= 0x80 don't sign extend over the pointer bits
+    private int hash_key (int pointer, byte byte_val) {
+        return (pointer << BYTESIZE) | (byte_val & BYTEMASK);
+    }
+
+    // Index of the (key, codeword) slot pair for the key's first probe
+    private int hash_index (int key) {
+        return ((key * HASHMULT) >>> hash_shift) << 1;
+    }
+
+    private void hash_insert (int key, int codeword) {
+        int idx = hash_index(key);
+
+        while (hash_table[idx+1] != EMPTYSLOT)
+            idx = (idx + 2) & hash_mask;
+
+        hash_table[idx]   = key;
+        hash_table[idx+1] = codeword;
+    }
+
+    // Remove a key's entry, shifting back any following entries in the 
+    // probe sequence which would otherwise no longer be found
+    private void hash_remove (int key, int codeword) {
+        int hole = hash_index(key);
+        int idx, home;
+
+        while (hash_table[hole+1] != codeword)
+            hole = (hole + 2) & hash_mask;
+
+        idx = hole;
+
+        while (hash_table[(idx = (idx + 2) & hash_mask) + 1] != EMPTYSLOT) {
+            home = hash_index(hash_table[idx]);
+
+            // An entry can fill the hole if its home slot is not
+            // (cyclically) between the hole and its current slot
+            if ((idx > hole) ? (home <= hole || home > idx) : (home <= hole && home > idx)) {
+                hash_table[hole]   = hash_table[idx];
+                hash_table[hole+1] = hash_table[idx+1];
+                hole = idx;
+            }
+        }
+
+        hash_table[hole]   = 0;
+        hash_table[hole+1] = EMPTYSLOT;
     }
 }
@@ -0,0 +1,292 @@
+//=======================================================================
+//
+// DictFile.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The DictFile class holds a set of dictionary entries trained from
+// sample data, used to prime the dictionary of both the compressor and
+// decompressor, so that short inputs start with useful entries rather
+// than just the root codewords.
+//
+// Training compresses the sample data with an LRU dictionary limited to
+// three quarters of the full dictionary size, so that the entries kept
+// are those most used over all of the sample data, and there is space
+// left for new entries when primed.
+//
+// Each trained dictionary has an ID (a CRC32 of its contents), which is
+// recorded in the compressed stream's header, so that the decompressor
+// can check it is primed with the same dictionary. The file layout is:
+//
+//    byte 0-2  : magic number ('L', 'Z', 'D')
+//    byte 3    : format version
+//    byte 4    : maximum codeword length
+//    byte 5    : flags (bit 0 CLEAR codeword enabled)
+//    byte 6-9  : number of entries (big endian)
+//    byte 10-13: dictionary ID (big endian)
+//    byte 14-  : entries, as a 3 byte pointer (big endian) and a byte value
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.util.zip.CRC32;
+
+public class DictFile extends Lz {
+
+    // File format constants
+    private static final int MAGIC0      = 'L';
+    private static final int MAGIC1      = 'Z';
+    private static final int MAGIC2      = 'D';
+    private static final int VERSION     = 1;
+    private static final int CLEARFLAG   = 0x01;
+
+    // Percentage of the full dictionary used by trained entries
+    private static final int PRIMEPERCENT = 75;
+
+    // Dictionary parameters and entries
+    protected int     max_cw_len;
+    protected boolean clear_enable;
+    protected int     num_entries;
+    protected int     dict_id;
+    protected int[]   pointers;
+    protected byte[]  bytes;
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public DictFile() {
+        max_cw_len  = MAXCWLEN;
+        num_entries = 0;
+        pointers    = new int[0];
+        bytes       = new byte[0];
+    }
+
+    //=======================================================================
+    // Method name: train
+    //
+    // Description:
+    //    Builds the dictionary entries from the sample data on the input
+    //    stream, for a compressed stream with the specified header
+    //    parameters. Returns NOERROR, or IO_ERROR if reading failed.
+    //=======================================================================
+
+    public int train(BufferedInputStream ip_file, Header hdr) {
+
+        Header  th    = new Header(hdr.max_cw_len, POLICY_LRU);
+        LzInput input = new LzInput(ip_file);
+        Dict    dict;
+        int     first_cw, next_cw;
+
+        // Train with an LRU dictionary, with the target's reserved codewords
+        th.clear_enable = hdr.clear_enable;
+        dict = new Dict(true, th);
+        dict.set_entry_limit((int)(((long)1 << hdr.max_cw_len) * PRIMEPERCENT / 100));
+
+        // Compress the sample data, discarding the output
+        new Comp(1 << hdr.max_cw_len, input, POLICY_LRU).compress(dict,
+             new Packer(true, OutputStream.nullOutputStream()));
+
+        if (io_status("train", input) != NOERROR)
+            return IO_ERROR;
+
+        first_cw = dict.first_codeword();
+        next_cw  = dict.next_available();
+
+        // The next free codeword when primed mustn't be a power of 2 (see
+        // Dict.prime_dictionary()). The last entry built can be dropped, as
+        // nothing can point to it. (This can only happen if the sample data
+        // didn't fill the training dictionary, which is never a power of 2
+        // when full.)
+        if (next_cw > first_cw && Integer.bitCount(next_cw) == 1)
+            next_cw--;
+
+        max_cw_len   = hdr.max_cw_len;
+        clear_enable = hdr.clear_enable;
+        num_entries  = next_cw - first_cw;
+        pointers     = new int[num_entries];
+        bytes        = new byte[num_entries];
+
+        for (int idx = 0; idx < num_entries; idx++) {
+            pointers[idx] = dict.dictionary_entry_pointer(first_cw + idx);
+            bytes[idx]    = dict.dictionary_entry_byte(first_cw + idx);
+        }
+
+        dict_id = calc_id();
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: prime
+    //
+    // Description:
+    //    Primes a dictionary with the trained entries, returning NOERROR,
+    //    or DICTFILE_ERROR if the dictionary doesn't match the stream
+    //    header's parameters.
+    //=======================================================================
+
+    public int prime(Dict dict, Header hdr) {
+
+        if (hdr.max_cw_len != max_cw_len || hdr.clear_enable != clear_enable) {
+            System.out.format("***prime: Error --- DICTIONARY TRAINED FOR %d BITS%s\n",
+                              max_cw_len, clear_enable ? " WITH CLEAR" : "");
+            return DICTFILE_ERROR;
+        }
+
+        dict.prime_dictionary(num_entries, pointers, bytes);
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: write
+    //
+    // Description:
+    //    Writes the dictionary to the output stream, returning NOERROR, or
+    //    IO_ERROR if writing failed.
+    //=======================================================================
+
+    public int write(BufferedOutputStream op_file) {
+
+        clear_io_error();
+
+        putc((byte)MAGIC0, op_file);
+        putc((byte)MAGIC1, op_file);
+        putc((byte)MAGIC2, op_file);
+        putc((byte)VERSION, op_file);
+        putc((byte)max_cw_len, op_file);
+        putc((byte)(clear_enable ? CLEARFLAG : 0), op_file);
+        put_int(num_entries, 4, op_file);
+        put_int(dict_id, 4, op_file);
+
+        for (int idx = 0; idx < num_entries; idx++) {
+            put_int(pointers[idx], 3, op_file);
+            putc(bytes[idx], op_file);
+        }
+
+        flush(op_file);
+
+        return io_status("write", this);
+    }
+
+    //=======================================================================
+    // Method name: read
+    //
+    // Description:
+    //    Reads a dictionary from the input stream, returning NOERROR, 
+    //    DICTFILE_ERROR if it isn't a valid dictionary, or IO_ERROR if reading
+    //    failed.
+    //=======================================================================
+
+    public int read(BufferedInputStream ip_file) {
+
+        int status;
+
+        clear_io_error();
+        status = read_dict(ip_file);
+
+        // A failed read looks like a bad dictionary
+        return (io_status("read", this) != NOERROR) ? IO_ERROR : status;
+    }
+
+    private int read_dict(BufferedInputStream ip_file) {
+
+        int flags;
+
+        if (getc(ip_file) != MAGIC0 || getc(ip_file) != MAGIC1 || getc(ip_file) != MAGIC2 ||
+            getc(ip_file) != VERSION) {
+            System.out.format("***read: Error --- NOT A DICTIONARY FILE\n");
+            return DICTFILE_ERROR;
+        }
+
+        max_cw_len   = getc(ip_file);
+        flags        = getc(ip_file);
+        num_entries  = get_int(4, ip_file);
+        dict_id      = get_int(4, ip_file);
+
+        if (!Header.valid_cw_len(max_cw_len) || flags < 0 || num_entries < 0 ||
+            num_entries > (1 << max_cw_len) - FIRSTCW - 1) {
+            System.out.format("***read: Error --- BAD DICTIONARY PARAMETERS\n");
+            return DICTFILE_ERROR;
+        }
+
+        clear_enable = (flags & CLEARFLAG) != 0;
+        pointers     = new int[num_entries];
+        bytes        = new byte[num_entries];
+
+        for (int idx = 0; idx < num_entries; idx++) {
+            pointers[idx] = get_int(3, ip_file);
+            bytes[idx]    = (byte)getc(ip_file);
+        }
+
+        // The ID also serves as a check on the contents
+        if (pointers.length > 0 && pointers[num_entries-1] < 0 || calc_id() != dict_id) {
+            System.out.format("***read: Error --- CORRUPT DICTIONARY\n");
+            return DICTFILE_ERROR;
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // The ID is the CRC32 of the parameters and entries
+    private int calc_id() {
+        CRC32 crc = new CRC32();
+
+        crc.update(max_cw_len);
+        crc.update(clear_enable ? CLEARFLAG : 0);
+
+        for (int idx = 0; idx < num_entries; idx++) {
+            crc.update(pointers[idx] >> 16);
+            crc.update(pointers[idx] >> 8);
+            crc.update(pointers[idx]);
+            crc.update(bytes[idx]);
+        }
+
+        return (int)crc.getValue();
+    }
+
+    private void put_int(int val, int num_bytes, BufferedOutputStream op_file) {
+        for (int idx = num_bytes-1; idx >= 0; idx--)
+            putc((byte)(val >> (idx * BYTESIZE)), op_file);
+    }
+
+    // Returns -1 if the input runs out
+    private int get_int(int num_bytes, BufferedInputStream ip_file) {
+        int val = 0;
+        short ipbyte;
+
+        for (int idx = 0; idx < num_bytes; idx++) {
+            if ((ipbyte = getc(ip_file)) == -1)
+                return -1;
+            val = (val << BYTESIZE) | ipbyte;
+        }
+
+        return val;
+    }
+}
@@ -0,0 +1,59 @@
+//=======================================================================
+//
+// FrameBlock.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The FrameBlock class holds a block of a framed stream (see 
+// FrameHeader), uncompressed and compressed, whilst it is compressed or
+// decompressed by a parallel task. The buffers are kept, and grown as
+// needed, when a block object is reused for later blocks.
+//=======================================================================
+
+package Lzw.codec;
+
+public class FrameBlock {
+
+    protected byte[] data      = new byte[0];
+    protected int    len;
+    protected byte[] comp_data = new byte[0];
+    protected int    comp_len;
+    protected int    status;
+
+    //=======================================================================
+    // Method name: size_data / size_comp_data
+    //
+    // Description:
+    //    Makes sure the buffers have space for at least size bytes.
+    //=======================================================================
+
+    protected void size_data(int size) {
+        if (data.length < size)
+            data = new byte[size];
+    }
+
+    protected void size_comp_data(int size) {
+        if (comp_data.length < size)
+            comp_data = new byte[size];
+    }
+}
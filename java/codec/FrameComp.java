@@ -0,0 +1,211 @@
+//=======================================================================
+//
+// FrameComp.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The FrameComp class compresses an input as a framed stream (see 
+// FrameHeader), splitting it into fixed size blocks which are each
+// compressed with an independent dictionary, so that the blocks can be
+// compressed in parallel. 
+//
+// The blocks are compressed by tasks on a ForkJoinPool, with encoders
+// (and their dictionaries) reused from an LzwPool. The input is read,
+// and the frames written, in order on the calling thread, with up to
+// twice as many blocks in flight as there are threads, to bound the
+// memory used. The output depends only on the block size and the
+// encoder configuration, and not on the number of threads.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FrameComp extends Lz {
+
+    // Configuration
+    private int         num_threads;
+    private FrameHeader frame_header;
+    private LzwPool     engines;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public FrameComp(int threads, int blocksize, int maxcwlen, int policy) {
+        this(threads, blocksize, maxcwlen, policy, null);
+    }
+
+    public FrameComp(int threads, int blocksize, int maxcwlen, int policy, DictFile dictfile) {
+        this(threads, blocksize, new LzwEncoder(maxcwlen, policy, dictfile));
+    }
+
+    // The blocks are compressed with copies of the template encoder, with
+    // its settings
+    public FrameComp(int threads, int blocksize, LzwEncoder template) {
+        num_threads             = Math.max(threads, 1);
+        frame_header            = new FrameHeader();
+        frame_header.block_size = blocksize;
+        engines                 = new LzwPool(num_threads, template, new LzwDecoder());
+    }
+
+    //=======================================================================
+    // Method name: compress
+    //
+    // Description:
+    //    Compresses the input stream until its end, writing the framed
+    //    stream to the output stream, which is flushed but not closed.
+    //    Returns NOERROR, an error status if the block size or encoder
+    //    configuration is bad, PACKER_ERROR if a block's compression 
+    //    failed, or IO_ERROR if reading or writing failed.
+    //=======================================================================
+
+    public int compress(InputStream ip_file, OutputStream op_file) {
+
+        ForkJoinPool                   pool;
+        ArrayDeque<FrameBlock>         free_blocks = new ArrayDeque<FrameBlock>();
+        ArrayDeque<Future<FrameBlock>> in_flight   = new ArrayDeque<Future<FrameBlock>>();
+        LzwEncoder                     encoder;
+        FrameBlock                     block;
+        int                            status;
+
+        if (frame_header.block_size < MINFRAMEBLOCK || frame_header.block_size > MAXFRAMEBLOCK) {
+            System.out.format("***compress: Error --- BAD BLOCK SIZE %d\n", frame_header.block_size);
+            return USER_ERROR;
+        }
+
+        // Check the encoders can be configured, before starting
+        encoder = engines.acquire_encoder();
+        status  = encoder.status();
+        engines.release_encoder(encoder);
+
+        if (status != NOERROR)
+            return status;
+
+        clear_io_error();
+        frame_header.clear_io_error();
+        frame_header.write_container(op_file);
+
+        pool = new ForkJoinPool(num_threads);
+
+        try {
+            // Stops early if the output fails
+            while (status == NOERROR && io_error() == null && frame_header.io_error() == null) {
+
+                // Reuse the buffers of a written block, if there is one
+                block = free_blocks.isEmpty() ? new FrameBlock() : free_blocks.pop();
+
+                if (!read_block(ip_file, block))
+                    break;
+
+                final FrameBlock next = block;
+                in_flight.add(pool.submit(() -> compress_block(next)));
+
+                // Write the oldest block once the window is full
+                if (in_flight.size() >= 2 * num_threads) {
+                    if ((block = write_frame(op_file, in_flight.remove())) == null)
+                        status = PACKER_ERROR;
+                    else
+                        free_blocks.push(block);
+                }
+            }
+
+            // Write the blocks still in flight, up to any failed block
+            while (!in_flight.isEmpty() && status == NOERROR)
+                if (write_frame(op_file, in_flight.remove()) == null)
+                    status = PACKER_ERROR;
+
+        } finally {
+            pool.shutdown();
+        }
+
+        if (status != NOERROR)
+            return status;
+
+        frame_header.write_frame(op_file, 0, 0);
+        flush(op_file);
+
+        return io_status("compress", this, frame_header);
+    }
+
+    //=======================================================================
+    // Method name: compress_block
+    //
+    // Description:
+    //    Compresses a block, with an encoder from the pool. Runs on the 
+    //    ForkJoinPool's threads.
+    //=======================================================================
+
+    private FrameBlock compress_block(FrameBlock block) {
+
+        LzwEncoder encoder = engines.acquire_encoder();
+
+        block.size_comp_data(encoder.compress_bound(block.len));
+        block.comp_len = encoder.compress(block.data, 0, block.len, block.comp_data);
+
+        engines.release_encoder(encoder);
+
+        return block;
+    }
+
+    //=======================================================================
+    // Internal IO methods
+    //=======================================================================
+
+    // Reads the next block of input, returning false at the end of the
+    // input. Only the last block is shorter than the block size.
+    private boolean read_block(InputStream ip_file, FrameBlock block) {
+
+        int size = frame_header.block_size;
+        int rlen;
+
+        block.size_data(size);
+        block.len = 0;
+
+        while (block.len < size && (rlen = read_block(ip_file, block.data, block.len, size - block.len)) > 0)
+            block.len += rlen;
+
+        return block.len > 0;
+    }
+
+    // Waits for a block to be compressed, and writes its frame, returning
+    // the block for reuse, or null if its compression failed
+    private FrameBlock write_frame(OutputStream op_file, Future<FrameBlock> task) {
+
+        FrameBlock block;
+
+        try {
+            block = task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.format("***compress: Error --- BLOCK FAILED (%s)\n", e);
+            return null;
+        }
+
+        frame_header.write_frame(op_file, block.len, block.comp_len);
+        write_block(op_file, block.comp_data, 0, block.comp_len);
+
+        return block;
+    }
+}
@@ -0,0 +1,218 @@
+//=======================================================================
+//
+// FrameDecomp.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The FrameDecomp class decompresses a framed stream (see FrameHeader),
+// as written by FrameComp. As the blocks are independent, they are
+// decompressed in parallel, by tasks on a ForkJoinPool, with decoders
+// (and their dictionaries) reused from an LzwPool. 
+//
+// The frames are read in order on the calling thread. Each block is
+// decompressed into a buffer sized from its frame header, and the
+// blocks are written out in order, with up to twice as many blocks in
+// flight as there are threads.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class FrameDecomp extends Lz {
+
+    private int         num_threads;
+    private FrameHeader frame_header;
+    private LzwPool     engines;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public FrameDecomp() {
+        this(1, new LzwDecoder());
+    }
+
+    // A trained dictionary is needed for streams compressed with one
+    public FrameDecomp(int threads, DictFile dictfile) {
+        this(threads, new LzwDecoder(dictfile));
+    }
+
+    // The blocks are decompressed with copies of the template decoder
+    // (with its trained dictionary and string cache size)
+    public FrameDecomp(int threads, LzwDecoder template) {
+        num_threads  = Math.max(threads, 1);
+        frame_header = new FrameHeader();
+        engines      = new LzwPool(num_threads, new LzwEncoder(), template);
+    }
+
+    //=======================================================================
+    // Method name: decompress
+    //
+    // Description:
+    //    Decompresses the framed stream from the input stream, writing the
+    //    data to the output stream, which is flushed but not closed. 
+    //    Returns NOERROR, or the error status for a bad or truncated 
+    //    stream (in which case the blocks before the bad one are 
+    //    written), or IO_ERROR if reading or writing failed.
+    //=======================================================================
+
+    public int decompress(InputStream ip_file, OutputStream op_file) {
+
+        ForkJoinPool                   pool;
+        ArrayDeque<FrameBlock>         free_blocks = new ArrayDeque<FrameBlock>();
+        ArrayDeque<Future<FrameBlock>> in_flight   = new ArrayDeque<Future<FrameBlock>>();
+        FrameBlock                     block;
+        int                            status;
+
+        clear_io_error();
+        frame_header.clear_io_error();
+
+        if ((status = frame_header.read_container(ip_file)) != NOERROR)
+            return (io_status("decompress", frame_header) != NOERROR) ? IO_ERROR : status;
+
+        pool = new ForkJoinPool(num_threads);
+
+        try {
+            while ((status = frame_header.read_frame(ip_file)) == NOERROR && !frame_header.end_frame()) {
+
+                // Reuse the buffers of a written block, if there is one
+                block = free_blocks.isEmpty() ? new FrameBlock() : free_blocks.pop();
+
+                block.len      = frame_header.uncomp_len;
+                block.comp_len = frame_header.comp_len;
+                block.size_data(block.len);
+                block.size_comp_data(block.comp_len);
+
+                if (!read_fully(ip_file, block.comp_data, block.comp_len)) {
+                    System.out.format("***decompress: Error --- TRUNCATED FRAME\n");
+                    status = DECOMPRESSION_ERROR;
+                    break;
+                }
+
+                final FrameBlock next = block;
+                in_flight.add(pool.submit(() -> decompress_block(next)));
+
+                // Write the oldest block once the window is full
+                if (in_flight.size() >= 2 * num_threads) {
+                    block = wait_block(in_flight.remove());
+
+                    if ((status = write_block(op_file, block)) != NOERROR)
+                        break;
+
+                    free_blocks.push(block);
+                }
+            }
+
+            // Write the blocks still in flight, up to any bad block
+            while (!in_flight.isEmpty()) {
+                block = wait_block(in_flight.remove());
+
+                if (status == NOERROR)
+                    status = write_block(op_file, block);
+            }
+
+        } finally {
+            pool.shutdown();
+        }
+
+        flush(op_file);
+
+        // A failed read (which looks like a truncated stream) or write is
+        // the cause of any other error
+        if (io_status("decompress", this, frame_header) != NOERROR)
+            status = IO_ERROR;
+
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: decompress_block
+    //
+    // Description:
+    //    Decompresses a block, with a decoder from the pool, setting the
+    //    block's status. Runs on the ForkJoinPool's threads.
+    //=======================================================================
+
+    private FrameBlock decompress_block(FrameBlock block) {
+
+        LzwDecoder decoder = engines.acquire_decoder();
+        int        len;
+
+        len = decoder.decompress(block.comp_data, 0, block.comp_len, block.data, 0);
+
+        if (len == block.len)
+            block.status = NOERROR;
+        else
+            block.status = (len < 0) ? decoder.status() : DECOMPRESSION_ERROR;
+
+        engines.release_decoder(decoder);
+
+        return block;
+    }
+
+    //=======================================================================
+    // Internal IO methods
+    //=======================================================================
+
+    // Waits for a block to be decompressed, returning null if its task
+    // failed
+    private FrameBlock wait_block(Future<FrameBlock> task) {
+        try {
+            return task.get();
+        } catch (InterruptedException | ExecutionException e) {
+            System.out.format("***decompress: Error --- BLOCK FAILED (%s)\n", e);
+        }
+
+        return null;
+    }
+
+    // Writes a decompressed block, if it decompressed to its frame's 
+    // length, returning its status
+    private int write_block(OutputStream op_file, FrameBlock block) {
+
+        if (block == null)
+            return DECOMPRESSION_ERROR;
+
+        if (block.status != NOERROR) {
+            System.out.format("***decompress: Error --- BAD FRAME (STATUS %d)\n", block.status);
+            return block.status;
+        }
+
+        write_block(op_file, block.data, 0, block.len);
+
+        return NOERROR;
+    }
+
+    private boolean read_fully(InputStream ip_file, byte[] buf, int len) {
+        int count = 0;
+        int rlen;
+
+        while (count < len && (rlen = read_block(ip_file, buf, count, len - count)) > 0)
+            count += rlen;
+
+        return count == len;
+    }
+}
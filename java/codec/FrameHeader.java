@@ -0,0 +1,225 @@
+//=======================================================================
+//
+// FrameHeader.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The FrameHeader class formats the headers of a framed stream, which
+// holds the input compressed as independent blocks, so that the blocks
+// can be compressed and decompressed in parallel. The stream starts 
+// with a container header:
+//
+//    byte 0-2 : magic number ('L', 'Z', 'F')
+//    byte 3   : format version
+//    byte 4-7 : block size (big endian)
+//
+// followed by a frame for each block, in order, and an end frame. Each
+// frame has a frame header:
+//
+//    byte 0-3 : uncompressed length of the block (big endian)
+//    byte 4-7 : compressed length of the block (big endian)
+//
+// followed by the compressed block, which is a complete compressed
+// stream (with its own stream header, see Header). Every block but the
+// last has the block size as its uncompressed length. The end frame is
+// a frame header with both lengths zero.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+
+public class FrameHeader extends Lz {
+
+    // Container format constants
+    private static final int MAGIC0        = 'L';
+    private static final int MAGIC1        = 'Z';
+    private static final int MAGIC2        = 'F';
+    private static final int VERSION       = 1;
+    private static final int CONTAINERSIZE = 8;
+    private static final int FRAMESIZE     = 8;
+
+    // Container and frame parameters
+    protected int block_size;
+    protected int uncomp_len;
+    protected int comp_len;
+
+    private byte[] hdr = new byte[CONTAINERSIZE];
+
+    //=======================================================================
+    // Method name: is_framed
+    //
+    // Description:
+    //    Returns true if the buffered input starts with a framed stream's
+    //    magic number, without consuming any of it.
+    //=======================================================================
+
+    public static boolean is_framed(BufferedInputStream ip_file) {
+
+        byte[] magic = new byte[3];
+        int    len   = 0;
+        int    count;
+
+        try {
+            ip_file.mark(magic.length);
+
+            while (len < magic.length && (count = ip_file.read(magic, len, magic.length - len)) > 0)
+                len += count;
+
+            ip_file.reset();
+        } catch (IOException e) {
+            // Left for the decoder to meet, and report
+            return false;
+        }
+
+        return len == magic.length && magic[0] == MAGIC0 && magic[1] == MAGIC1 && magic[2] == MAGIC2;
+    }
+
+    //=======================================================================
+    // Method name: write_container
+    //
+    // Description:
+    //    Writes the container header to the output stream.
+    //=======================================================================
+
+    protected void write_container(OutputStream op_file) {
+
+        hdr[0] = (byte)MAGIC0;
+        hdr[1] = (byte)MAGIC1;
+        hdr[2] = (byte)MAGIC2;
+        hdr[3] = (byte)VERSION;
+        put_int(block_size, 4);
+
+        write_block(op_file, hdr, 0, CONTAINERSIZE);
+    }
+
+    //=======================================================================
+    // Method name: read_container
+    //
+    // Description:
+    //    Reads and checks the container header from the input stream. 
+    //    Returns NOERROR, or HEADER_ERROR if it isn't a framed stream.
+    //=======================================================================
+
+    protected int read_container(InputStream ip_file) {
+
+        if (!read_hdr(ip_file, CONTAINERSIZE) || hdr[0] != MAGIC0 || hdr[1] != MAGIC1 || hdr[2] != MAGIC2) {
+            System.out.format("***read_container: Error --- NOT A FRAMED STREAM\n");
+            return HEADER_ERROR;
+        }
+
+        if (hdr[3] != VERSION) {
+            System.out.format("***read_container: Error --- UNSUPPORTED VERSION %d\n", hdr[3]);
+            return HEADER_ERROR;
+        }
+
+        block_size = get_int(4);
+
+        if (block_size < MINFRAMEBLOCK || block_size > MAXFRAMEBLOCK) {
+            System.out.format("***read_container: Error --- BAD BLOCK SIZE %d\n", block_size);
+            return HEADER_ERROR;
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: write_frame
+    //
+    // Description:
+    //    Writes a frame header, for a block of the specified lengths (or
+    //    both zero for the end frame).
+    //=======================================================================
+
+    protected void write_frame(OutputStream op_file, int ulen, int clen) {
+
+        put_int(ulen, 0);
+        put_int(clen, 4);
+
+        write_block(op_file, hdr, 0, FRAMESIZE);
+    }
+
+    //=======================================================================
+    // Method name: read_frame
+    //
+    // Description:
+    //    Reads and checks a frame header, setting the block lengths. 
+    //    Returns NOERROR, or HEADER_ERROR if it is truncated or the 
+    //    lengths are impossible. A compressed length more than any encoder
+    //    can produce for the block is rejected, before the decompressor
+    //    allocates a buffer for it.
+    //=======================================================================
+
+    protected int read_frame(InputStream ip_file) {
+
+        if (!read_hdr(ip_file, FRAMESIZE)) {
+            System.out.format("***read_frame: Error --- TRUNCATED FRAME HEADER\n");
+            return HEADER_ERROR;
+        }
+
+        uncomp_len = get_int(0);
+        comp_len   = get_int(4);
+
+        if (uncomp_len < 0 || uncomp_len > block_size || comp_len < 0 || 
+            comp_len > LzwEncoder.max_compress_bound(uncomp_len) || (comp_len == 0) != (uncomp_len == 0)) {
+            System.out.format("***read_frame: Error --- BAD FRAME LENGTHS %d %d\n", uncomp_len, comp_len);
+            return HEADER_ERROR;
+        }
+
+        return NOERROR;
+    }
+
+    // True for the end frame
+    protected boolean end_frame() {
+        return uncomp_len == 0;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private void put_int(int val, int off) {
+        for (int idx = 0; idx < 4; idx++)
+            hdr[off + idx] = (byte)(val >> ((3 - idx) * BYTESIZE));
+    }
+
+    private int get_int(int off) {
+        int val = 0;
+
+        for (int idx = 0; idx < 4; idx++)
+            val = (val << BYTESIZE) | (hdr[off + idx] & BYTEMASK);
+
+        return val;
+    }
+
+    // Reads len header bytes, returning false if the input runs out
+    private boolean read_hdr(InputStream ip_file, int len) {
+        int count = 0;
+        int rlen;
+
+        while (count < len && (rlen = read_block(ip_file, hdr, count, len - count)) > 0)
+            count += rlen;
+
+        return count == len;
+    }
+}
@@ -0,0 +1,454 @@
+//=======================================================================
+//
+// Header.java                                           date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The Header class holds the stream parameters that the compressor and
+// decompressor must agree on, and formats them as the bytes which start
+// every compressed stream, so that the decompressor can configure
+// itself from the stream. The header layout is:
+//
+//    byte 0-1 : magic number ('L', 'Z')
+//    byte 2   : format version (odd, see below)
+//    byte 3   : flags
+//                 bits 1:0 dictionary mode when full (DICT_RESET/DICT_FREEZE/
+//                          DICT_LRU)
+//                 bit  2   CLEAR codeword enabled
+//                 bit  3   primed dictionary ID present
+//                 bit  4   FLUSH codeword enabled
+//                 bit  5   codewords range coded (see RangePacker.java)
+//                 bit  6   codewords phased in (see PhasedPacker.java)
+//                 bit  7   maximum string length present
+//    byte 4   : maximum codeword length in bits (MINCWLEN to MAXCWLENLIMIT)
+//    byte 5-8 : primed dictionary ID (big endian), if flagged
+//    next 4   : maximum string length (big endian, MINSTRLEN to MAXSTRLEN),
+//               if flagged
+//
+// Without a maximum string length, strings are only limited by the 
+// dictionary size, so are at most 2^(maximum codeword length) bytes.
+//
+// A header may instead be for the Unix compress (.Z) format (FORMAT_Z),
+// which is recognised by its magic number when reading. A .Z stream has
+// a frozen dictionary, with CLEAR codewords in block mode, and the 
+// header layout is:
+//
+//    byte 0-1 : magic number (0x1f, 0x9d)
+//    byte 2   : flags
+//                 bits 4:0 maximum codeword length in bits (MINCWLEN to 
+//                          ZMAXCWLEN)
+//                 bits 6:5 reserved (zero)
+//                 bit  7   block mode (CLEAR codeword enabled)
+//
+// A stream starting with neither magic number is read as a legacy 
+// stream (FORMAT_LEGACY), as written by slzw.c, the Python version and
+// older versions of this codec: no header, with 12 bit codewords and a
+// dictionary reset when full (an empty stream is an empty legacy 
+// stream). A legacy stream can only start 'L', 'Z' with the root 
+// codewords 'L' and '-', so its third byte, whose bit 0 is bit 7 of '-',
+// is even. So versions are odd, and a stream is only taken as having a
+// header if its third byte is odd.
+//
+// slzw.c's streams differ from the others at a dictionary reset, where
+// slzw.c builds no entry (as this codec now does), so are only read as
+// legacy streams up to the first reset. Conversely, a default stream
+// (12 bit codewords, POLICY_RESET, and none of the flags) after its 5
+// header bytes is an slzw.c stream.
+//=======================================================================
+
+package Lzw.codec;
+
+public class Header extends Lz {
+
+    // Header format constants
+    private static final int MAGIC0     = 'L';
+    private static final int MAGIC1     = 'Z';
+    private static final int VERSION    = 1;
+    private static final int HEADERSIZE = 5;
+
+    // .Z format constants
+    private static final int ZMAGIC0     = 0x1f;
+    private static final int ZMAGIC1     = 0x9d;
+    private static final int ZHEADERSIZE = 3;
+    private static final int ZBITSMASK   = 0x1f;
+    private static final int ZRSVDMASK   = 0x60;
+    private static final int ZBLOCKFLAG  = 0x80;
+
+    // Flag fields
+    private static final int MODEMASK   = 0x03;
+    private static final int CLEARFLAG  = 0x04;
+    private static final int DICTFLAG   = 0x08;
+    private static final int FLUSHFLAG  = 0x10;
+    private static final int RANGEFLAG  = 0x20;
+    private static final int PHASEDFLAG = 0x40;
+    private static final int STRLENFLAG = 0x80;
+    private static final int DICTIDSIZE = 4;
+    private static final int STRLENSIZE = 4;
+
+    // Stream parameters
+    protected int     format;
+    protected int     max_cw_len;
+    protected int     dict_mode;
+    protected boolean clear_enable;
+    protected boolean flush_enable;
+    protected boolean range_coded;
+    protected boolean phased_in;
+    protected boolean dict_primed;
+    protected int     dict_id;
+    protected int     max_str_len;
+
+    // Fixed header bytes, as read
+    private int[]     hdr = new int[HEADERSIZE];
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public Header() {
+        this(MAXCWLEN, POLICY_RESET);
+    }
+
+    public Header(int maxcwlen) {
+        this(maxcwlen, POLICY_RESET);
+    }
+
+    // The reset policy selects the dictionary mode, and whether CLEAR
+    // codewords may be sent. Both freeze policies use a frozen dictionary,
+    // with only the ratio policy resetting it, via CLEAR.
+    public Header(int maxcwlen, int policy) {
+        this(maxcwlen, policy, FORMAT_LZW);
+    }
+
+    public Header(int maxcwlen, int policy, int fmt) {
+        format       = fmt;
+        max_cw_len   = maxcwlen;
+        clear_enable = (policy == POLICY_RATIO);
+
+        switch (policy) {
+        case POLICY_RESET: dict_mode = DICT_RESET;  break;
+        case POLICY_LRU:   dict_mode = DICT_LRU;    break;
+        default:           dict_mode = DICT_FREEZE; break;
+        }
+    }
+
+    //=======================================================================
+    // Method name: valid_cw_len
+    //
+    // Description:
+    //    Returns true if the specified maximum codeword length is within
+    //    the supported range.
+    //=======================================================================
+
+    public static boolean valid_cw_len(int maxcwlen) {
+        return maxcwlen >= MINCWLEN && maxcwlen <= MAXCWLENLIMIT;
+    }
+
+    public static boolean valid_cw_len(int maxcwlen, int fmt) {
+        return valid_cw_len(maxcwlen) && (fmt != FORMAT_Z || maxcwlen <= ZMAXCWLEN);
+    }
+
+    // Returns true if the maximum string length is within the supported
+    // range
+    public static boolean valid_str_len(int maxstrlen) {
+        return maxstrlen >= MINSTRLEN && maxstrlen <= MAXSTRLEN;
+    }
+
+    //=======================================================================
+    // Method name: string_bound
+    //
+    // Description:
+    //    Returns the longest string a codeword can represent: the maximum
+    //    string length, if there is one, and otherwise the dictionary 
+    //    size.
+    //=======================================================================
+
+    protected int string_bound() {
+        return (max_str_len != 0) ? max_str_len : 1 << max_cw_len;
+    }
+
+    //=======================================================================
+    // Method name: size
+    //
+    // Description:
+    //    Returns the number of bytes in the header.
+    //=======================================================================
+
+    protected int size() {
+        if (format == FORMAT_Z)
+            return ZHEADERSIZE;
+
+        if (format == FORMAT_LEGACY)
+            return 0;
+
+        return HEADERSIZE + (dict_primed ? DICTIDSIZE : 0) + (max_str_len != 0 ? STRLENSIZE : 0);
+    }
+
+    // The header size, as far as the first count bytes of a stream tell it.
+    // Until the flags are in, only the fixed bytes are known.
+    protected static int size(byte[] buf, int count) {
+        switch (format_of(buf, 0, count)) {
+        case FORMAT_Z:      return ZHEADERSIZE;
+        case FORMAT_LEGACY: return 0;
+        }
+
+        if (count < HEADERSIZE)
+            return HEADERSIZE;
+
+        return HEADERSIZE + ((buf[3] & DICTFLAG)   != 0 ? DICTIDSIZE : 0) 
+                          + ((buf[3] & STRLENFLAG) != 0 ? STRLENSIZE : 0);
+    }
+
+    //=======================================================================
+    // Method name: same_params
+    //
+    // Description:
+    //    Returns true if the other header has the same stream parameters,
+    //    so that a dictionary configured for one suits the other.
+    //=======================================================================
+
+    protected boolean same_params(Header hdr) {
+        return format       == hdr.format       &&
+               max_cw_len   == hdr.max_cw_len   && dict_mode == hdr.dict_mode &&
+               clear_enable == hdr.clear_enable && dict_primed == hdr.dict_primed &&
+               flush_enable == hdr.flush_enable && range_coded == hdr.range_coded &&
+               phased_in    == hdr.phased_in    && dict_id     == hdr.dict_id &&
+               max_str_len  == hdr.max_str_len;
+    }
+
+    //=======================================================================
+    // Method name: write
+    //
+    // Description:
+    //    Writes the header bytes to the output stream, returning the
+    //    number of bytes written.
+    //=======================================================================
+
+    protected int write(LzOutput output) {
+
+        if (format == FORMAT_Z) {
+            output.put((byte)ZMAGIC0);
+            output.put((byte)ZMAGIC1);
+            output.put((byte)(max_cw_len | (clear_enable ? ZBLOCKFLAG : 0)));
+
+            return size();
+        }
+
+        output.put((byte)MAGIC0);
+        output.put((byte)MAGIC1);
+        output.put((byte)VERSION);
+        output.put((byte)flags());
+        output.put((byte)max_cw_len);
+
+        if (dict_primed)
+            put_int(output, dict_id, DICTIDSIZE);
+
+        if (max_str_len != 0)
+            put_int(output, max_str_len, STRLENSIZE);
+
+        return size();
+    }
+
+    //=======================================================================
+    // Method name: read
+    //
+    // Description:
+    //    Reads and checks the header bytes from the input stream, setting
+    //    the stream parameters. Returns NOERROR, or HEADER_ERROR if the
+    //    header is bad. A legacy stream's first bytes are left to be 
+    //    decompressed.
+    //=======================================================================
+
+    protected int read(LzInput input) {
+
+        long field;
+        int  count = input.fill(HEADERSIZE);
+
+        if (count == 0)
+            return read_legacy();
+
+        switch (format_of(input.buf, input.pos, count)) {
+        case FORMAT_LEGACY: 
+            return read_legacy();
+
+        case FORMAT_Z:
+            if (count < ZHEADERSIZE)
+                break;
+
+            input.pos += ZHEADERSIZE;
+            return read_z(input.buf[input.pos-1] & BYTEMASK);
+        }
+
+        if (count < HEADERSIZE) {
+            System.out.format("***read: Error --- TRUNCATED HEADER\n");
+            return HEADER_ERROR;
+        }
+
+        for (int idx = 0; idx < HEADERSIZE; idx++)
+            hdr[idx] = input.get();
+
+        if (hdr[2] != VERSION) {
+            System.out.format("***read: Error --- UNSUPPORTED VERSION %d\n", hdr[2]);
+            return HEADER_ERROR;
+        }
+
+        if ((hdr[3] & MODEMASK) > DICT_LRU) {
+            System.out.format("***read: Error --- UNSUPPORTED FLAGS %02x\n", hdr[3]);
+            return HEADER_ERROR;
+        }
+
+        if (!valid_cw_len(hdr[4])) {
+            System.out.format("***read: Error --- BAD CODEWORD LENGTH %d\n", hdr[4]);
+            return HEADER_ERROR;
+        }
+
+        format       = FORMAT_LZW;
+        dict_mode    = hdr[3] & MODEMASK;
+        clear_enable = (hdr[3] & CLEARFLAG) != 0;
+        flush_enable = (hdr[3] & FLUSHFLAG) != 0;
+        range_coded  = (hdr[3] & RANGEFLAG) != 0;
+        phased_in    = (hdr[3] & PHASEDFLAG) != 0;
+        dict_primed  = (hdr[3] & DICTFLAG)  != 0;
+        max_cw_len   = hdr[4];
+        dict_id      = 0;
+        max_str_len  = 0;
+
+        if (dict_primed) {
+            if ((field = get_int(input, DICTIDSIZE)) < 0) {
+                System.out.format("***read: Error --- TRUNCATED HEADER\n");
+                return HEADER_ERROR;
+            }
+
+            dict_id = (int)field;
+        }
+
+        if ((hdr[3] & STRLENFLAG) != 0) {
+            if ((field = get_int(input, STRLENSIZE)) < 0) {
+                System.out.format("***read: Error --- TRUNCATED HEADER\n");
+                return HEADER_ERROR;
+            }
+
+            max_str_len = (int)field;
+
+            if (!valid_str_len(max_str_len)) {
+                System.out.format("***read: Error --- BAD STRING LENGTH %d\n", max_str_len);
+                return HEADER_ERROR;
+            }
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Internal formatting methods
+    //=======================================================================
+
+    // The format of a stream from its first count bytes at off in buf, or
+    // FORMAT_LZW if it could still have this codec's header
+    private static int format_of(byte[] buf, int off, int count) {
+
+        int[] magic = {MAGIC0, MAGIC1};
+
+        if (count >= ZHEADERSIZE-1 && (buf[off] & BYTEMASK) == ZMAGIC0 && (buf[off+1] & BYTEMASK) == ZMAGIC1)
+            return FORMAT_Z;
+
+        for (int idx = 0; idx < magic.length && idx < count; idx++)
+            if ((buf[off+idx] & BYTEMASK) != magic[idx])
+                return FORMAT_LEGACY;
+
+        // The version is odd, where a legacy stream has an even third byte
+        if (count > magic.length && (buf[off+magic.length] & 1) == 0)
+            return FORMAT_LEGACY;
+
+        return FORMAT_LZW;
+    }
+
+    // Sets the stream parameters of a legacy stream
+    private int read_legacy() {
+        format       = FORMAT_LEGACY;
+        max_cw_len   = MAXCWLEN;
+        dict_mode    = DICT_RESET;
+        clear_enable = false;
+        flush_enable = false;
+        range_coded  = false;
+        phased_in    = false;
+        dict_primed  = false;
+        dict_id      = 0;
+        max_str_len  = 0;
+
+        return NOERROR;
+    }
+
+    // Checks the flags of a .Z header, and sets the stream parameters
+    private int read_z(int flags) {
+
+        if ((flags & ZRSVDMASK) != 0) {
+            System.out.format("***read: Error --- UNSUPPORTED .Z FLAGS %02x\n", flags);
+            return HEADER_ERROR;
+        }
+
+        if (!valid_cw_len(flags & ZBITSMASK, FORMAT_Z)) {
+            System.out.format("***read: Error --- BAD CODEWORD LENGTH %d\n", flags & ZBITSMASK);
+            return HEADER_ERROR;
+        }
+
+        format       = FORMAT_Z;
+        max_cw_len   = flags & ZBITSMASK;
+        clear_enable = (flags & ZBLOCKFLAG) != 0;
+        dict_mode    = DICT_FREEZE;
+        flush_enable = false;
+        range_coded  = false;
+        phased_in    = false;
+        dict_primed  = false;
+        dict_id      = 0;
+        max_str_len  = 0;
+
+        return NOERROR;
+    }
+
+    private int flags() {
+        return dict_mode | (clear_enable ? CLEARFLAG : 0) | (dict_primed ? DICTFLAG : 0) |
+               (flush_enable ? FLUSHFLAG : 0) | (range_coded ? RANGEFLAG : 0) |
+               (phased_in ? PHASEDFLAG : 0) | (max_str_len != 0 ? STRLENFLAG : 0);
+    }
+
+    // Writes a big endian field of num_bytes
+    private void put_int(LzOutput output, int val, int num_bytes) {
+        for (int idx = num_bytes-1; idx >= 0; idx--)
+            output.put((byte)(val >> (idx * BYTESIZE)));
+    }
+
+    // Reads a big endian field of num_bytes, returning -1 if the input
+    // runs out
+    private long get_int(LzInput input, int num_bytes) {
+        long val = 0;
+        int  ipbyte;
+
+        for (int idx = 0; idx < num_bytes; idx++) {
+            if ((ipbyte = input.get()) == -1)
+                return -1;
+            val = (val << BYTESIZE) | ipbyte;
+        }
+
+        return val;
+    }
+}
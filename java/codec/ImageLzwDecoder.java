@@ -0,0 +1,308 @@
+//=======================================================================
+//
+// ImageLzwDecoder.java                                  date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The ImageLzwDecoder class decodes the LZW variants used for image
+// data, in GIF frames and TIFF strips. These differ from this codec's
+// own streams in that:
+//
+//    - The roots are the 2^min_code_size values (min_code_size is 2 to
+//      8 for GIF, and 8 for TIFF), followed by a CLEAR codeword and an
+//      EOI (end of information) codeword, with entries built from the
+//      codeword after EOI.
+//    - Codewords start at min_code_size+1 bits, up to 12 bits. Once the
+//      dictionary is full, it is frozen until a CLEAR.
+//    - TIFF packs codewords MSB first, and increments the codeword 
+//      length one entry early ("early change"). GIF (and old style TIFF)
+//      packs LSB first, without early change.
+//
+// Each call decodes a whole strip (or GIF frame) from a source array
+// into a caller supplied destination array, stopping at EOI, the end of
+// the source, or when the destination is full. GIF image data, in
+// length prefixed sub-blocks, can be decoded without first copying out
+// the sub-blocks.
+//
+// The dictionary is held in preallocated columns of 4096 entries, with
+// each entry's string length and first byte, so that a codeword's string
+// is written straight into its place in the destination, from its last
+// byte back, without a stack. Decoding allocates nothing.
+//=======================================================================
+
+package Lzw.codec;
+
+public class ImageLzwDecoder extends Lz {
+
+    private static final int DICTSIZE = 1 << IMAGEMAXCWLEN;
+
+    // Configuration
+    private int     min_code_size;
+    private boolean msb_first;
+    private boolean early_change;
+    private int     clear_cw;
+    private int     eoi_cw;
+
+    // Dictionary columns: pointer, byte, string length and first byte
+    private int[]  dictionary_pointer = new int[DICTSIZE];
+    private byte[] dictionary_byte    = new byte[DICTSIZE];
+    private int[]  string_length      = new int[DICTSIZE];
+    private byte[] first_byte         = new byte[DICTSIZE];
+
+    // Set once a valid variant is configured
+    private boolean configured;
+
+    private int status;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public ImageLzwDecoder(int mincodesize, boolean msbfirst, boolean earlychange) {
+        configure(mincodesize, msbfirst, earlychange);
+    }
+
+    // Decoder for GIF frames with the specified minimum code size
+    public static ImageLzwDecoder gif(int mincodesize) {
+        return new ImageLzwDecoder(mincodesize, false, false);
+    }
+
+    // Decoder for TIFF LZW strips
+    public static ImageLzwDecoder tiff() {
+        return new ImageLzwDecoder(IMAGEMAXCODESIZE, true, true);
+    }
+
+    //=======================================================================
+    // Method name: configure
+    //
+    // Description:
+    //    Sets the variant, so that a decoder can be reused for frames with
+    //    different minimum code sizes. Returns NOERROR, or USER_ERROR for
+    //    a bad minimum code size.
+    //=======================================================================
+
+    public int configure(int mincodesize, boolean msbfirst, boolean earlychange) {
+
+        if (mincodesize < IMAGEMINCODESIZE || mincodesize > IMAGEMAXCODESIZE) {
+            System.out.format("***configure: Error --- BAD MINIMUM CODE SIZE %d\n", mincodesize);
+            return status = USER_ERROR;
+        }
+
+        configured    = true;
+        min_code_size = mincodesize;
+        msb_first     = msbfirst;
+        early_change  = earlychange;
+        clear_cw      = 1 << min_code_size;
+        eoi_cw        = clear_cw + 1;
+
+        // The roots never change
+        for (int cw = 0; cw < clear_cw; cw++) {
+            dictionary_pointer[cw] = NULLCW;
+            dictionary_byte[cw]    = (byte)cw;
+            string_length[cw]      = 1;
+            first_byte[cw]         = (byte)cw;
+        }
+
+        return status = NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: decode
+    //
+    // Description:
+    //    Decodes the len bytes of codewords from src[off], writing up to
+    //    dstlen bytes to dst from dstoff. Returns the number of bytes 
+    //    written, or -1 on a corrupt strip, with status() returning the
+    //    error.
+    //=======================================================================
+
+    public int decode(byte[] src, int off, int len, byte[] dst, int dstoff, int dstlen) {
+        return run(src, off, len, false, dst, dstoff, dstlen);
+    }
+
+    //=======================================================================
+    // Method name: decode_blocks
+    //
+    // Description:
+    //    As decode(), for GIF image data in sub-blocks (each a length byte
+    //    followed by up to 255 bytes), ending with a zero length block or
+    //    the end of the source.
+    //=======================================================================
+
+    public int decode_blocks(byte[] src, int off, int len, byte[] dst, int dstoff, int dstlen) {
+        return run(src, off, len, true, dst, dstoff, dstlen);
+    }
+
+    // Status of the last decode
+    public int status() {
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: run
+    //
+    // Description:
+    //    Decodes a strip. The codewords are taken from a 64 bit barrel
+    //    shifter, refilled a byte at a time, from the source up to the end
+    //    of the current sub-block (or of the source, if not in 
+    //    sub-blocks).
+    //=======================================================================
+
+    private int run(byte[] src, int off, int len, boolean sub_blocks, byte[] dst, int dstoff, int dstlen) {
+
+        int  pos       = off;
+        int  end       = off + len;
+        int  block_end = sub_blocks ? off : end;
+        int  op        = dstoff;
+        int  op_end    = dstoff + dstlen;
+        long barrel    = 0;
+        int  bits      = 0;
+        int  cw_len    = min_code_size + 1;
+        int  next_free = eoi_cw + 1;
+        int  prev_cw   = NULLCW;
+        int  cw, str_len, incr_at;
+
+        if (!configured)
+            return -1;
+
+        // Codeword length is incremented when the next free entry reaches
+        // this (one less with early change)
+        incr_at = (1 << cw_len) - (early_change ? 1 : 0);
+
+        while (op < op_end) {
+
+            // Get enough bits for a codeword, moving on to the next 
+            // sub-block as each one is used up
+            while (bits < cw_len) {
+                if (pos == block_end) {
+                    if (!sub_blocks || pos == end || src[pos] == 0)
+                        return finish(op - dstoff);
+
+                    block_end = Math.min(pos + 1 + (src[pos] & BYTEMASK), end);
+                    pos++;
+                    continue;
+                }
+
+                if (msb_first)
+                    barrel = (barrel << BYTESIZE) | (src[pos++] & BYTEMASK);
+                else
+                    barrel |= (long)(src[pos++] & BYTEMASK) << bits;
+
+                bits += BYTESIZE;
+            }
+
+            if (msb_first) {
+                cw = (int)(barrel >>> (bits - cw_len)) & ((1 << cw_len) - 1);
+            } else {
+                cw = (int)barrel & ((1 << cw_len) - 1);
+                barrel >>>= cw_len;
+            }
+
+            bits -= cw_len;
+
+            // A CLEAR empties the dictionary, back to the shortest codewords
+            if (cw == clear_cw) {
+                cw_len    = min_code_size + 1;
+                incr_at   = (1 << cw_len) - (early_change ? 1 : 0);
+                next_free = eoi_cw + 1;
+                prev_cw   = NULLCW;
+                continue;
+            }
+
+            if (cw == eoi_cw)
+                break;
+
+            // The first codeword after a CLEAR must be a root, and builds
+            // nothing
+            if (prev_cw == NULLCW) {
+                if (cw > clear_cw)
+                    return error(cw);
+
+                dst[op++] = dictionary_byte[cw];
+                prev_cw   = cw;
+                continue;
+            }
+
+            // Output the codeword's string. If it is the entry about to be
+            // built (the KwK case), it is the previous string plus that
+            // string's first byte.
+            if (cw < next_free) {
+                str_len = string_length[cw];
+                put_string(cw, str_len, dst, op, op_end);
+            } else if (cw == next_free) {
+                str_len = string_length[prev_cw] + 1;
+                put_string(prev_cw, str_len - 1, dst, op, op_end);
+
+                if (op + str_len - 1 < op_end)
+                    dst[op + str_len - 1] = first_byte[prev_cw];
+            } else
+                return error(cw);
+
+            // Build an entry for the previous string and the first byte of
+            // this one, unless the dictionary is full
+            if (next_free < DICTSIZE) {
+                dictionary_pointer[next_free] = prev_cw;
+                dictionary_byte[next_free]    = first_byte[(cw == next_free) ? prev_cw : cw];
+                string_length[next_free]      = string_length[prev_cw] + 1;
+                first_byte[next_free]         = first_byte[prev_cw];
+
+                if (++next_free == incr_at && cw_len < IMAGEMAXCWLEN)
+                    incr_at = (1 << ++cw_len) - (early_change ? 1 : 0);
+            }
+
+            op      = Math.min(op + str_len, op_end);
+            prev_cw = cw;
+        }
+
+        return finish(op - dstoff);
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Writes the string of a codeword, of length str_len, to dst[op], from
+    // its last byte back to its first, dropping any bytes past op_end
+    private void put_string(int cw, int str_len, byte[] dst, int op, int op_end) {
+        int idx = op + str_len - 1;
+
+        for (; idx >= op_end; idx--)
+            cw = dictionary_pointer[cw];
+
+        for (; idx >= op; idx--) {
+            dst[idx] = dictionary_byte[cw];
+            cw       = dictionary_pointer[cw];
+        }
+    }
+
+    private int finish(int count) {
+        status = NOERROR;
+        return count;
+    }
+
+    private int error(int cw) {
+        System.out.format("***decode: Error --- UNKNOWN CODEWORD %03x\n", cw);
+        status = DECOMPRESSION_ERROR;
+        return -1;
+    }
+}
@@ -0,0 +1,270 @@
+//=======================================================================
+//
+// ImageLzwEncoder.java                                  date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The ImageLzwEncoder class encodes the GIF and TIFF LZW variants (see
+// ImageLzwDecoder.java), a strip (or GIF frame) at a time, from a 
+// source array into a destination array. Each strip starts with a CLEAR
+// and ends with an EOI. A CLEAR is sent when the dictionary fills (two
+// entries short of full for TIFF, as TIFF decoders expect), rather than
+// freezing it.
+//
+// GIF image data must still be split into sub-blocks by the caller.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.Arrays;
+
+public class ImageLzwEncoder extends Lz {
+
+    private static final int DICTSIZE = 1 << IMAGEMAXCWLEN;
+
+    // Hash table of (pointer, byte) keys to entries, twice the dictionary
+    // size, with each slot a (key, codeword) pair of ints
+    private static final int HASHBITS  = IMAGEMAXCWLEN + 1;
+    private static final int HASHSIZE  = 1 << HASHBITS;
+    private static final int HASHMASK  = HASHSIZE * 2 - 1;
+    private static final int HASHMULT  = 0x9E3779B1;
+    private static final int EMPTYSLOT = 0;
+
+    // Configuration
+    private int     min_code_size;
+    private boolean msb_first;
+    private boolean early_change;
+    private int     clear_cw;
+    private int     eoi_cw;
+    private int     dict_limit;
+
+    private int[] hash_table = new int[HASHSIZE * 2];
+
+    // Output state for the current strip
+    private byte[]  dst;
+    private int     op;
+    private int     op_end;
+    private long    barrel;
+    private int     bits;
+
+    // Set once a valid variant is configured
+    private boolean configured;
+
+    private int status;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public ImageLzwEncoder(int mincodesize, boolean msbfirst, boolean earlychange) {
+        configure(mincodesize, msbfirst, earlychange);
+    }
+
+    // Encoder for GIF frames with the specified minimum code size
+    public static ImageLzwEncoder gif(int mincodesize) {
+        return new ImageLzwEncoder(mincodesize, false, false);
+    }
+
+    // Encoder for TIFF LZW strips
+    public static ImageLzwEncoder tiff() {
+        return new ImageLzwEncoder(IMAGEMAXCODESIZE, true, true);
+    }
+
+    //=======================================================================
+    // Method name: configure
+    //
+    // Description:
+    //    Sets the variant, returning NOERROR, or USER_ERROR for a bad 
+    //    minimum code size.
+    //=======================================================================
+
+    public int configure(int mincodesize, boolean msbfirst, boolean earlychange) {
+
+        if (mincodesize < IMAGEMINCODESIZE || mincodesize > IMAGEMAXCODESIZE) {
+            System.out.format("***configure: Error --- BAD MINIMUM CODE SIZE %d\n", mincodesize);
+            return status = USER_ERROR;
+        }
+
+        configured    = true;
+        min_code_size = mincodesize;
+        msb_first     = msbfirst;
+        early_change  = earlychange;
+        clear_cw      = 1 << min_code_size;
+        eoi_cw        = clear_cw + 1;
+        dict_limit    = DICTSIZE - (early_change ? 2 : 0);
+
+        return status = NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: encode_bound
+    //
+    // Description:
+    //    Returns the maximum number of bytes that encoding len bytes can
+    //    produce: a codeword per byte, a CLEAR for each dictionary's worth
+    //    of codewords, and the EOI, at 12 bits.
+    //=======================================================================
+
+    public int encode_bound(int len) {
+        long num_cws = (long)len + len / (DICTSIZE - DICTSIZE / 2) + 3;
+
+        return (int)Math.min((num_cws * IMAGEMAXCWLEN + BYTESIZE - 1) / BYTESIZE, Integer.MAX_VALUE);
+    }
+
+    //=======================================================================
+    // Method name: encode
+    //
+    // Description:
+    //    Encodes the len bytes from src[off] as a strip, writing to dst 
+    //    from dstoff. Returns the number of bytes written, or -1 with 
+    //    status() returning the error (BUFFER_ERROR if dst is too small, 
+    //    or USER_ERROR for a byte too large for the minimum code size).
+    //=======================================================================
+
+    public int encode(byte[] src, int off, int len, byte[] d, int dstoff) {
+
+        int  end       = off + len;
+        int  cw_len    = min_code_size + 1;
+        int  next_free = eoi_cw + 1;
+        int  prev_cw   = NULLCW;
+        int  incr_at   = (1 << cw_len) + (early_change ? 0 : 1);
+        int  ipbyte, key, idx, match;
+
+        if (!configured)
+            return error(USER_ERROR);
+
+        dst    = d;
+        op     = dstoff;
+        op_end = d.length;
+        barrel = 0;
+        bits   = 0;
+
+        Arrays.fill(hash_table, EMPTYSLOT);
+        put(clear_cw, cw_len);
+
+        for (int ip = off; ip < end; ip++) {
+
+            if ((ipbyte = src[ip] & BYTEMASK) >= clear_cw) {
+                System.out.format("***encode: Error --- BYTE %02x TOO LARGE FOR CODE SIZE %d\n", ipbyte, min_code_size);
+                return error(USER_ERROR);
+            }
+
+            if (prev_cw == NULLCW) {
+                prev_cw = ipbyte;
+                continue;
+            }
+
+            // Look for the entry for the string so far plus this byte 
+            key   = (prev_cw << BYTESIZE | ipbyte) + 1;
+            idx   = ((key * HASHMULT) >>> (32 - HASHBITS)) << 1;
+            match = NOMATCH;
+
+            while (hash_table[idx] != EMPTYSLOT) {
+                if (hash_table[idx] == key) {
+                    match = hash_table[idx+1];
+                    break;
+                }
+
+                idx = (idx + 2) & HASHMASK;
+            }
+
+            if (match != NOMATCH) {
+                prev_cw = match;
+                continue;
+            }
+
+            put(prev_cw, cw_len);
+
+            // Build an entry, or CLEAR once the dictionary fills
+            hash_table[idx]   = key;
+            hash_table[idx+1] = next_free;
+
+            if (++next_free == incr_at && cw_len < IMAGEMAXCWLEN)
+                incr_at = (1 << ++cw_len) + (early_change ? 0 : 1);
+
+            if (next_free == dict_limit) {
+                put(clear_cw, cw_len);
+                Arrays.fill(hash_table, EMPTYSLOT);
+                cw_len    = min_code_size + 1;
+                incr_at   = (1 << cw_len) + (early_change ? 0 : 1);
+                next_free = eoi_cw + 1;
+            }
+
+            prev_cw = ipbyte;
+        }
+
+        if (prev_cw != NULLCW)
+            put(prev_cw, cw_len);
+
+        put(eoi_cw, cw_len);
+
+        // Pad out the last byte
+        if (bits > 0)
+            put(0, BYTESIZE - bits);
+
+        if (op > op_end)
+            return error(BUFFER_ERROR);
+
+        status = NOERROR;
+
+        return op - dstoff;
+    }
+
+    // Status of the last encode
+    public int status() {
+        return status;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Packs a codeword, in the variant's bit order. Bytes past the end of
+    // dst are counted, but not written.
+    private void put(int cw, int cw_len) {
+
+        if (msb_first)
+            barrel = (barrel << cw_len) | cw;
+        else
+            barrel |= (long)cw << bits;
+
+        bits += cw_len;
+
+        while (bits >= BYTESIZE) {
+            bits -= BYTESIZE;
+
+            if (op < op_end)
+                dst[op] = (byte)(msb_first ? barrel >>> bits : barrel);
+
+            op++;
+
+            if (!msb_first)
+                barrel >>>= BYTESIZE;
+        }
+    }
+
+    private int error(int err) {
+        status = err;
+        return -1;
+    }
+}
@@ -29,11 +29,22 @@
 package Lzw.codec;
                   
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
 
 public class Lz implements LzConsts {
 
+    // The first IO error met by the helper methods, if any
+    private volatile IOException io_error;
+
     //=======================================================================
     // Helper IO methods to hide the try/catch awkwardness
+    //
+    // An IOException isn't thrown, but recorded (the first one kept), so
+    // that the engines can finish and return IO_ERROR to their caller. 
+    // After an error, reads return the end of the input, and a file that
+    // can't be opened is reported and returned as null.
     //=======================================================================
 
     // Open a file for writing and attached to a buffer
@@ -43,8 +54,8 @@ public class Lz implements LzConsts {
             FileOutputStream fos = new FileOutputStream(new File(op_filename));
             return new BufferedOutputStream(fos);
         } catch (IOException e) {
-            e.printStackTrace(System.err);
-            System.exit(1);
+            io_failed(e);
+            System.out.format("***file_open_write: Error --- CAN'T OPEN %s (%s)\n", op_filename, e.getMessage());
         }
 
         return null;
@@ -57,13 +68,92 @@ public class Lz implements LzConsts {
             FileInputStream fis = new FileInputStream(new File(ip_filename));
             return new BufferedInputStream(fis);
         } catch (IOException e) {
-            e.printStackTrace(System.err);
-            System.exit(1);
+            io_failed(e);
+            System.out.format("***file_open_read: Error --- CAN'T OPEN %s (%s)\n", ip_filename, e.getMessage());
+        }
+
+        return null;
+    }
+
+    // Open a file channel for reading
+    public FileChannel channel_open_read(String ip_filename) {
+
+        try {
+            return FileChannel.open(Paths.get(ip_filename), StandardOpenOption.READ);
+        } catch (IOException e) {
+            io_failed(e);
+            System.out.format("***channel_open_read: Error --- CAN'T OPEN %s (%s)\n", ip_filename, e.getMessage());
         }
 
         return null;
     }
 
+    // Open a file channel for writing, truncating any existing file
+    public FileChannel channel_open_write(String op_filename) {
+
+        try {
+            return FileChannel.open(Paths.get(op_filename), StandardOpenOption.WRITE, 
+                                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            io_failed(e);
+            System.out.format("***channel_open_write: Error --- CAN'T OPEN %s (%s)\n", op_filename, e.getMessage());
+        }
+
+        return null;
+    }
+
+    // Map up to size bytes of a file channel, from position pos, read only
+    // (or none after an error)
+    public ByteBuffer map_region(FileChannel ch, long pos, long size) {
+
+        try {
+            return ch.map(FileChannel.MapMode.READ_ONLY, pos, Math.min(size, Math.max(ch.size() - pos, 0)));
+        } catch (IOException e) {
+            io_failed(e);
+        }
+
+        return ByteBuffer.allocate(0);
+    }
+
+    // Write all the remaining bytes of a buffer to a file channel
+    public void write_channel(FileChannel ch, ByteBuffer bb) {
+        try {
+            while (bb.hasRemaining())
+                ch.write(bb);
+        } catch (IOException e) {
+            io_failed(e);
+        }
+    }
+
+    // Get the position of a file channel
+    public long channel_position(FileChannel ch) {
+        try {
+            return ch.position();
+        } catch (IOException e) {
+            io_failed(e);
+        }
+
+        return 0;
+    }
+
+    // Set the position of a file channel
+    public void channel_seek(FileChannel ch, long pos) {
+        try {
+            ch.position(pos);
+        } catch (IOException e) {
+            io_failed(e);
+        }
+    }
+
+    // Close a file channel
+    public void channel_close(FileChannel ch) {
+        try {
+            ch.close();
+        } catch (IOException e) {
+            io_failed(e);
+        }
+    }
+
     // Get a byte from a buffered input
     public short getc(BufferedInputStream ip) {
         int rbyte;
@@ -72,11 +162,31 @@ public class Lz implements LzConsts {
             rbyte = ip.read();
             return (short)rbyte;
         } catch (IOException e) {
-            e.printStackTrace(System.err);
-            System.exit(1);
+            io_failed(e);
         }
 
-        return 0;
+        return -1;
+    }
+
+    // Read up to len bytes into a buffer, returning the number read, or 
+    // -1 at the end of the input
+    public int read_block(InputStream ip, byte[] buf, int off, int len) {
+        try {
+            return ip.read(buf, off, len);
+        } catch (IOException e) {
+            io_failed(e);
+        }
+
+        return -1;
+    }
+
+    // Write len bytes from a buffer
+    public void write_block(OutputStream op, byte[] buf, int off, int len) {
+        try {
+            op.write(buf, off, len);
+        } catch (IOException e) {
+            io_failed(e);
+        }
     }
 
     // Write a byte to a buffered input
@@ -84,17 +194,55 @@ public class Lz implements LzConsts {
         try {
             op.write(val);
         } catch (IOException e) {
-            e.printStackTrace(System.err);
-            System.exit(1);
+            io_failed(e);
         }
     }
 
-    public void flush(BufferedOutputStream op) {
+    public void flush(OutputStream op) {
         try {
             op.flush();
         } catch (IOException e) {
-            e.printStackTrace(System.err);
-            System.exit(1);
+            io_failed(e);
+        }
+    }
+
+    // Close a stream (flushing any output)
+    public void close(Closeable strm) {
+        try {
+            strm.close();
+        } catch (IOException e) {
+            io_failed(e);
         }
     }
+
+    //=======================================================================
+    // IO error methods
+    //=======================================================================
+
+    // The first IO error recorded since the last clear, or null
+    protected IOException io_error() {
+        return io_error;
+    }
+
+    protected void clear_io_error() {
+        io_error = null;
+    }
+
+    protected void io_failed(IOException e) {
+        if (io_error == null)
+            io_error = e;
+    }
+
+    // Returns IO_ERROR, reporting the error, if any of the objects has
+    // recorded an IO error, or else NOERROR
+    protected static int io_status(String method, Lz... objs) {
+        for (Lz obj : objs) {
+            if (obj.io_error != null) {
+                System.out.format("***%s: Error --- IO FAILED (%s)\n", method, obj.io_error.getMessage());
+                return IO_ERROR;
+            }
+        }
+
+        return NOERROR;
+    }
 }
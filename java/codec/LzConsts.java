@@ -56,23 +56,100 @@ public interface LzConsts {
     int RESCWNUM                = 8;
     int FIRSTROOTCW             = 0x000;
     int FIRSTCW                 = 0x100;
-    int NULLCW                  = 0xFFFF;
+    int CLEARCW                 = 0x100;
+    int FLUSHCW                 = 0x101;
+
+    // Null codeword and no match indicators lie outside of any codeword 
+    // space, as codewords may be up to MAXCWLENLIMIT bits
+    int NULLCW                  = -1;
     int EOFFLUSH                = NULLCW;
+    int NOMATCH                 = -1;
 
+    // MAXCWLEN is the default maximum codeword length, which may be 
+    // configured between MINCWLEN and MAXCWLENLIMIT
     int MINCWLEN                = 9;
     int MAXCWLEN                = 12;
+    int MAXCWLENLIMIT           = 24;
     int MAXWORDLENGTH           = (1 << MAXCWLEN);
 
+    // Range of the maximum string length which can be configured, and
+    // recorded in the stream header (otherwise strings are only limited
+    // by the dictionary size)
+    int MINSTRLEN               = 2;
+    int MAXSTRLEN               = (1 << MAXCWLENLIMIT);
+
+    // Shortest string kept in the decompressor's string cache (shorter
+    // strings are as quick to decode from the dictionary)
+    int MINCACHESTRLEN          = 32;
+
+    // Range of decoded string cache sizes (in bytes)
+    int MINCACHESIZE            = 1024;
+    int MAXCACHESIZE            = (1 << 30);
+
+    // Maximum codeword length for the Unix compress (.Z) format
+    int ZMAXCWLEN               = 16;
+
     int DICTFULL                = (1 << MAXCWLEN);
-    int NOMATCH                 = DICTFULL;
     int MAXDICTSIZE             = DICTFULL;
 
     int CODEWORDMASK            = ((1 << MAXCWLEN) - 1);
 
+    // Dictionary modes, for when the dictionary is full (recorded in the
+    // stream header)
+    int DICT_RESET              = 0;
+    int DICT_FREEZE             = 1;
+    int DICT_LRU                = 2;
+
+    // Maximum codeword length, and minimum code size range, for the GIF
+    // and TIFF LZW variants
+    int IMAGEMAXCWLEN           = 12;
+    int IMAGEMINCODESIZE        = 2;
+    int IMAGEMAXCODESIZE        = 8;
+
+    // Compressed stream formats: this codec's own, Unix compress (.Z), 
+    // and the headerless 12 bit format of slzw.c and older versions (only
+    // ever read)
+    int FORMAT_LZW              = 0;
+    int FORMAT_Z                = 1;
+    int FORMAT_LEGACY           = 2;
+
+    // Compression reset policies, selecting the dictionary mode and when
+    // a CLEAR codeword is sent
+    int POLICY_RESET            = 0;
+    int POLICY_FREEZE           = 1;
+    int POLICY_RATIO            = 2;
+    int POLICY_LRU              = 3;
+
+    // Ratio monitoring window (in input bytes) and the percentage drop
+    // from the best window ratio which triggers a CLEAR
+    int RATIOWINDOW             = 0x4000;
+    int RATIOTHRESHOLD          = 10;
+
+    // Size of the blocks read from and written to streams
+    int IOBLOCKSIZE             = 0x10000;
+
+    // Size of the regions mapped from an input file channel, and of the
+    // direct buffer written to an output file channel
+    long MAPREGIONSIZE          = 0x40000000L;
+    int CHANNELBUFSIZE          = 0x400000;
+
+    // Default, minimum and maximum block sizes for framed streams
+    int FRAMEBLOCKSIZE          = 0x100000;
+    int MINFRAMEBLOCK           = 0x400;
+    int MAXFRAMEBLOCK           = 0x10000000;
+
+    // Minimum spacing, in uncompressed bytes, of seek index points
+    long INDEXSPACING           = 0x40000L;
+
     int NOERROR                 = 0;
     int USER_ERROR              = 1;
     int DECOMPRESSION_ERROR     = 2;
     int PACKER_ERROR            = 3;
     int UNPACKER_ERROR          = 4;
+    int HEADER_ERROR            = 5;
+    int DICTFILE_ERROR          = 6;
+    int BUFFER_ERROR            = 7;
+    int INDEX_ERROR             = 8;
+    int IO_ERROR                = 9;
 
 }
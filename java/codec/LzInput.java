@@ -0,0 +1,238 @@
+//=======================================================================
+//
+// LzInput.java                                          date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzInput class is the byte source for the compressor and unpacker.
+// The bytes are always taken from an array, which is either the 
+// caller's own array (or heap ByteBuffer's array), or a block buffer
+// refilled from an input stream or direct ByteBuffer. So the codec can
+// work directly over in-memory data, and over streams a block at a
+// time, rather than calling a stream for every byte.
+//
+// A file channel is read by mapping it, a region at a time, and the
+// block buffer is refilled from the mapped region, so that the file's
+// bytes are copied once, with no read calls.
+//
+// An IO error on the source is recorded (see Lz), and the input ends
+// there. It is cleared when a new source is set.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+public class LzInput extends Lz {
+
+    // Array the bytes are taken from, the next byte's index, and the end
+    // of the available bytes
+    protected byte[] buf;
+    protected int    pos;
+    protected int    limit;
+
+    // Block buffer, and the source it is refilled from (neither set when
+    // taking bytes straight from an array)
+    private byte[]      block;
+    private InputStream ip_file;
+    private ByteBuffer  ip_bb;
+
+    // View of a byte array as little endian longs, for peek_long()
+    private static final VarHandle LONGLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Mapped file channel, and the file position of the next region
+    private FileChannel ip_channel;
+    private long        map_pos;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzInput() {
+        this(IOBLOCKSIZE);
+    }
+
+    public LzInput(int size) {
+        block = new byte[size];
+        set_input(InputStream.nullInputStream());
+    }
+
+    public LzInput(InputStream ip) {
+        this(IOBLOCKSIZE);
+        set_input(ip);
+    }
+
+    //=======================================================================
+    // Method name: set_input
+    //
+    // Description:
+    //    Sets the source of the bytes to a stream, an array, a ByteBuffer
+    //    or a file channel. All of a ByteBuffer's remaining bytes are 
+    //    consumed, and its position is moved to its limit. A file channel
+    //    is read from its position to its end (without moving its 
+    //    position).
+    //=======================================================================
+
+    public void set_input(InputStream ip) {
+        clear_io_error();
+        ip_file    = ip;
+        ip_bb      = null;
+        ip_channel = null;
+        buf     = block;
+        pos     = 0;
+        limit   = 0;
+    }
+
+    public void set_input(byte[] src, int off, int len) {
+        clear_io_error();
+        ip_file    = null;
+        ip_bb      = null;
+        ip_channel = null;
+        buf        = src;
+        pos     = off;
+        limit   = off + len;
+    }
+
+    public void set_input(ByteBuffer bb) {
+        if (bb.hasArray()) {
+            set_input(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+            bb.position(bb.limit());
+        } else {
+            clear_io_error();
+            ip_file    = null;
+            ip_bb      = bb;
+            ip_channel = null;
+            buf        = block;
+            pos     = 0;
+            limit   = 0;
+        }
+    }
+
+    public void set_input(FileChannel ch) {
+        clear_io_error();
+        ip_file    = null;
+        ip_bb      = ByteBuffer.allocate(0);
+        ip_channel = ch;
+        map_pos    = channel_position(ch);
+        buf        = block;
+        pos        = 0;
+        limit      = 0;
+    }
+
+    //=======================================================================
+    // Method name: get
+    //
+    // Description:
+    //    Returns the next byte, or -1 at the end of the input.
+    //=======================================================================
+
+    protected int get() {
+        if (pos == limit && refill() == 0)
+            return -1;
+
+        return buf[pos++] & BYTEMASK;
+    }
+
+    // Returns the next 8 bytes as a little endian (lowest byte first) 64
+    // bit word, without taking them. There must be 8 bytes left in buf.
+    protected long peek_long() {
+        return (long)LONGLE.get(buf, pos);
+    }
+
+    //=======================================================================
+    // Method name: refill
+    //
+    // Description:
+    //    Returns the number of bytes available in buf from pos, reading
+    //    another block from the source if none are left. Returns 0 at the
+    //    end of the input, or after an IO error.
+    //=======================================================================
+
+    protected int refill() {
+
+        if (pos == limit && buf == block) {
+            pos   = 0;
+            limit = 0;
+            read_more();
+        }
+
+        return limit - pos;
+    }
+
+    //=======================================================================
+    // Method name: fill
+    //
+    // Description:
+    //    Makes at least count bytes (up to the block size) available in 
+    //    buf from pos, without taking them, so that they can be looked at
+    //    first. Returns the number available, which is fewer only at the
+    //    end of the input.
+    //=======================================================================
+
+    protected int fill(int count) {
+
+        if (limit - pos < count && buf == block) {
+            System.arraycopy(buf, pos, buf, 0, limit - pos);
+            limit -= pos;
+            pos    = 0;
+
+            while (limit < count && read_more() != 0)
+                ;
+        }
+
+        return limit - pos;
+    }
+
+    // Reads more of the source into buf from limit, returning the number
+    // of bytes read (0 at the end of the input, or after an IO error)
+    private int read_more() {
+
+        int count = 0;
+
+        if (io_error() == null) {
+            if (ip_file != null)
+                count = Math.max(read_block(ip_file, buf, limit, buf.length - limit), 0);
+            else if (ip_bb != null) {
+
+                // Map the next region of a file channel when the last is
+                // used up
+                if (ip_channel != null && !ip_bb.hasRemaining()) {
+                    ip_bb    = map_region(ip_channel, map_pos, MAPREGIONSIZE);
+                    map_pos += ip_bb.remaining();
+                }
+
+                count = Math.min(ip_bb.remaining(), buf.length - limit);
+                ip_bb.get(buf, limit, count);
+            }
+        }
+
+        limit += count;
+
+        return count;
+    }
+}
@@ -0,0 +1,297 @@
+//=======================================================================
+//
+// LzOutput.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzOutput class is the byte sink for the packer and decompressor,
+// the counterpart of LzInput. Bytes are always put into an array, which
+// is either the caller's own array (or heap ByteBuffer's array), or a
+// block buffer drained to an output stream or direct ByteBuffer when
+// full. An array or ByteBuffer which is too small isn't overrun; the
+// output is flagged as overflowed, and the rest of the bytes discarded.
+//
+// A file channel is written from a large direct buffer, which the block
+// buffer is drained to, so that the channel is written with few calls 
+// and without the copy to a temporary direct buffer that writing a heap
+// buffer would need.
+//
+// An IO error on the target is recorded (see Lz), and the rest of the
+// bytes discarded. It is cleared when a new target is set.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+public class LzOutput extends Lz {
+
+    // Array the bytes are put in, the next byte's index, and the end of
+    // the space available
+    protected byte[] buf;
+    protected int    pos;
+    protected int    limit;
+
+    // Index of the first byte put in buf
+    private int start;
+
+    // View of a byte array as little endian longs, for put_long()
+    private static final VarHandle LONGLE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    // Block buffer, and the target it is drained to (neither set when
+    // putting bytes straight into an array)
+    private byte[]       block;
+    private OutputStream op_file;
+    private ByteBuffer   op_bb;
+    private boolean      overflow;
+
+    // File channel target, and the direct buffer written to it (allocated
+    // on first use)
+    private FileChannel  op_channel;
+    private ByteBuffer   channel_buf;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzOutput() {
+        this(IOBLOCKSIZE);
+    }
+
+    public LzOutput(int size) {
+        block = new byte[size];
+        set_output(OutputStream.nullOutputStream());
+    }
+
+    public LzOutput(OutputStream op) {
+        this(IOBLOCKSIZE);
+        set_output(op);
+    }
+
+    //=======================================================================
+    // Method name: set_output
+    //
+    // Description:
+    //    Sets the target of the bytes to a stream, an array, a ByteBuffer
+    //    or a file channel. A ByteBuffer's position is moved past the
+    //    bytes put when flushed. A file channel is written from its 
+    //    position.
+    //=======================================================================
+
+    public void set_output(OutputStream op) {
+        clear_io_error();
+        op_file    = op;
+        op_bb      = null;
+        op_channel = null;
+        overflow   = false;
+        use_block();
+    }
+
+    public void set_output(byte[] dst, int off, int len) {
+        clear_io_error();
+        op_file    = null;
+        op_bb      = null;
+        op_channel = null;
+        overflow   = false;
+        buf        = dst;
+        start    = off;
+        pos      = off;
+        limit    = off + len;
+    }
+
+    public void set_output(ByteBuffer bb) {
+        if (bb.hasArray()) 
+            set_output(bb.array(), bb.arrayOffset() + bb.position(), bb.remaining());
+        else {
+            clear_io_error();
+            op_file  = null;
+            overflow = false;
+            use_block();
+        }
+
+        op_bb      = bb;
+        op_channel = null;
+    }
+
+    public void set_output(FileChannel ch) {
+        if (channel_buf == null)
+            channel_buf = ByteBuffer.allocateDirect(CHANNELBUFSIZE);
+
+        set_output(channel_buf.clear());
+        op_channel = ch;
+    }
+
+    //=======================================================================
+    // Method name: put
+    //
+    // Description:
+    //    Puts a byte in the output.
+    //=======================================================================
+
+    protected void put(byte val) {
+        if (pos == limit)
+            drain();
+
+        buf[pos++] = val;
+    }
+
+    // Puts len bytes from src[off] in the output, copying as much at a
+    // time as there is space for
+    protected void put(byte[] src, int off, int len) {
+        int num;
+
+        while (len > 0) {
+            if (pos == limit)
+                drain();
+
+            num = Math.min(len, limit - pos);
+            System.arraycopy(src, off, buf, pos, num);
+
+            pos += num;
+            off += num;
+            len -= num;
+        }
+    }
+
+    // Puts a 64 bit word in the output, little endian (lowest byte 
+    // first), with a single store if there is space
+    protected void put_long(long val) {
+        if (limit - pos >= Long.BYTES) {
+            LONGLE.set(buf, pos, val);
+            pos += Long.BYTES;
+        } else {
+            for (int idx = 0; idx < Long.BYTES; idx++)
+                put((byte)(val >>> (idx * BYTESIZE)));
+        }
+    }
+
+    //=======================================================================
+    // Method name: drain
+    //
+    // Description:
+    //    Makes space in the output, writing the block buffer to the
+    //    target stream or direct ByteBuffer (first writing the direct
+    //    buffer to a file channel, if it is full). If the target array or
+    //    ByteBuffer is full, the output is overflowed, and the block buffer
+    //    used to discard further bytes.
+    //=======================================================================
+
+    protected void drain() {
+
+        if (op_file != null) {
+            if (io_error() == null)
+                write_block(op_file, buf, 0, pos);
+            pos = 0;
+        } else if (op_bb != null && buf == block && !overflow && 
+                   (op_bb.remaining() >= pos || op_channel != null)) {
+            if (op_bb.remaining() < pos)
+                write_channel_buf();
+
+            op_bb.put(buf, 0, pos);
+            pos = 0;
+        } else {
+            overflow = true;
+            use_block();
+        }
+    }
+
+    //=======================================================================
+    // Method name: flush
+    //
+    // Description:
+    //    Writes out all of the bytes put, flushing a target stream, or
+    //    moving a target ByteBuffer's position past them.
+    //=======================================================================
+
+    protected void flush() {
+
+        if (op_file != null) {
+            drain();
+
+            if (io_error() == null)
+                flush(op_file);
+        } else if (op_channel != null) {
+            drain();
+            write_channel_buf();
+        } else if (op_bb != null && !overflow) {
+            if (buf == block)
+                drain();
+            else {
+                op_bb.position(op_bb.position() + pos - start);
+                start = pos;
+            }
+        }
+    }
+
+    //=======================================================================
+    // Method name: rewind
+    //
+    // Description:
+    //    Discards the bytes put in a target array, so it can be reused
+    //    once its contents have been taken.
+    //=======================================================================
+
+    protected void rewind() {
+        pos = start;
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // True if a target array or ByteBuffer ran out of space
+    protected boolean overflowed() {
+        return overflow;
+    }
+
+    // Number of bytes put in a target array (since the last flush, for a
+    // heap ByteBuffer)
+    protected int array_count() {
+        return pos - start;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private void write_channel_buf() {
+        op_bb.flip();
+
+        if (io_error() == null)
+            write_channel(op_channel, op_bb);
+
+        op_bb.clear();
+    }
+
+    private void use_block() {
+        buf   = block;
+        start = 0;
+        pos   = 0;
+        limit = block.length;
+    }
+}
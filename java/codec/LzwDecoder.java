@@ -0,0 +1,465 @@
+//=======================================================================
+//
+// LzwDecoder.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwDecoder class is a reusable decompression engine, the
+// counterpart of LzwEncoder. The decompressor configures itself from
+// each stream's header, so the dictionary is kept from one stream to
+// the next, and only reallocated when a stream's parameters (codeword
+// length, dictionary mode, CLEAR and priming) differ from the last one
+// decoded. In a service where all streams come from the same encoder
+// configuration, decoding allocates nothing per stream. Unix compress
+// (.Z) streams are recognised from their header, and decoded too, as
+// are range coded and phased in streams.
+//
+// The decompress() methods work directly over arrays, or ByteBuffers.
+// The caller must know the decompressed size to size the output.
+//
+// A decoder may have a cache of decoded strings (see StringCache.java),
+// which speeds up decoding very repetitive data, at the cost of its
+// memory.
+//
+// A decoder is not thread safe, and should be used by one thread at a
+// time. LzwPool hands out decoders to worker threads, each a copy of a
+// template decoder.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class LzwDecoder extends Lz {
+
+    // Trained dictionary to prime with, for streams which need one
+    private DictFile dictfile;
+
+    // Header of the current stream, and the header the dictionary was
+    // configured for (the two are swapped when reconfiguring, so neither
+    // is reallocated)
+    private Header header;
+    private Header dict_header;
+
+    // Codec objects
+    private Dict      dict;
+    private Unpacker  unpacker;
+    private Decomp    decomp;
+    private LzInput   input;
+    private LzOutput  output;
+
+    // Unpackers for each stream format
+    private Unpacker      lzw_unpacker;
+    private ZUnpacker     z_unpacker;
+    private RangeUnpacker range_unpacker;
+    private Unpacker      phased_unpacker;
+
+    // Decoded string cache (or null for none)
+    private StringCache   cache;
+
+    // Status and byte count for the last stream
+    private int  status;
+    private long op_bytecount;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzwDecoder() {
+        this(null);
+    }
+
+    public LzwDecoder(DictFile df) {
+        dictfile    = df;
+        header      = new Header();
+        dict_header = new Header();
+        input       = new LzInput();
+        output      = new LzOutput();
+        lzw_unpacker    = new Unpacker(false, input);
+        z_unpacker      = new ZUnpacker(input);
+        range_unpacker  = new RangeUnpacker(input);
+        phased_unpacker = new PhasedUnpacker(input);
+        unpacker        = lzw_unpacker;
+    }
+
+    //=======================================================================
+    // Method name: copy
+    //
+    // Description:
+    //    Returns a new decoder with the same trained dictionary, and a
+    //    string cache of the same size, if this one has one.
+    //=======================================================================
+
+    public LzwDecoder copy() {
+        LzwDecoder decoder = new LzwDecoder(dictfile);
+
+        decoder.copy_settings(this);
+
+        return decoder;
+    }
+
+    //=======================================================================
+    // Method name: copy_settings
+    //
+    // Description:
+    //    Changes the string cache to the size of the template's (or 
+    //    removes it, if the template has none). A cache already that size
+    //    is kept.
+    //=======================================================================
+
+    protected void copy_settings(LzwDecoder template) {
+
+        int size = (template.cache == null) ? 0 : template.cache.arena_size();
+
+        if (size != ((cache == null) ? 0 : cache.arena_size()))
+            set_string_cache(size);
+    }
+
+    //=======================================================================
+    // Method name: decode
+    //
+    // Description:
+    //    Decompresses a stream from the input stream, writing the data to
+    //    the output stream, which is flushed but not closed. Returns
+    //    NOERROR, or the error status for a bad header, missing trained
+    //    dictionary, or corrupt stream, or IO_ERROR if reading or writing
+    //    failed.
+    //=======================================================================
+
+    public int decode(InputStream ip, OutputStream op) {
+
+        input.set_input(ip);
+        output.set_output(op);
+
+        run();
+        reset();
+
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: decode
+    //
+    // Description:
+    //    Decompresses a stream from the input file channel, from its 
+    //    position, writing the data to the output file channel. The input
+    //    is memory mapped, and the output written from a direct buffer.
+    //    Returns NOERROR, or the error status as for decode() on streams.
+    //=======================================================================
+
+    public int decode(FileChannel ip, FileChannel op) {
+
+        input.set_input(ip);
+        output.set_output(op);
+
+        run();
+        reset();
+
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: decompress
+    //
+    // Description:
+    //    Decompresses the stream of len bytes from src[off], writing the
+    //    data to dst from dstoff (or 0). Returns the number of bytes 
+    //    written, or -1 on an error, with status() returning the error 
+    //    (BUFFER_ERROR if dst is too small).
+    //=======================================================================
+
+    public int decompress(byte[] src, int off, int len, byte[] dst) {
+        return decompress(src, off, len, dst, 0);
+    }
+
+    public int decompress(byte[] src, int off, int len, byte[] dst, int dstoff) {
+
+        input.set_input(src, off, len);
+        output.set_output(dst, dstoff, dst.length - dstoff);
+
+        return run_block();
+    }
+
+    //=======================================================================
+    // Method name: decompress
+    //
+    // Description:
+    //    Decompresses the stream in the remaining bytes of src, writing
+    //    the data to dst. The positions of both buffers are moved past the
+    //    bytes read and written. Returns the number of bytes written, or -1
+    //    on an error (leaving dst's position undefined), with status() 
+    //    returning the error.
+    //=======================================================================
+
+    public int decompress(ByteBuffer src, ByteBuffer dst) {
+
+        input.set_input(src);
+        output.set_output(dst);
+
+        return run_block();
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Returns the engine to its idle state, dropping any partly unpacked
+    //    codewords and references to the last input and output.
+    //=======================================================================
+
+    public void reset() {
+        unpacker.reset();
+        input.set_input(InputStream.nullInputStream());
+        output.set_output(OutputStream.nullOutputStream());
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Status of the last stream decompressed
+    public int status() {
+        return status;
+    }
+
+    // Number of bytes written for the last stream
+    public long output_bytecount() {
+        return op_bytecount;
+    }
+
+    // Decoded string cache, for its statistics (or null for none)
+    public StringCache string_cache() {
+        return cache;
+    }
+
+    //=======================================================================
+    // Method name: set_string_cache
+    //
+    // Description:
+    //    Gives the decoder a decoded string cache with an arena of the
+    //    specified number of bytes, or removes it if 0. The cache is kept
+    //    over the streams decoded.
+    //=======================================================================
+
+    public void set_string_cache(int size) {
+        cache = (size > 0) ? new StringCache(size) : null;
+
+        if (decomp != null)
+            decomp.set_string_cache(cache);
+    }
+
+    //=======================================================================
+    // Block interface
+    //
+    // Description:
+    //    Decompresses a stream given a block at a time, for LzwInputStream.
+    //    begin() reads the header from the first block (which must hold
+    //    the whole header, if the stream has one), and start() starts the
+    //    decompression to dst, which must have output_space(max_output, 0)
+    //    bytes. decompress_block() decompresses until the block is used 
+    //    up, when feed() gives the next, or at least max_output bytes have
+    //    been put in dst, which the caller must then empty (with 
+    //    output_count() and rewind_output()). Before each call, while dst
+    //    is empty, set_output_block() may give a bigger dst, if the space 
+    //    needed has grown.
+    //=======================================================================
+
+    protected int begin(byte[] src, int off, int len) {
+
+        unpacker.reset();
+        input.set_input(src, off, len);
+
+        if ((status = header.read(input)) == NOERROR)
+            status = configure();
+
+        return status;
+    }
+
+    protected void start(byte[] dst) {
+        output.set_output(dst, 0, dst.length);
+        decomp.start(dict, unpacker);
+    }
+
+    protected void set_output_block(byte[] dst) {
+        output.set_output(dst, 0, dst.length);
+    }
+
+    protected void feed(byte[] src, int off, int len) {
+        input.set_input(src, off, len);
+    }
+
+    protected int decompress_block(int max_output) {
+
+        if ((status = decomp.decompress_block(max_output)) == NOERROR && output.overflowed())
+            status = BUFFER_ERROR;
+
+        return status;
+    }
+
+    protected int output_count() {
+        return output.array_count();
+    }
+
+    protected void rewind_output() {
+        output.rewind();
+    }
+
+    // Space dst needs for decompress_block(max_output): max_output bytes
+    // and a string. Strings grow by at most a byte a codeword, so the next
+    // max_output codewords' are no longer than the longest in the 
+    // dictionary plus max_output+1 (nor the stream's bound). The headroom
+    // allows for strings that much longer, so the space lasts a while.
+    protected int output_space(int max_output, int headroom) {
+        return max_output + (int)Math.min(dict_header.string_bound(), 
+                                          (long)dict.longest_string() + max_output + 1 + headroom);
+    }
+
+    //=======================================================================
+    // Method name: decode_range
+    //
+    // Description:
+    //    Decompresses part of a stream in a file channel, for SeekReader.
+    //    The header is read from the start of the file, then decompression
+    //    restarts from the index point at bit_offset (from the end of the
+    //    header), until at least max_output bytes have been written to the
+    //    output stream, or the stream ends. Returns the status.
+    //=======================================================================
+
+    protected int decode_range(FileChannel ip, long bit_offset, OutputStream op, long max_output) {
+
+        unpacker.reset();
+        clear_io_error();
+        channel_seek(ip, 0);
+        input.set_input(ip);
+
+        if ((status = header.read(input)) == NOERROR && header.range_coded) {
+            System.out.format("***decode_range: Error --- RANGE CODED STREAMS HAVE NO SEEK INDEX\n");
+            status = INDEX_ERROR;
+        } else if (status == NOERROR && (status = configure()) == NOERROR) {
+            channel_seek(ip, dict_header.size() + bit_offset / BYTESIZE);
+            input.set_input(ip);
+            output.set_output(op);
+
+            unpacker.skip_bits((int)(bit_offset % BYTESIZE));
+            decomp.start(dict, unpacker);
+
+            if ((status = decomp.decompress_block(max_output)) == NOERROR)
+                output.flush();
+        }
+
+        if (io_status("decode_range", this, input, output) != NOERROR)
+            status = IO_ERROR;
+
+        reset();
+
+        return status;
+    }
+
+    //=======================================================================
+    // Method name: run
+    //
+    // Description:
+    //    Decompresses from the configured input to output, setting the
+    //    status.
+    //=======================================================================
+
+    private void run() {
+
+        unpacker.reset();
+        op_bytecount = 0;
+
+        if ((status = header.read(input)) == NOERROR && (status = configure()) == NOERROR) {
+            status = decomp.decompress(dict, unpacker);
+            op_bytecount = decomp.output_bytecount();
+        }
+
+        // A failed read (which looks like a truncated stream) or write is
+        // the cause of any other error
+        if (io_status("decode", input, output) != NOERROR)
+            status = IO_ERROR;
+        else if (status == NOERROR && output.overflowed())
+            status = BUFFER_ERROR;
+    }
+
+    // Decompresses to an array or ByteBuffer, returning the byte count, 
+    // or -1 on an error
+    private int run_block() {
+        run();
+        reset();
+
+        return (status == NOERROR) ? (int)op_bytecount : -1;
+    }
+
+    //=======================================================================
+    // Method name: configure
+    //
+    // Description:
+    //    Makes the dictionary match the stream header just read, reusing
+    //    the current one if the parameters are unchanged.
+    //=======================================================================
+
+    private int configure() {
+
+        Header swap;
+        int status;
+
+        // Check the stream was compressed with the dictionary we have
+        if (header.dict_primed && (dictfile == null || dictfile.dict_id != header.dict_id)) {
+            System.out.format("***decode: Error --- STREAM NEEDS DICTIONARY ID %08x\n", header.dict_id);
+            return DICTFILE_ERROR;
+        }
+
+        // Unpack with the stream format's unpacker
+        if (header.format == FORMAT_Z) {
+            z_unpacker.configure(header);
+            unpacker = z_unpacker;
+        } else if (header.range_coded) {
+            range_unpacker.reset();
+            unpacker = range_unpacker;
+        } else if (header.phased_in) {
+            phased_unpacker.reset();
+            unpacker = phased_unpacker;
+        } else
+            unpacker = lzw_unpacker;
+
+        if (dict != null && header.same_params(dict_header))
+            return NOERROR;
+
+        dict   = new Dict(false, header);
+        decomp = new Decomp(header.string_bound(), header.max_str_len != 0, output);
+        decomp.set_string_cache(cache);
+
+        if (header.dict_primed && (status = dictfile.prime(dict, header)) != NOERROR) {
+            dict = null;
+            return status;
+        }
+
+        swap        = dict_header;
+        dict_header = header;
+        header      = swap;
+
+        return NOERROR;
+    }
+}
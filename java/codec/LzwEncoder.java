@@ -0,0 +1,636 @@
+//=======================================================================
+//
+// LzwEncoder.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwEncoder class is a reusable compression engine, for compressing
+// many separate inputs in process. The dictionary, packer, compressor
+// and IO buffers are created once, for a fixed configuration, and each
+// call to encode() or compress() resets them (restoring any primed 
+// dictionary) ready for the new input, so no allocation is done per 
+// input.
+//
+// The compress() methods work directly over arrays, or ByteBuffers, so
+// the input and output bytes don't pass through any stream. The output
+// array must have space for the compressed data, which is at most
+// compress_bound() bytes.
+//
+// An encoder may instead write the Unix compress (.Z) format, with the
+// freeze policy (without CLEAR codewords) or the ratio policy (block
+// mode, with CLEAR codewords).
+//
+// An encoder may range code its codewords (see RangePacker.java), for
+// smaller streams at the cost of slower coding, or phase them in (see
+// PhasedPacker.java), saving a little at no real cost.
+//
+// An encoder may have sync flushes enabled, for streaming: its streams
+// then have a FLUSH codeword, which LzwOutputStream uses to send all the
+// data written so far, without ending the stream.
+//
+// An encoder is not thread safe, and should be used by one thread at a
+// time. LzwPool hands out encoders to worker threads, each a copy of a
+// template encoder, with the same configuration.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class LzwEncoder extends Lz {
+
+    // Codec objects, fixed for the encoder's lifetime (other than the
+    // dictionary and packer, set by the configuration methods)
+    private Header   header;
+    private Dict     dict;
+    private Packer   packer;
+    private Comp     comp;
+    private LzInput  input;
+    private LzOutput output;
+
+    // Seek index, if any
+    private SeekIndex index;
+
+    // Construction parameters, for copies of the encoder
+    private int      max_cw_len;
+    private int      reset_policy;
+    private DictFile trained_dict;
+    private int      stream_format;
+
+    // Configuration status, and the byte count for the last input
+    private int  status;
+    private long op_bytecount;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzwEncoder() {
+        this(MAXCWLEN, POLICY_RESET, null);
+    }
+
+    public LzwEncoder(int maxcwlen, int policy) {
+        this(maxcwlen, policy, null);
+    }
+
+    // If a trained dictionary is given, every input is compressed with
+    // the dictionary primed from it
+    public LzwEncoder(int maxcwlen, int policy, DictFile dictfile) {
+        this(maxcwlen, policy, dictfile, FORMAT_LZW);
+    }
+
+    // The .Z format can't have a trained dictionary
+    public LzwEncoder(int maxcwlen, int policy, DictFile dictfile, int format) {
+
+        input  = new LzInput();
+        output = new LzOutput();
+
+        max_cw_len    = maxcwlen;
+        reset_policy  = policy;
+        trained_dict  = dictfile;
+        stream_format = format;
+
+        if (!Header.valid_cw_len(maxcwlen, format)) {
+            System.out.format("***LzwEncoder: Error --- BAD CODEWORD LENGTH %d\n", maxcwlen);
+            status = USER_ERROR;
+            return;
+        }
+
+        if (format == FORMAT_Z && (dictfile != null || (policy != POLICY_FREEZE && policy != POLICY_RATIO))) {
+            System.out.format("***LzwEncoder: Error --- .Z FORMAT NEEDS FREEZE OR RATIO POLICY, AND NO DICTIONARY\n");
+            status = USER_ERROR;
+            return;
+        }
+
+        header = new Header(maxcwlen, policy, format);
+        header.dict_primed = (dictfile != null);
+        header.dict_id     = header.dict_primed ? dictfile.dict_id : 0;
+
+        dict   = new Dict(true, header);
+        packer = (format == FORMAT_Z) ? new ZPacker(output, header) : new Packer(true, output);
+        comp   = new Comp(Math.max(MAXWORDLENGTH, 1 << maxcwlen), input, policy);
+
+        status = header.dict_primed ? dictfile.prime(dict, header) : NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: copy
+    //
+    // Description:
+    //    Returns a new encoder with the same configuration (range coding,
+    //    phased in codewords, maximum string length and sync flush 
+    //    included), but without the seek index.
+    //=======================================================================
+
+    public LzwEncoder copy() {
+        LzwEncoder encoder = new LzwEncoder(max_cw_len, reset_policy, trained_dict, stream_format);
+
+        encoder.copy_settings(this);
+
+        return encoder;
+    }
+
+    //=======================================================================
+    // Method name: encode
+    //
+    // Description:
+    //    Compresses the input stream until its end, writing the header and
+    //    codewords to the output stream, which is flushed but not closed.
+    //    Returns NOERROR, the configuration error if the encoder could not
+    //    be configured, or IO_ERROR if reading or writing failed.
+    //=======================================================================
+
+    public int encode(InputStream ip, OutputStream op) {
+
+        if (status != NOERROR)
+            return status;
+
+        input.set_input(ip);
+        output.set_output(op);
+
+        return run_io();
+    }
+
+    //=======================================================================
+    // Method name: encode
+    //
+    // Description:
+    //    Compresses the input file channel from its position to its end,
+    //    writing the header and codewords to the output file channel. The
+    //    input is memory mapped, and the output written from a direct 
+    //    buffer. Returns NOERROR, the configuration error, or IO_ERROR.
+    //=======================================================================
+
+    public int encode(FileChannel ip, FileChannel op) {
+
+        if (status != NOERROR)
+            return status;
+
+        input.set_input(ip);
+        output.set_output(op);
+
+        return run_io();
+    }
+
+    //=======================================================================
+    // Method name: compress
+    //
+    // Description:
+    //    Compresses len bytes from src[off], writing the header and 
+    //    codewords to dst from dstoff (or 0). Returns the number of bytes
+    //    written, or -1 if dst is too small or the encoder could not be
+    //    configured.
+    //=======================================================================
+
+    public int compress(byte[] src, int off, int len, byte[] dst) {
+        return compress(src, off, len, dst, 0);
+    }
+
+    public int compress(byte[] src, int off, int len, byte[] dst, int dstoff) {
+
+        if (status != NOERROR)
+            return -1;
+
+        input.set_input(src, off, len);
+        output.set_output(dst, dstoff, dst.length - dstoff);
+
+        return run_block();
+    }
+
+    //=======================================================================
+    // Method name: compress
+    //
+    // Description:
+    //    Compresses the remaining bytes of src, writing the header and
+    //    codewords to dst. The positions of both buffers are moved past the
+    //    bytes read and written. Returns the number of bytes written, or -1
+    //    if dst is too small (leaving its position undefined) or the 
+    //    encoder could not be configured. Heap buffers are compressed in 
+    //    place, and direct buffers are copied a block at a time.
+    //=======================================================================
+
+    public int compress(ByteBuffer src, ByteBuffer dst) {
+
+        if (status != NOERROR)
+            return -1;
+
+        input.set_input(src);
+        output.set_output(dst);
+
+        return run_block();
+    }
+
+    //=======================================================================
+    // Method name: compress_bound
+    //
+    // Description:
+    //    Returns the maximum number of bytes that compressing len bytes can
+    //    produce. Each codeword represents at least one input byte, and 
+    //    CLEAR codewords are sent at most once every RATIOWINDOW bytes.
+    //    The .Z format also pads out a group of codewords (of at most
+    //    ZMAXCWLEN bytes) at each length change and CLEAR, and 9 bit .Z
+    //    streams have 10 bit codewords once the dictionary is full. Range
+    //    coding codes an end flag with each codeword, with the adaptive 
+    //    probabilities costing at most about 1.04 bits a bit (even for 
+    //    bits chosen against them), and ends with a flush of the coder.
+    //=======================================================================
+
+    public int compress_bound(int len) {
+
+        if (status != NOERROR)
+            return 0;
+
+        return bound(len, header);
+    }
+
+    //=======================================================================
+    // Method name: max_compress_bound
+    //
+    // Description:
+    //    Returns the maximum number of bytes that compressing len bytes can
+    //    produce with any configuration, for checking the length of a 
+    //    stream whose configuration isn't yet known. This is the larger 
+    //    of the bounds for range coding at the longest codewords (with the
+    //    longest header), and for the .Z format (whose padding costs more
+    //    on small inputs).
+    //=======================================================================
+
+    protected static int max_compress_bound(int len) {
+
+        Header range_hdr = new Header(MAXCWLENLIMIT, POLICY_RATIO);
+        Header z_hdr     = new Header(ZMAXCWLEN, POLICY_RATIO, FORMAT_Z);
+
+        range_hdr.range_coded = true;
+        range_hdr.dict_primed = true;
+        range_hdr.max_str_len = MAXSTRLEN;
+
+        return Math.max(bound(len, range_hdr), bound(len, z_hdr));
+    }
+
+    // The bound for streams with the header's configuration
+    private static int bound(int len, Header hdr) {
+
+        long num_cws = (long)len + len / RATIOWINDOW + 2;
+        long padding = 0;
+        int  cw_len  = hdr.max_cw_len;
+
+        if (hdr.format == FORMAT_Z) {
+            cw_len  = Math.max(cw_len, MINCWLEN + 1);
+            padding = (len / RATIOWINDOW + 1) * (ZMAXCWLEN - MINCWLEN + 1) * ZMAXCWLEN;
+        } else if (hdr.range_coded) {
+            cw_len  = ((cw_len + 1) * 9 + 7) / 8;
+            padding = RangePacker.FLUSHBYTES;
+        }
+
+        return (int)Math.min((num_cws * cw_len + BYTESIZE - 1) / BYTESIZE + padding + hdr.size(),
+                             Integer.MAX_VALUE);
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Returns the engine to its idle state, dropping any partly packed
+    //    codewords and references to the last input and output.
+    //=======================================================================
+
+    public void reset() {
+        if (packer != null)
+            packer.reset();
+
+        input.set_input(InputStream.nullInputStream());
+        output.set_output(OutputStream.nullOutputStream());
+    }
+
+    //=======================================================================
+    // Method name: set_index
+    //
+    // Description:
+    //    Sets a seek index to be filled with the restart points of each 
+    //    stream compressed (until replaced), or null for none.
+    //=======================================================================
+
+    public void set_index(SeekIndex idx) {
+
+        if (comp == null)
+            return;
+
+        if (idx != null && header.range_coded) {
+            System.out.format("***set_index: Error --- NO SEEK INDEX FOR RANGE CODED STREAMS\n");
+            return;
+        }
+
+        index = idx;
+        comp.set_index(index);
+    }
+
+    //=======================================================================
+    // Method name: set_range_coding
+    //
+    // Description:
+    //    Enables (or disables) range coding of the codewords, for streams
+    //    started after the call. Returns NOERROR, or USER_ERROR for a .Z
+    //    encoder, or one with a seek index (which range coded streams 
+    //    can't have).
+    //=======================================================================
+
+    public int set_range_coding(boolean enable) {
+
+        if (status != NOERROR)
+            return status;
+
+        if (enable && (header.format == FORMAT_Z || index != null || header.phased_in)) {
+            System.out.format("***set_range_coding: Error --- RANGE CODING NOT SUPPORTED FOR .Z, INDEXED OR PHASED IN STREAMS\n");
+            return USER_ERROR;
+        }
+
+        if (header.range_coded != enable) {
+            header.range_coded = enable;
+            packer = enable ? new RangePacker(output) : new Packer(true, output);
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: set_phased_coding
+    //
+    // Description:
+    //    Enables (or disables) phased in codewords, for streams started
+    //    after the call. Returns NOERROR, or USER_ERROR for a .Z or range
+    //    coded encoder.
+    //=======================================================================
+
+    public int set_phased_coding(boolean enable) {
+
+        if (status != NOERROR)
+            return status;
+
+        if (enable && (header.format == FORMAT_Z || header.range_coded)) {
+            System.out.format("***set_phased_coding: Error --- PHASED IN CODEWORDS NOT SUPPORTED FOR .Z OR RANGE CODED STREAMS\n");
+            return USER_ERROR;
+        }
+
+        if (header.phased_in != enable) {
+            header.phased_in = enable;
+            packer = enable ? new PhasedPacker(output) : new Packer(true, output);
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: set_max_string_length
+    //
+    // Description:
+    //    Sets the maximum string length (in bytes) a codeword may represent,
+    //    for streams started after the call, or removes the limit if 0. 
+    //    The limit is recorded in the stream header, and bounds the 
+    //    decompressor's output per codeword. Returns NOERROR, or 
+    //    USER_ERROR for a .Z encoder or a length out of range.
+    //=======================================================================
+
+    public int set_max_string_length(int len) {
+
+        if (status != NOERROR)
+            return status;
+
+        if (len != 0 && (header.format == FORMAT_Z || !Header.valid_str_len(len))) {
+            System.out.format("***set_max_string_length: Error --- BAD MAXIMUM STRING LENGTH %d (%d TO %d, NOT FOR .Z STREAMS)\n",
+                              len, MINSTRLEN, MAXSTRLEN);
+            return USER_ERROR;
+        }
+
+        header.max_str_len = len;
+        comp.set_max_string_length(header.string_bound());
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: set_sync_flush
+    //
+    // Description:
+    //    Enables (or disables) the FLUSH codeword, for sync flushes, in 
+    //    streams started after the call. Returns NOERROR, or USER_ERROR 
+    //    for a .Z or primed encoder, which can't have a FLUSH codeword.
+    //=======================================================================
+
+    public int set_sync_flush(boolean enable) {
+
+        if (status != NOERROR)
+            return status;
+
+        if (enable && (header.format == FORMAT_Z || header.dict_primed)) {
+            System.out.format("***set_sync_flush: Error --- SYNC FLUSH NOT SUPPORTED FOR .Z OR PRIMED STREAMS\n");
+            return USER_ERROR;
+        }
+
+        // The FLUSH codeword moves the first entry's codeword
+        if (header.flush_enable != enable) {
+            header.flush_enable = enable;
+            dict = new Dict(true, header);
+        }
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: copy_settings
+    //
+    // Description:
+    //    Changes the settings made after construction (range coding, 
+    //    phased in codewords, maximum string length and sync flush) to
+    //    the template's, which must have the same construction 
+    //    parameters, for streams started after the call.
+    //=======================================================================
+
+    protected void copy_settings(LzwEncoder template) {
+
+        if (status != NOERROR || template.status != NOERROR)
+            return;
+
+        // Disable first, as range coding and phased in codewords each need
+        // the other disabled to be enabled
+        if (!template.header.range_coded)
+            set_range_coding(false);
+
+        if (!template.header.phased_in)
+            set_phased_coding(false);
+
+        set_range_coding(template.header.range_coded);
+        set_phased_coding(template.header.phased_in);
+        set_max_string_length(template.header.max_str_len);
+        set_sync_flush(template.header.flush_enable);
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Maximum string length of the encoder's streams (0 if not limited)
+    public int max_string_length() {
+        return header.max_str_len;
+    }
+
+    // True if the encoder's streams have a FLUSH codeword
+    public boolean sync_flush_enabled() {
+        return status == NOERROR && header.flush_enable;
+    }
+
+    // NOERROR if the encoder is usable, else the configuration error
+    public int status() {
+        return status;
+    }
+
+    // Number of bytes written for the last input, header included
+    public long output_bytecount() {
+        return op_bytecount;
+    }
+
+    //=======================================================================
+    // Block interface
+    //
+    // Description:
+    //    Compresses an input given a block at a time, for LzwOutputStream.
+    //    begin() starts the stream, with the header and codewords put in
+    //    dst, which the caller must empty (with output_count() and 
+    //    rewind_output()) before it can overflow. Each block of up to n 
+    //    bytes puts at most compress_bound(n) bytes in dst. sync_flush()
+    //    outputs all the codewords so far (putting at most 
+    //    compress_bound(0) bytes in dst), and end() ends the stream.
+    //=======================================================================
+
+    protected int begin(byte[] dst) {
+
+        if (status != NOERROR)
+            return status;
+
+        output.set_output(dst, 0, dst.length);
+        packer.reset();
+
+        op_bytecount = header.write(output);
+        comp.start(dict, packer);
+
+        return NOERROR;
+    }
+
+    protected void compress_block(byte[] src, int off, int len) {
+        comp.compress_block(src, off, len);
+    }
+
+    protected void sync_flush() {
+        comp.sync_flush();
+    }
+
+    protected void end() {
+        comp.finish();
+        op_bytecount += comp.output_bytecount();
+    }
+
+    protected int output_count() {
+        return output.array_count();
+    }
+
+    protected void rewind_output() {
+        output.rewind();
+    }
+
+    //=======================================================================
+    // Pipeline interface
+    //
+    // Description:
+    //    Compresses an input for PipeComp, which packs the codewords on 
+    //    another thread. new_packer() returns a packer of the kind the 
+    //    encoder's streams are packed with, on the output given. begin()
+    //    writes the header to op, and starts the stream with the codewords
+    //    handed to pk, after which compress_block() and end() compress the
+    //    input as for the block interface.
+    //=======================================================================
+
+    protected Packer new_packer(LzOutput op) {
+        if (header.format == FORMAT_Z)
+            return new ZPacker(op, header);
+
+        if (header.range_coded)
+            return new RangePacker(op);
+
+        return header.phased_in ? new PhasedPacker(op) : new Packer(true, op);
+    }
+
+    protected int begin(LzOutput op, Packer pk) {
+
+        if (status != NOERROR)
+            return status;
+
+        pk.reset();
+
+        op_bytecount = header.write(op);
+        comp.start(dict, pk);
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Method name: run
+    //
+    // Description:
+    //    Compresses from the configured input to output. The compressor 
+    //    resets the dictionary at the start of the input.
+    //=======================================================================
+
+    private void run() {
+        packer.reset();
+
+        op_bytecount  = header.write(output);
+
+        comp.compress(dict, packer);
+        op_bytecount += comp.output_bytecount();
+    }
+
+    // Compresses to a stream or file channel, returning NOERROR, or 
+    // IO_ERROR if the input or output failed
+    private int run_io() {
+        int io_status;
+
+        run();
+        io_status = io_status("encode", input, output);
+        reset();
+
+        return io_status;
+    }
+
+    // Compresses to an array or ByteBuffer, returning the byte count, or
+    // -1 if it overflowed
+    private int run_block() {
+        boolean overflow;
+
+        run();
+        overflow = output.overflowed();
+        reset();
+
+        return overflow ? -1 : (int)op_bytecount;
+    }
+}
@@ -0,0 +1,275 @@
+//=======================================================================
+//
+// LzwInputStream.java                                   date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwInputStream class is an input stream filter which decompresses
+// a compressed stream (as produced by the Lzw compressor) read from the
+// underlying input stream.
+//
+// The compressed stream is read a block at a time, and decompressed
+// into an output block, from which reads are copied in whole chunks.
+// The output block is refilled with at least IOBLOCKSIZE bytes (or up
+// to the end of the stream) each time it's emptied. It has room for a
+// string past that, and is made bigger only as the strings met get
+// longer, so a stream with a large codeword length doesn't need a 
+// block for the longest string it could have.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+
+public class LzwInputStream extends FilterInputStream {
+
+    private LzwDecoder decoder;
+
+    // Compressed input block
+    private byte[] ip_block;
+
+    // Decompressed output block, and the next byte to read from it
+    private byte[] op_block;
+    private int    op_pos;
+    private int    op_count;
+
+    private boolean started;
+    private boolean at_eof;
+    private boolean closed;
+    private boolean failed;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzwInputStream(InputStream in) {
+        this(in, new LzwDecoder());
+    }
+
+    // A trained dictionary is needed to read streams compressed with it
+    public LzwInputStream(InputStream in, DictFile dictfile) {
+        this(in, new LzwDecoder(dictfile));
+    }
+
+    // The decoder (e.g. from an LzwPool) is used by the stream until it's
+    // closed
+    public LzwInputStream(InputStream in, LzwDecoder dec) {
+        super(in);
+
+        decoder  = dec;
+        ip_block = new byte[LzConsts.IOBLOCKSIZE];
+        op_block = new byte[0];
+    }
+
+    //=======================================================================
+    // Method name: read
+    //
+    // Description:
+    //    Reads up to len decompressed bytes into b[off], returning the 
+    //    number read, or -1 at the end of the stream.
+    //=======================================================================
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+
+        int count;
+
+        check_open();
+
+        if ((off | len | (b.length - off - len)) < 0)
+            throw new IndexOutOfBoundsException();
+
+        if (len == 0)
+            return 0;
+
+        if (op_pos == op_count && !fill())
+            return -1;
+
+        count = Math.min(len, op_count - op_pos);
+        System.arraycopy(op_block, op_pos, b, off, count);
+        op_pos += count;
+
+        return count;
+    }
+
+    @Override
+    public int read() throws IOException {
+
+        check_open();
+
+        if (op_pos == op_count && !fill())
+            return -1;
+
+        return op_block[op_pos++] & LzConsts.BYTEMASK;
+    }
+
+    //=======================================================================
+    // Method name: skip
+    //
+    // Description:
+    //    Skips up to n decompressed bytes, returning the number skipped.
+    //=======================================================================
+
+    @Override
+    public long skip(long n) throws IOException {
+
+        long skipped = 0;
+        int  count;
+
+        check_open();
+
+        while (skipped < n && (op_pos < op_count || fill())) {
+            count    = (int)Math.min(n - skipped, op_count - op_pos);
+            op_pos  += count;
+            skipped += count;
+        }
+
+        return skipped;
+    }
+
+    // Bytes which can be read without blocking, from the output block
+    @Override
+    public int available() throws IOException {
+        check_open();
+        return op_count - op_pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public synchronized void mark(int readlimit) {
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("mark/reset not supported");
+    }
+
+    //=======================================================================
+    // Method name: close
+    //
+    // Description:
+    //    Closes the stream, and the underlying stream.
+    //=======================================================================
+
+    @Override
+    public void close() throws IOException {
+
+        if (closed)
+            return;
+
+        closed = true;
+        decoder.reset();
+        in.close();
+    }
+
+    //=======================================================================
+    // Method name: fill
+    //
+    // Description:
+    //    Refills the output block, reading compressed blocks as needed. 
+    //    Returns false at the end of the stream.
+    //=======================================================================
+
+    private boolean fill() throws IOException {
+
+        int len;
+
+        if (!started)
+            start();
+
+        decoder.rewind_output();
+        op_pos   = 0;
+        op_count = 0;
+
+        while (!at_eof) {
+
+            size_output_block();
+            check_status(decoder.decompress_block(LzConsts.IOBLOCKSIZE));
+
+            if ((op_count = decoder.output_count()) > 0)
+                return true;
+
+            // The compressed block is used up
+            if ((len = in.read(ip_block, 0, ip_block.length)) < 0)
+                at_eof = true;
+            else
+                decoder.feed(ip_block, 0, len);
+        }
+
+        return false;
+    }
+
+    //=======================================================================
+    // Method name: start
+    //
+    // Description:
+    //    Reads enough of the stream for the whole header, and configures
+    //    the decoder from it. Only the header's bytes are waited for, as a
+    //    short sync flushed message may be all that has been sent.
+    //=======================================================================
+
+    private void start() throws IOException {
+
+        int count = 0;
+        int len;
+
+        started = true;
+
+        while (count < Header.size(ip_block, count) &&
+               (len = in.read(ip_block, count, ip_block.length - count)) >= 0)
+            count += len;
+
+        check_status(decoder.begin(ip_block, 0, count));
+        decoder.start(op_block);
+    }
+
+    // Makes the (empty) output block bigger if a block and the longest 
+    // string the decoder could now output won't fit, with a block's worth
+    // of headroom for the strings
+    private void size_output_block() {
+        if (op_block.length < decoder.output_space(LzConsts.IOBLOCKSIZE, 0)) {
+            op_block = new byte[decoder.output_space(LzConsts.IOBLOCKSIZE, LzConsts.IOBLOCKSIZE)];
+            decoder.set_output_block(op_block);
+        }
+    }
+
+    // A bad stream can't be read any further
+    private void check_status(int status) throws IOException {
+        if (status != LzConsts.NOERROR) {
+            failed = true;
+            throw new IOException("bad LZW stream (error " + status + ")");
+        }
+    }
+
+    private void check_open() throws IOException {
+        if (closed)
+            throw new IOException("LZW stream closed");
+
+        if (failed)
+            throw new IOException("bad LZW stream");
+    }
+}
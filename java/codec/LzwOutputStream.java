@@ -0,0 +1,370 @@
+//=======================================================================
+//
+// LzwOutputStream.java                                  date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwOutputStream class is an output stream filter which compresses
+// the data written to it, writing the compressed stream (as produced by
+// the Lzw compressor) to the underlying output stream. 
+//
+// Written arrays are compressed in place, a block at a time, with the
+// codewords packed into an output block which is written to the
+// underlying stream when it could otherwise fill. As LZW codewords
+// don't end on byte boundaries, flush() only writes the whole bytes
+// packed so far; the compressed stream is only complete once finish()
+// or close() is called.
+//
+// With sync flush enabled, flush() (or sync_flush()) instead sends a 
+// FLUSH codeword padded to a byte boundary, so that the reader can
+// decompress all the data written so far, and the stream carries on,
+// with its dictionary, afterwards. For streaming over sockets and pipes,
+// a flush timeout can be set, so that data written is flushed within 
+// the timeout even if the writer doesn't call flush(). The latency, from
+// the first byte written after a flush until its compressed bytes have
+// been written and flushed to the sink (the underlying stream), is 
+// measured for each sync flush, with the count, mean and maximum 
+// returned by flush_count(), mean_flush_latency() and 
+// max_flush_latency(). A slow or blocking sink adds to the latency.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.util.*;
+
+public class LzwOutputStream extends FilterOutputStream {
+
+    private LzwEncoder encoder;
+
+    // Output block, and the number of bytes in it at which it's written
+    // (leaving space for the output of another input block)
+    private byte[] op_block;
+    private int    op_threshold;
+
+    private byte[]  single = new byte[1];
+    private boolean finished;
+
+    // Sync flush state: whether data has been written since the last
+    // flush (and when), the flush timeout timer (if any), and an error
+    // from a timed flush, to be thrown to the writer
+    private boolean     sync_enable;
+    private boolean     pending;
+    private long        pending_time;
+    private long        flush_timeout;
+    private Timer       timer;
+    private IOException timer_error;
+
+    // Sync flush latency stats, in nanoseconds
+    private long flush_count;
+    private long total_latency;
+    private long max_latency;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzwOutputStream(OutputStream out) {
+        this(out, new LzwEncoder());
+    }
+
+    public LzwOutputStream(OutputStream out, int maxcwlen, int policy) {
+        this(out, new LzwEncoder(maxcwlen, policy));
+    }
+
+    // With syncflush set, flush() does a sync flush
+    public LzwOutputStream(OutputStream out, int maxcwlen, int policy, boolean syncflush) {
+        this(out, sync_encoder(new LzwEncoder(maxcwlen, policy), syncflush));
+    }
+
+    // The encoder (e.g. from an LzwPool) is used by the stream until it's
+    // finished or closed. Sync flushes are enabled if the encoder has
+    // them enabled.
+    public LzwOutputStream(OutputStream out, LzwEncoder enc) {
+        super(out);
+
+        encoder      = enc;
+        sync_enable  = encoder.sync_flush_enabled();
+        op_threshold = encoder.compress_bound(LzConsts.IOBLOCKSIZE);
+        op_block     = new byte[2 * op_threshold];
+
+        if (encoder.begin(op_block) != LzConsts.NOERROR)
+            throw new IllegalArgumentException("LZW encoder not configured");
+    }
+
+    //=======================================================================
+    // Method name: write
+    //
+    // Description:
+    //    Compresses len bytes from b[off], in blocks of up to IOBLOCKSIZE
+    //    bytes.
+    //=======================================================================
+
+    @Override
+    public synchronized void write(byte[] b, int off, int len) throws IOException {
+
+        int block_len;
+
+        check_open();
+
+        if ((off | len | (b.length - off - len)) < 0)
+            throw new IndexOutOfBoundsException();
+
+        if (len > 0 && sync_enable && !pending)
+            start_pending();
+
+        while (len > 0) {
+            block_len = Math.min(len, LzConsts.IOBLOCKSIZE);
+
+            encoder.compress_block(b, off, block_len);
+
+            if (encoder.output_count() >= op_threshold)
+                write_block();
+
+            off += block_len;
+            len -= block_len;
+        }
+    }
+
+    @Override
+    public synchronized void write(int b) throws IOException {
+        single[0] = (byte)b;
+        write(single, 0, 1);
+    }
+
+    //=======================================================================
+    // Method name: flush
+    //
+    // Description:
+    //    Writes the compressed bytes completed so far, and flushes the 
+    //    underlying stream. Without sync flush enabled, bits of codewords
+    //    not yet making a whole byte are held back until more data is 
+    //    written, or the stream finished.
+    //=======================================================================
+
+    @Override
+    public synchronized void flush() throws IOException {
+
+        if (sync_enable) {
+            sync_flush();
+            return;
+        }
+
+        if (!finished)
+            write_block();
+
+        out.flush();
+    }
+
+    //=======================================================================
+    // Method name: sync_flush
+    //
+    // Description:
+    //    Sends all the data written so far, ending with a FLUSH codeword,
+    //    and flushes the underlying stream. The stream carries on from 
+    //    there, without resetting the dictionary. No FLUSH codeword is
+    //    sent if no data has been written since the last flush.
+    //=======================================================================
+
+    public synchronized void sync_flush() throws IOException {
+
+        long latency;
+
+        check_open();
+
+        if (!sync_enable)
+            throw new IOException("LZW stream has no sync flush");
+
+        // Without new data, only the stream header may be waiting
+        if (!pending) {
+            write_block();
+            out.flush();
+            return;
+        }
+
+        encoder.sync_flush();
+        write_block();
+        out.flush();
+
+        // Timed until the sink has taken the bytes
+        pending        = false;
+        latency        = System.nanoTime() - pending_time;
+        total_latency += latency;
+        max_latency    = Math.max(max_latency, latency);
+        flush_count++;
+    }
+
+    //=======================================================================
+    // Method name: set_flush_timeout
+    //
+    // Description:
+    //    Sets the time, in milliseconds, within which data written is
+    //    sync flushed, if not flushed by then, or 0 for no timeout. A 
+    //    timer thread does the timed flushes.
+    //=======================================================================
+
+    public synchronized void set_flush_timeout(long millis) {
+
+        if (!sync_enable)
+            throw new IllegalStateException("LZW stream has no sync flush");
+
+        if (millis < 0)
+            throw new IllegalArgumentException("negative flush timeout");
+
+        flush_timeout = millis;
+
+        if (timer == null && flush_timeout > 0)
+            timer = new Timer("LzwOutputStream flush", true);
+
+        // Time any data already waiting
+        if (pending && flush_timeout > 0)
+            schedule_flush();
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Number of sync flushes sending data
+    public synchronized long flush_count() {
+        return flush_count;
+    }
+
+    // Mean and maximum time, in nanoseconds, from the first byte written
+    // after a sync flush until the next sync flush has written and flushed
+    // it to the sink
+    public synchronized long mean_flush_latency() {
+        return (flush_count == 0) ? 0 : total_latency / flush_count;
+    }
+
+    public synchronized long max_flush_latency() {
+        return max_latency;
+    }
+
+    //=======================================================================
+    // Method name: finish
+    //
+    // Description:
+    //    Completes the compressed stream, writing it all to the underlying
+    //    stream, without closing it. No more data may be written.
+    //=======================================================================
+
+    public synchronized void finish() throws IOException {
+
+        if (finished)
+            return;
+
+        finished = true;
+
+        if (timer != null)
+            timer.cancel();
+
+        encoder.end();
+        write_block();
+        encoder.reset();
+    }
+
+    //=======================================================================
+    // Method name: close
+    //
+    // Description:
+    //    Finishes the compressed stream, and closes the underlying stream.
+    //=======================================================================
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private void write_block() throws IOException {
+        out.write(op_block, 0, encoder.output_count());
+        encoder.rewind_output();
+    }
+
+    private void check_open() throws IOException {
+        IOException error = timer_error;
+
+        if (finished)
+            throw new IOException("LZW stream finished");
+
+        if (error != null) {
+            timer_error = null;
+            throw error;
+        }
+    }
+
+    // Marks data as written since the last flush, timing it from now
+    private void start_pending() {
+        pending      = true;
+        pending_time = System.nanoTime();
+
+        if (flush_timeout > 0)
+            schedule_flush();
+    }
+
+    // Schedules a sync flush for when the pending data's timeout expires
+    private void schedule_flush() {
+
+        long delay = flush_timeout - (System.nanoTime() - pending_time) / 1000000;
+
+        timer.schedule(new TimerTask() {
+            public void run() {
+                timed_flush();
+            }
+        }, Math.max(delay, 0));
+    }
+
+    // Run by the timer. The data may have been flushed since the flush 
+    // was scheduled, and newer data may not yet be due (as the timer
+    // runs on the system clock), in which case it's rescheduled. An 
+    // error is kept for the writer's next call.
+    private synchronized void timed_flush() {
+
+        if (finished || !pending || timer_error != null || flush_timeout == 0)
+            return;
+
+        if (System.nanoTime() - pending_time < flush_timeout * 1000000) {
+            schedule_flush();
+            return;
+        }
+
+        try {
+            sync_flush();
+        } catch (IOException e) {
+            timer_error = e;
+        }
+    }
+
+    private static LzwEncoder sync_encoder(LzwEncoder enc, boolean syncflush) {
+        enc.set_sync_flush(syncflush);
+        return enc;
+    }
+}
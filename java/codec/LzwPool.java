@@ -0,0 +1,143 @@
+//=======================================================================
+//
+// LzwPool.java                                          date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwPool class is a thread safe pool of encoders and decoders, all
+// with the same configuration, for services compressing or
+// decompressing from many worker threads. A worker acquires an engine,
+// uses it for one or more inputs, and releases it back to the pool. 
+// Engines are created as needed when none are idle, and up to max_idle
+// of each kind are kept for reuse, so that in the steady state no
+// dictionaries or buffers are allocated.
+//
+// The engines are configured as copies of a template encoder and 
+// decoder, so that any encoder settings (range coding, phased in 
+// codewords, maximum string length and sync flush) and the decoder's
+// string cache apply to the pool's engines. The pool keeps its own 
+// copies of the templates, so later changes to them don't affect it.
+// A worker may change an acquired encoder's settings, or give it a seek
+// index, or change an acquired decoder's string cache, for its own 
+// streams: on release, the engine's settings are restored to the 
+// template's, and any index removed.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.concurrent.*;
+
+public class LzwPool extends Lz {
+
+    // Default number of idle engines of each kind kept
+    private static final int DEFAULTMAXIDLE = 16;
+
+    // Engine configuration
+    private LzwEncoder encoder_template;
+    private LzwDecoder decoder_template;
+
+    // Idle engines
+    private ArrayBlockingQueue<LzwEncoder> encoders;
+    private ArrayBlockingQueue<LzwDecoder> decoders;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public LzwPool() {
+        this(DEFAULTMAXIDLE, MAXCWLEN, POLICY_RESET, null);
+    }
+
+    public LzwPool(int maxidle, int maxcwlen, int pol) {
+        this(maxidle, maxcwlen, pol, null);
+    }
+
+    public LzwPool(int maxidle, int maxcwlen, int pol, DictFile df) {
+        this(maxidle, new LzwEncoder(maxcwlen, pol, df), new LzwDecoder(df));
+    }
+
+    public LzwPool(int maxidle, LzwEncoder enc, LzwDecoder dec) {
+        encoder_template = enc.copy();
+        decoder_template = dec.copy();
+        encoders         = new ArrayBlockingQueue<LzwEncoder>(Math.max(maxidle, 1));
+        decoders         = new ArrayBlockingQueue<LzwDecoder>(Math.max(maxidle, 1));
+    }
+
+    //=======================================================================
+    // Method name: acquire_encoder
+    //
+    // Description:
+    //    Returns an idle encoder, or a new one if none are idle.
+    //=======================================================================
+
+    public LzwEncoder acquire_encoder() {
+        LzwEncoder encoder = encoders.poll();
+
+        return (encoder != null) ? encoder : encoder_template.copy();
+    }
+
+    //=======================================================================
+    // Method name: release_encoder
+    //
+    // Description:
+    //    Returns an encoder, acquired from this pool, to the pool, with its
+    //    seek index removed and the template's settings restored. It is 
+    //    dropped if the pool already holds max_idle encoders.
+    //=======================================================================
+
+    public void release_encoder(LzwEncoder encoder) {
+        // The index first, as range coding can't be restored with one
+        encoder.set_index(null);
+        encoder.copy_settings(encoder_template);
+        encoder.reset();
+        encoders.offer(encoder);
+    }
+
+    //=======================================================================
+    // Method name: acquire_decoder
+    //
+    // Description:
+    //    Returns an idle decoder, or a new one if none are idle.
+    //=======================================================================
+
+    public LzwDecoder acquire_decoder() {
+        LzwDecoder decoder = decoders.poll();
+
+        return (decoder != null) ? decoder : decoder_template.copy();
+    }
+
+    //=======================================================================
+    // Method name: release_decoder
+    //
+    // Description:
+    //    Returns a decoder, acquired from this pool, to the pool, with the
+    //    template's string cache size restored. It is dropped if the pool
+    //    already holds max_idle decoders.
+    //=======================================================================
+
+    public void release_decoder(LzwDecoder decoder) {
+        decoder.copy_settings(decoder_template);
+        decoder.reset();
+        decoders.offer(decoder);
+    }
+}
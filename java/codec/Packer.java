@@ -30,6 +30,14 @@
 // The Packer class takes fixed sized codewords, and 'packs' them into 
 // variable length codewords, the size of which is passed in as this is
 // determined by the dictionary.
+//
+// The codewords are packed, lowest bit first, into a 64 bit barrel 
+// shifter, which is output as a whole little endian word when full, 
+// rather than a byte at a time. The bytes returned by pack() are still
+// counted as each byte is completed, as the compressor's ratio 
+// monitoring and seek index depend on them, so only the bits not yet in
+// a whole byte are counted as residue bits. pack_batch() packs an array
+// of codewords in one call, for the pipelined compressor.
 //=======================================================================
 
 package Lzw.codec;
@@ -38,15 +46,15 @@ import java.io.*;
 
 public class Packer extends Lz {
 
-    // Stats & config values
-    private int ip_codeword = NULLCW;
+    // Number of bits in the barrel shifter word
+    private static final int WORDSIZE = Long.SIZE;
 
-    private BufferedOutputStream op_file;
+    private LzOutput output;
 
-    // Barrel shift register used to formulate the output bytes 
+    // Barrel shift register used to formulate the output words 
     private long barrel = 0;
 
-    // The residue count of unflushed bits left on the barrel shifter 
+    // The count of bits on the barrel shifter, not yet output 
     private int residue = 0;
 
     //=======================================================================
@@ -54,11 +62,74 @@ public class Packer extends Lz {
     //=======================================================================
 
     public Packer() {
-        op_file = new BufferedOutputStream(System.out);
+        output = new LzOutput(System.out);
+    }
+
+    public Packer(boolean compmode, OutputStream ofp) {
+        output = new LzOutput(ofp);
+    }
+
+    public Packer(boolean compmode, LzOutput op) {
+        output = op;
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Clears the barrel shifter, ready for a new stream.
+    //=======================================================================
+
+    protected void reset() {
+        barrel  = 0;
+        residue = 0;
+    }
+
+    //=======================================================================
+    // Method name: residue_bits
+    //
+    // Description:
+    //    Returns the number of bits packed, but not yet counted as output
+    //    in a whole byte.
+    //=======================================================================
+
+    protected int residue_bits() {
+        return residue % BYTESIZE;
+    }
+
+    //=======================================================================
+    // Method name: align
+    //
+    // Description:
+    //    Pads the packed bits with zeros to a byte boundary, and flushes
+    //    the output, so that all the codewords packed so far are output
+    //    without ending the stream (for a sync flush). Returns the number
+    //    of bytes output, not already counted.
+    //=======================================================================
+
+    protected int align() {
+
+        int byte_count = (residue % BYTESIZE != 0) ? 1 : 0;
+
+        put_residue();
+
+        output.flush();
+
+        return byte_count;
     }
 
-    public Packer(boolean compmode, BufferedOutputStream ofp) {
-        op_file = ofp;
+    //=======================================================================
+    // Method name: pack
+    //
+    // Description:
+    //    As pack() below, for packers which code a codeword according to
+    //    the number of codewords it may be (codeword_count, the next 
+    //    available codeword), rather than its length. Others ignore the
+    //    count.
+    //=======================================================================
+
+    protected int pack(int ip_codeword, int codeword_length, int codeword_count) {
+        return pack(ip_codeword, codeword_length);
     }
 
     //=======================================================================
@@ -66,36 +137,109 @@ public class Packer extends Lz {
     //                                                                       
     // Description:                                                          
     //    This method packs valid LZW codewords into the appropriate        
-    //    sized packets (ie. 9 to 12 bits). The codeword length is passed
-    //    in as a parameter, as this is managed by the dictionary.
+    //    sized packets (ie. 9 to 24 bits). The codeword length is passed
+    //    in as a parameter, as this is managed by the dictionary. Returns
+    //    the number of bytes completed.
     //=======================================================================
 
     protected int pack(int ip_codeword, int codeword_length) {
 
-        int byte_count = 0;
+        int byte_count;
 
-        // Append codeword to the bottom of the barrel shifter
-        barrel |= ((ip_codeword & CODEWORDMASK) << residue); 
+        // The last (NULL) codeword causes a flush of ALL remaining bits,
+        // with any part byte padded 
+        if (ip_codeword == NULLCW) {
+            byte_count = (residue % BYTESIZE != 0) ? 1 : 0;
 
-        // If not the last (NULL) codeword, increment the number of bits on the
-        // barrel shifter by the current codeword size
-        if (ip_codeword != NULLCW)
-            residue += codeword_length;
+            put_residue();
+            output.flush();
 
-        // While there are sufficient bits, place bytes on the output. 
-        // Normally this is whilst there are whole bytes, but the last (NULL)
-        // codeword causes a flush of ALL remaining bits 
-        while (residue >= ((ip_codeword != NULLCW) ? BYTESIZE : BITSIZE)) {                        
-            putc((byte)(barrel & BYTEMASK), op_file);           
-            byte_count++;                                  
-            barrel >>= BYTESIZE;                          
-            residue -= BYTESIZE;                          
+            return byte_count;
         }
 
-        if (ip_codeword == NULLCW) 
-            flush(op_file);
+        byte_count = (residue + codeword_length) / BYTESIZE - residue / BYTESIZE;
+
+        // Append codeword to the top of the bits on the barrel shifter. 
+        // If the barrel is filled, output it, and start it again with the
+        // codeword bits which didn't fit 
+        barrel  |= (long)ip_codeword << residue;
+        residue += codeword_length;
+
+        if (residue >= WORDSIZE) {
+            output.put_long(barrel);
+            residue -= WORDSIZE;
+            barrel   = (residue != 0) ? (long)ip_codeword >>> (codeword_length - residue) : 0;
+        }
 
-        // Return number of bytes output
+        // Return number of bytes completed
         return byte_count;
     }
+
+    //=======================================================================
+    // Method name: pack_batch
+    //                                                                       
+    // Description:                                                          
+    //    Packs num codewords, with their lengths, from the arrays, as 
+    //    pack() on each in turn. The barrel shifter is kept in locals over
+    //    the batch. Returns the number of bytes completed.
+    //=======================================================================
+
+    protected int pack_batch(int[] codewords, int[] lengths, int num) {
+
+        long bar  = barrel;
+        int  res  = residue;
+        int  codeword, len;
+
+        // Bits packed since the last whole byte counted, from which the
+        // bytes completed are counted at the end (or a flush)
+        long bits       = res;
+        int  byte_count = -(res / BYTESIZE);
+
+        for (int idx = 0; idx < num; idx++) {
+
+            codeword = codewords[idx];
+            len      = lengths[idx];
+
+            // Hand the last (NULL) codeword to pack(), with the state so far
+            if (codeword == NULLCW) {
+                barrel      = bar;
+                residue     = res;
+                byte_count += (int)(bits / BYTESIZE) + pack(NULLCW, len);
+                bar         = barrel;
+                res         = residue;
+                bits        = 0;
+                continue;
+            }
+
+            bar  |= (long)codeword << res;
+            res  += len;
+            bits += len;
+
+            if (res >= WORDSIZE) {
+                output.put_long(bar);
+                res -= WORDSIZE;
+                bar  = (res != 0) ? (long)codeword >>> (len - res) : 0;
+            }
+        }
+
+        barrel  = bar;
+        residue = res;
+
+        return byte_count + (int)(bits / BYTESIZE);
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Outputs the bits left on the barrel shifter, as whole bytes
+    private void put_residue() {
+        for (; residue > 0; residue -= BYTESIZE) {
+            output.put((byte)barrel);
+            barrel >>>= BYTESIZE;
+        }
+
+        barrel  = 0;
+        residue = 0;
+    }
 }
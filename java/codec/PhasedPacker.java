@@ -0,0 +1,88 @@
+//=======================================================================
+//
+// PhasedPacker.java                                     date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The PhasedPacker class packs codewords with a phased in (truncated
+// binary) code, for streams with phased in codewords flagged in the 
+// header. When the dictionary has n codewords (from 0 to n-1) and the 
+// codeword length is k bits, the top 2^k - n values of a k bit codeword
+// can't be used, so that many codewords are packed in k-1 bits instead,
+// saving up to a bit a codeword while the dictionary fills (and nothing
+// once it's full, at a power of 2).
+//
+// With u = 2^k - n, and packing LSB first, a codeword v is packed as:
+//
+//    v < u           : v, in k-1 bits
+//    u <= v < 2^(k-1): v, in k bits
+//    v >= 2^(k-1)    : v + u, in k bits
+//
+// so that the unpacker can tell from the first k-1 bits (at least u for
+// a k bit codeword) whether there is another bit, and the k bit values
+// are all distinct. The count of codewords is the compressor's next 
+// available codeword, which the decompressor (one build behind) also
+// works out.
+//=======================================================================
+
+package Lzw.codec;
+
+public class PhasedPacker extends Packer {
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public PhasedPacker(LzOutput op) {
+        super(true, op);
+    }
+
+    //=======================================================================
+    // Method name: pack
+    //
+    // Description:
+    //    Packs a codeword, one of codeword_count, with the phased in code,
+    //    returning the number of bytes output. EOFFLUSH outputs the bits
+    //    left, padded to a whole byte.
+    //=======================================================================
+
+    @Override
+    protected int pack(int ip_codeword, int codeword_length, int codeword_count) {
+
+        int len, unused;
+
+        if (ip_codeword == EOFFLUSH)
+            return pack(EOFFLUSH, codeword_length);
+
+        len    = Integer.SIZE - Integer.numberOfLeadingZeros(codeword_count - 1);
+        unused = (1 << len) - codeword_count;
+
+        if (ip_codeword < unused)
+            return pack(ip_codeword, len - 1);
+
+        if (ip_codeword < (1 << (len - 1)))
+            return pack(ip_codeword, len);
+
+        return pack(ip_codeword + unused, len);
+    }
+}
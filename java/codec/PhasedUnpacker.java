@@ -0,0 +1,111 @@
+//=======================================================================
+//
+// PhasedUnpacker.java                                   date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The PhasedUnpacker class unpacks phased in codewords (see 
+// PhasedPacker.java). The codeword's bits are taken off the barrel
+// shifter in one go, once there are enough: the first k-1 bits give a
+// short codeword if below u, and otherwise the k bits are the codeword
+// (less u, if its top bit is set). No bits are taken until the codeword
+// is complete, so unpacking carries on if the input is given more 
+// bytes, as for Unpacker, whose barrel shifter (and its reset, skip and
+// align) is used.
+//=======================================================================
+
+package Lzw.codec;
+
+public class PhasedUnpacker extends Unpacker {
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public PhasedUnpacker(LzInput ip) {
+        super(false, ip);
+    }
+
+    //=======================================================================
+    // Method name: unpack
+    //
+    // Description:
+    //    Unpacks a codeword, one of codeword_count, returning the number
+    //    of bytes input for it, or 0 if the input ran out first.
+    //=======================================================================
+
+    @Override
+    protected int unpack(IntRef codeword, int codeword_length, int codeword_count) {
+
+        int len    = Integer.SIZE - Integer.numberOfLeadingZeros(codeword_count - 1);
+        int unused = (1 << len) - codeword_count;
+        int value, byte_count;
+
+        if (!fill(len - 1))
+            return 0;
+
+        // A short codeword, or a long one needing its last bit
+        if ((value = (int)barrel & ((1 << (len - 1)) - 1)) < unused) {
+            len--;
+        } else {
+            if (!fill(len))
+                return 0;
+
+            if ((value = (int)barrel & ((1 << len) - 1)) >= (1 << (len - 1)))
+                value -= unused;
+        }
+
+        barrel  >>= len;
+        currlen  -= len;
+
+        codeword.value = value;
+
+        byte_count    = partial_count;
+        partial_count = 0;
+
+        return byte_count;
+    }
+
+    // Puts bytes on the barrel shifter until it has nbits, returning false
+    // if the input runs out first
+    private boolean fill(int nbits) {
+        int ipbyte;
+
+        while (currlen < nbits) {
+            if ((ipbyte = input.get()) == -1)
+                return false;
+
+            partial_count++;
+            barrel  |= (long)ipbyte << currlen;
+            currlen += BYTESIZE;
+        }
+
+        return true;
+    }
+
+    // Codewords aren't unpacked by length alone, so not in batches
+    @Override
+    protected boolean batch_unpacking() {
+        return false;
+    }
+}
@@ -0,0 +1,328 @@
+//=======================================================================
+//
+// PipeComp.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The PipeComp class compresses a single stream with a three stage
+// pipeline, so that reading the input, the LZW matching and the packing
+// and writing of the output overlap, on separate threads:
+//
+//    reader (calling thread) : reads the input into chunks
+//    compressor thread       : runs Comp over the chunks, collecting the
+//                              codewords in batches
+//    packer thread           : packs the batches of codewords, and writes
+//                              the output
+//
+// The stages are connected by SpscRings, with the chunks and batches
+// passed back on a second ring for reuse, so a fixed number of each is
+// allocated. Unlike FrameComp, the stream is compressed with one
+// dictionary, by an encoder with the configuration wanted (.Z format, 
+// range coding, phased in codewords, maximum string length, trained
+// dictionary or seek index), so the output is identical to the encoder's.
+// If a stage fails, the rings are aborted, so that the other stages stop
+// rather than wait for it.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+
+public class PipeComp extends Lz {
+
+    // Number of chunks and batches in the pipeline, and batch size
+    private static final int NUMCHUNKS  = 4;
+    private static final int NUMBATCHES = 4;
+    private static final int BATCHSIZE  = 0x4000;
+
+    // A chunk of input (a negative length marks the end of the input)
+    private static class Chunk {
+        byte[] data = new byte[IOBLOCKSIZE];
+        int    len;
+    }
+
+    // A batch of codewords, with their lengths, and the number of 
+    // codewords each may be (for phased in codewords)
+    private static class CodewordBatch {
+        int[]   codewords = new int[BATCHSIZE];
+        int[]   lengths   = new int[BATCHSIZE];
+        int[]   counts    = new int[BATCHSIZE];
+        int     count;
+    }
+
+    // Codec objects
+    private LzwEncoder  encoder;
+    private BatchPacker batcher;
+    private Packer      packer;
+    private LzOutput    output;
+    private int         status;
+
+    // First failure of a stage, if any
+    private Throwable   stage_error;
+
+    // Pipeline rings
+    private SpscRing<Chunk>         full_chunks  = new SpscRing<Chunk>(NUMCHUNKS);
+    private SpscRing<Chunk>         free_chunks  = new SpscRing<Chunk>(NUMCHUNKS);
+    private SpscRing<CodewordBatch> full_batches = new SpscRing<CodewordBatch>(NUMBATCHES);
+    private SpscRing<CodewordBatch> free_batches = new SpscRing<CodewordBatch>(NUMBATCHES);
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public PipeComp(int maxcwlen, int policy) {
+        this(maxcwlen, policy, null);
+    }
+
+    public PipeComp(int maxcwlen, int policy, DictFile dictfile) {
+        this(new LzwEncoder(maxcwlen, policy, dictfile));
+    }
+
+    // The stream is compressed by the encoder (which fills its seek index,
+    // if it has one), so it mustn't be used elsewhere until compress() 
+    // returns
+    public PipeComp(LzwEncoder enc) {
+
+        encoder = enc;
+        output  = new LzOutput();
+        status  = encoder.status();
+
+        if (status != NOERROR)
+            return;
+
+        packer  = encoder.new_packer(output);
+        batcher = new BatchPacker((packer.getClass() == Packer.class) ? null : 
+                                  encoder.new_packer(new LzOutput(OutputStream.nullOutputStream())));
+
+        for (int idx = 0; idx < NUMCHUNKS; idx++)
+            free_chunks.put(new Chunk());
+
+        for (int idx = 0; idx < NUMBATCHES; idx++)
+            free_batches.put(new CodewordBatch());
+    }
+
+    //=======================================================================
+    // Method name: compress
+    //
+    // Description:
+    //    Compresses the input stream until its end, writing the header and
+    //    codewords to the output stream, which is flushed but not closed.
+    //    Returns NOERROR, the configuration error, PACKER_ERROR if a stage
+    //    failed (after which the compressor can't be used again), or 
+    //    IO_ERROR if reading or writing failed.
+    //=======================================================================
+
+    public int compress(InputStream ip_file, OutputStream op_file) {
+
+        Thread comp_thread, pack_thread;
+
+        if (status != NOERROR)
+            return status;
+
+        clear_io_error();
+        output.set_output(op_file);
+        packer.reset();
+        encoder.begin(output, batcher);
+
+        comp_thread = start_stage(this::comp_stage, "lzw-comp");
+        pack_thread = start_stage(this::pack_stage, "lzw-pack");
+
+        run_stage(() -> read_stage(ip_file));
+
+        try {
+            comp_thread.join();
+            pack_thread.join();
+        } catch (InterruptedException e) {
+            stop(e);
+        }
+
+        if (stage_error != null) {
+            System.out.format("***compress: Error --- PIPELINE FAILED (%s)\n", stage_error);
+            status = PACKER_ERROR;
+            return status;
+        }
+
+        return io_status("compress", this, output);
+    }
+
+    //=======================================================================
+    // Pipeline stages
+    //=======================================================================
+
+    // Reads the input into chunks, ending with a chunk marking the end
+    private void read_stage(InputStream ip_file) {
+        Chunk chunk;
+
+        do {
+            chunk     = free_chunks.take();
+            chunk.len = read_block(ip_file, chunk.data, 0, chunk.data.length);
+            full_chunks.put(chunk);
+        } while (chunk.len >= 0);
+    }
+
+    // Compresses the chunks, with the codewords collected by the batcher
+    private void comp_stage() {
+        Chunk chunk;
+
+        while ((chunk = full_chunks.take()).len >= 0) {
+            encoder.compress_block(chunk.data, 0, chunk.len);
+            free_chunks.put(chunk);
+        }
+
+        free_chunks.put(chunk);
+        encoder.end();
+    }
+
+    // Packs the batches of codewords, until the end of stream flush
+    private void pack_stage() {
+        CodewordBatch batch;
+        boolean       last;
+
+        do {
+            batch = full_batches.take();
+            last  = (batch.count > 0 && batch.codewords[batch.count-1] == EOFFLUSH);
+
+            // Bit packed codewords are packed as a batch, and others one at a
+            // time, with the number of codewords each may be
+            if (packer.getClass() == Packer.class)
+                packer.pack_batch(batch.codewords, batch.lengths, batch.count);
+            else
+                for (int idx = 0; idx < batch.count; idx++)
+                    packer.pack(batch.codewords[idx], batch.lengths[idx], batch.counts[idx]);
+
+            free_batches.put(batch);
+        } while (!last);
+    }
+
+    // Starts a stage thread
+    private Thread start_stage(Runnable stage, String name) {
+        Thread thread = new Thread(() -> run_stage(stage), name);
+
+        thread.start();
+
+        return thread;
+    }
+
+    // Runs a stage, stopping the pipeline if it fails, as the other 
+    // stages would otherwise wait on it indefinitely
+    private void run_stage(Runnable stage) {
+        try {
+            stage.run();
+        } catch (RuntimeException | Error e) {
+            stop(e);
+        }
+    }
+
+    // Aborts the rings, keeping the first failure (the others being the
+    // stages stopped by the abort)
+    private synchronized void stop(Throwable e) {
+        if (stage_error == null)
+            stage_error = e;
+
+        full_chunks.abort();
+        free_chunks.abort();
+        full_batches.abort();
+        free_batches.abort();
+    }
+
+    //=======================================================================
+    // The BatchPacker class stands in for the packer in the compressor 
+    // thread, collecting the codewords in batches for the packer thread.
+    // It returns the number of bytes the packer will output for each 
+    // codeword, and the bits left over, as the compressor's ratio 
+    // monitoring and seek index depend on them. These are counted for
+    // bit packed codewords, and otherwise by a packer of the same kind
+    // writing to no output (so range coding is done twice).
+    //=======================================================================
+
+    private class BatchPacker extends Packer {
+
+        private CodewordBatch batch;
+
+        // Packer counting the bytes, if the codewords aren't bit packed
+        private Packer counter;
+
+        // Number of bits packed, but not yet output as a whole byte
+        private int residue;
+
+        public BatchPacker(Packer pk) {
+            super(true, (LzOutput)null);
+
+            counter = pk;
+        }
+
+        @Override
+        protected void reset() {
+            residue = 0;
+
+            if (counter != null)
+                counter.reset();
+        }
+
+        @Override
+        protected int residue_bits() {
+            return (counter != null) ? counter.residue_bits() : residue;
+        }
+
+        @Override
+        protected int pack(int ip_codeword, int codeword_length) {
+            return pack(ip_codeword, codeword_length, 0);
+        }
+
+        @Override
+        protected int pack(int ip_codeword, int codeword_length, int codeword_count) {
+
+            int byte_count;
+
+            if (batch == null) {
+                batch       = free_batches.take();
+                batch.count = 0;
+            }
+
+            batch.codewords[batch.count] = ip_codeword;
+            batch.lengths[batch.count]   = codeword_length;
+            batch.counts[batch.count]    = codeword_count;
+            batch.count++;
+
+            // Count the bytes as the packer counts them
+            if (counter != null) {
+                byte_count  = counter.pack(ip_codeword, codeword_length, codeword_count);
+            } else if (ip_codeword != EOFFLUSH) {
+                residue    += codeword_length;
+                byte_count  = residue / BYTESIZE;
+                residue    %= BYTESIZE;
+            } else {
+                byte_count  = (residue + BYTESIZE - 1) / BYTESIZE;
+                residue     = 0;
+            }
+
+            // Send the batch when full, or at the end of the stream
+            if (batch.count == BATCHSIZE || ip_codeword == EOFFLUSH) {
+                full_batches.put(batch);
+                batch = null;
+            }
+
+            return byte_count;
+        }
+    }
+}
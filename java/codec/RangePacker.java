@@ -0,0 +1,274 @@
+//=======================================================================
+//
+// RangePacker.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The RangePacker class entropy codes the codewords with an adaptive
+// binary range coder, in place of packing them at a flat codeword
+// length, for streams with range coding flagged in the header. Codeword
+// frequencies are skewed (towards roots, and the entries most useful for
+// the data), which flat packing doesn't make use of.
+//
+// Each codeword is coded a bit at a time, MSB first, down a binary tree
+// of adaptive bit probabilities, so a codeword's cost follows how often
+// its value (or values sharing its top bits) has been seen. There is a
+// tree for each codeword length, for the top TREEBITS bits, and a second
+// for any bits below those (of codewords longer than TREEBITS). Before
+// each codeword, a flag bit (almost always 0) codes whether the stream 
+// ends there, as a range coded stream can't end where the input does.
+//
+// The range coder is the LZMA one: 11 bit probabilities, adapted by a
+// 1/32 of the error after each bit, with a 32 bit range and low value
+// and byte wise carry propagation. A sync flush ends the range coder's
+// output after the FLUSH codeword (in 5 bytes), and restarts it, with
+// the probabilities kept.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.Arrays;
+
+public class RangePacker extends Packer {
+
+    // Range coder constants
+    protected static final int PROBBITS  = 11;
+    protected static final int PROBINIT  = (1 << PROBBITS) / 2;
+    protected static final int MOVEBITS  = 5;
+    protected static final int TOPVALUE  = 1 << 24;
+    protected static final int FLUSHBYTES = 5;
+
+    // Codeword bits coded with the top bits tree
+    protected static final int TREEBITS  = 12;
+
+    private LzOutput output;
+
+    // Range coder state: the low end of the range (with a carry bit), the
+    // range, and the byte held back (with cache_size-1 0xff bytes) in case
+    // of a carry
+    private long low;
+    private int  range;
+    private int  cache;
+    private long cache_size;
+
+    // Adaptive bit probabilities (of a 0): the end flag, and the top and 
+    // bottom bits trees for each codeword length (allocated when first
+    // used)
+    private short[]   end_prob  = new short[1];
+    private short[][] top_probs = new short[MAXCWLENLIMIT+1][];
+    private short[][] bot_probs = new short[MAXCWLENLIMIT+1][];
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public RangePacker(LzOutput op) {
+        super(true, op);
+
+        output = op;
+
+        reset();
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Restarts the range coder, and returns the probabilities to even,
+    //    ready for a new stream.
+    //=======================================================================
+
+    @Override
+    protected void reset() {
+
+        restart();
+
+        end_prob[0] = PROBINIT;
+
+        for (int len = MINCWLEN; len <= MAXCWLENLIMIT; len++) {
+            if (top_probs[len] != null) {
+                Arrays.fill(top_probs[len], (short)PROBINIT);
+                Arrays.fill(bot_probs[len], (short)PROBINIT);
+            }
+        }
+    }
+
+    // A range coded stream has no bit positions to restart from
+    @Override
+    protected int residue_bits() {
+        return 0;
+    }
+
+    //=======================================================================
+    // Method name: pack
+    //
+    // Description:
+    //    Codes a codeword of the specified length, returning the number of
+    //    bytes output. EOFFLUSH codes the end flag, and flushes the range
+    //    coder.
+    //=======================================================================
+
+    @Override
+    protected int pack(int ip_codeword, int codeword_length) {
+
+        int byte_count;
+        int top_len, bot_len;
+
+        if (ip_codeword == EOFFLUSH) {
+            byte_count = encode_bit(end_prob, 0, 1) + flush_coder();
+            output.flush();
+
+            return byte_count;
+        }
+
+        top_len = Math.min(codeword_length, TREEBITS);
+        bot_len = codeword_length - top_len;
+
+        if (top_probs[codeword_length] == null) {
+            top_probs[codeword_length] = new_probs(top_len);
+            bot_probs[codeword_length] = new_probs(bot_len);
+        }
+
+        byte_count  = encode_bit(end_prob, 0, 0);
+        byte_count += encode_tree(top_probs[codeword_length], top_len, ip_codeword >>> bot_len);
+        byte_count += encode_tree(bot_probs[codeword_length], bot_len, ip_codeword & ((1 << bot_len) - 1));
+
+        return byte_count;
+    }
+
+    //=======================================================================
+    // Method name: align
+    //
+    // Description:
+    //    Flushes the range coder, so that the codewords coded so far can 
+    //    be decoded, and restarts it for the rest of the stream. Returns
+    //    the number of bytes output.
+    //=======================================================================
+
+    @Override
+    protected int align() {
+
+        int byte_count = flush_coder();
+
+        restart();
+        output.flush();
+
+        return byte_count;
+    }
+
+    //=======================================================================
+    // Internal range coder methods
+    //=======================================================================
+
+    // Codes the value's len bits, MSB first, down a tree of probabilities,
+    // indexed by the bits so far, with a leading 1
+    private int encode_tree(short[] probs, int len, int value) {
+        int byte_count = 0;
+        int node = 1;
+        int bit;
+
+        for (int idx = len-1; idx >= 0; idx--) {
+            bit         = (value >>> idx) & 1;
+            byte_count += encode_bit(probs, node, bit);
+            node        = (node << 1) | bit;
+        }
+
+        return byte_count;
+    }
+
+    // Codes a bit with the probability probs[idx], and adapts it
+    private int encode_bit(short[] probs, int idx, int bit) {
+        int byte_count = 0;
+        int prob       = probs[idx];
+        int bound      = (range >>> PROBBITS) * prob;
+
+        if (bit == 0) {
+            range      = bound;
+            probs[idx] = (short)(prob + (((1 << PROBBITS) - prob) >>> MOVEBITS));
+        } else {
+            low       += bound & 0xffffffffL;
+            range     -= bound;
+            probs[idx] = (short)(prob - (prob >>> MOVEBITS));
+        }
+
+        while ((range & ~(TOPVALUE - 1)) == 0) {
+            range     <<= BYTESIZE;
+            byte_count += shift_low();
+        }
+
+        return byte_count;
+    }
+
+    // Moves the top byte of low out, holding it back while a carry could
+    // still change it, and returns the number of bytes output
+    private int shift_low() {
+        int byte_count = 0;
+        int carry;
+
+        if (low < 0xff000000L || low > 0xffffffffL) {
+            carry = (int)(low >>> 32);
+
+            output.put((byte)(cache + carry));
+            byte_count++;
+
+            for (; cache_size > 1; cache_size--) {
+                output.put((byte)(BYTEMASK + carry));
+                byte_count++;
+            }
+
+            cache_size = 0;
+            cache      = (int)(low >>> 24) & BYTEMASK;
+        }
+
+        cache_size++;
+        low = (low & 0x00ffffffL) << BYTESIZE;
+
+        return byte_count;
+    }
+
+    private int flush_coder() {
+        int byte_count = 0;
+
+        for (int idx = 0; idx < FLUSHBYTES; idx++)
+            byte_count += shift_low();
+
+        return byte_count;
+    }
+
+    // The first byte output after a restart is always 0 (the decoder 
+    // reads it as part of the 5 bytes it starts with)
+    private void restart() {
+        low        = 0;
+        range      = -1;
+        cache      = 0;
+        cache_size = 1;
+    }
+
+    private static short[] new_probs(int len) {
+        short[] probs = new short[1 << len];
+
+        Arrays.fill(probs, (short)PROBINIT);
+
+        return probs;
+    }
+}
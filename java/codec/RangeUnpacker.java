@@ -0,0 +1,265 @@
+//=======================================================================
+//
+// RangeUnpacker.java                                    date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The RangeUnpacker class decodes the codewords of a range coded stream
+// (see RangePacker.java), keeping the same adaptive probabilities as
+// the packer.
+//
+// So that decoding can carry on when the input is given more bytes, as 
+// for Unpacker, the bytes the range decoder needs (5 to start, and one
+// each time the range is normalised) are taken before the next bit is
+// decoded, and the position within a codeword is kept when the input 
+// runs out part way through it.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.Arrays;
+
+public class RangeUnpacker extends Unpacker {
+
+    // Decoding stages of a codeword
+    private static final int STAGE_END = 0;
+    private static final int STAGE_TOP = 1;
+    private static final int STAGE_BOT = 2;
+
+    // Range decoder state: the range, the code value within it, bytes
+    // still to be taken to (re)start the decoder, and whether a byte is
+    // owed from the last normalisation
+    private int     range;
+    private int     code;
+    private int     start_bytes;
+    private boolean norm_pending;
+
+    // Set once the end flag is decoded
+    private boolean ended;
+
+    // Position within the current codeword: the stage, the tree node and
+    // bits left for the stage, and the top bits decoded
+    private int stage;
+    private int node;
+    private int bits_left;
+    private int top_value;
+
+    // Adaptive bit probabilities, as for RangePacker
+    private short[]   end_prob  = new short[1];
+    private short[][] top_probs = new short[MAXCWLENLIMIT+1][];
+    private short[][] bot_probs = new short[MAXCWLENLIMIT+1][];
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public RangeUnpacker(LzInput ip) {
+        super(false, ip);
+
+        reset();
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Restarts the range decoder, and returns the probabilities to 
+    //    even, ready for a new stream.
+    //=======================================================================
+
+    @Override
+    protected void reset() {
+
+        range         = -1;
+        code          = 0;
+        start_bytes   = RangePacker.FLUSHBYTES;
+        norm_pending  = false;
+        ended         = false;
+        stage         = STAGE_END;
+        partial_count = 0;
+
+        end_prob[0] = RangePacker.PROBINIT;
+
+        for (int len = MINCWLEN; len <= MAXCWLENLIMIT; len++) {
+            if (top_probs[len] != null) {
+                Arrays.fill(top_probs[len], (short)RangePacker.PROBINIT);
+                Arrays.fill(bot_probs[len], (short)RangePacker.PROBINIT);
+            }
+        }
+    }
+
+    //=======================================================================
+    // Method name: align
+    //
+    // Description:
+    //    Restarts the range decoder after a FLUSH codeword, as the packer
+    //    flushed and restarted its coder. A byte still owed from the last
+    //    normalisation is taken with the restart bytes (and shifted out of
+    //    the code).
+    //=======================================================================
+
+    @Override
+    protected void align() {
+        range        = -1;
+        start_bytes  = RangePacker.FLUSHBYTES + (norm_pending ? 1 : 0);
+        norm_pending = false;
+    }
+
+    //=======================================================================
+    // Method name: unpack
+    //
+    // Description:
+    //    Decodes a codeword of the specified length, returning the number
+    //    of bytes input for it (at least 1, as a codeword may need no new
+    //    bytes, but 0 is for no codeword), or 0 if the input ran out 
+    //    first, or the stream has ended.
+    //=======================================================================
+
+    @Override
+    protected int unpack(IntRef codeword, int codeword_length) {
+
+        int byte_count;
+        int top_len = Math.min(codeword_length, RangePacker.TREEBITS);
+        int bot_len = codeword_length - top_len;
+
+        while (!ended) {
+
+            if (!take_bytes())
+                return 0;
+
+            switch (stage) {
+            case STAGE_END:
+                if (decode_bit(end_prob, 0) != 0) {
+                    ended = true;
+                    return 0;
+                }
+
+                if (top_probs[codeword_length] == null) {
+                    top_probs[codeword_length] = new_probs(top_len);
+                    bot_probs[codeword_length] = new_probs(bot_len);
+                }
+
+                stage     = STAGE_TOP;
+                node      = 1;
+                bits_left = top_len;
+                break;
+
+            case STAGE_TOP:
+                node = (node << 1) | decode_bit(top_probs[codeword_length], node);
+
+                if (--bits_left == 0) {
+                    top_value = node - (1 << top_len);
+                    stage     = STAGE_BOT;
+                    node      = 1;
+                    bits_left = bot_len;
+                }
+                break;
+
+            default:
+                node = (node << 1) | decode_bit(bot_probs[codeword_length], node);
+                bits_left--;
+                break;
+            }
+
+            // The codeword is complete once the bottom bits (if any) are 
+            // decoded
+            if (stage == STAGE_BOT && bits_left == 0) {
+                codeword.value = (top_value << bot_len) | (node - (1 << bot_len));
+                stage          = STAGE_END;
+
+                byte_count    = Math.max(partial_count, 1);
+                partial_count = 0;
+
+                return byte_count;
+            }
+        }
+
+        return 0;
+    }
+
+    //=======================================================================
+    // Internal range decoder methods
+    //=======================================================================
+
+    // Takes the bytes owed to the decoder, returning false if the input
+    // runs out first
+    private boolean take_bytes() {
+        int ipbyte;
+
+        while (start_bytes > 0 || norm_pending) {
+            if ((ipbyte = input.get()) == -1)
+                return false;
+
+            partial_count++;
+            code = (code << BYTESIZE) | ipbyte;
+
+            if (start_bytes > 0)
+                start_bytes--;
+            else
+                norm_pending = false;
+        }
+
+        return true;
+    }
+
+    // Decodes a bit with the probability probs[idx], and adapts it. The
+    // range is normalised straight away, with the byte for the code 
+    // taken before the next bit.
+    private int decode_bit(short[] probs, int idx) {
+        int prob  = probs[idx];
+        int bound = (range >>> RangePacker.PROBBITS) * prob;
+        int bit;
+
+        if ((code ^ Integer.MIN_VALUE) < (bound ^ Integer.MIN_VALUE)) {
+            range      = bound;
+            probs[idx] = (short)(prob + (((1 << RangePacker.PROBBITS) - prob) >>> RangePacker.MOVEBITS));
+            bit        = 0;
+        } else {
+            range     -= bound;
+            code      -= bound;
+            probs[idx] = (short)(prob - (prob >>> RangePacker.MOVEBITS));
+            bit        = 1;
+        }
+
+        if ((range & ~(RangePacker.TOPVALUE - 1)) == 0) {
+            range      <<= BYTESIZE;
+            norm_pending = true;
+        }
+
+        return bit;
+    }
+
+    private static short[] new_probs(int len) {
+        short[] probs = new short[1 << len];
+
+        Arrays.fill(probs, (short)RangePacker.PROBINIT);
+
+        return probs;
+    }
+
+    // Codewords aren't unpacked by length alone, so not in batches
+    @Override
+    protected boolean batch_unpacking() {
+        return false;
+    }
+}
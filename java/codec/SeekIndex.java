@@ -0,0 +1,269 @@
+//=======================================================================
+//
+// SeekIndex.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The SeekIndex class holds the restart points of a compressed stream,
+// so that data from the middle of a large stream can be decompressed
+// without decompressing everything before it (see SeekReader.java).
+//
+// A restart point is where the dictionary has just been reset (when it
+// fills in reset mode, or after a CLEAR codeword in ratio mode), as the
+// decompressor can start there with a reset dictionary, as at the start
+// of the stream. Each point records the uncompressed offset of the data
+// that follows, and the bit offset (from the end of the stream header)
+// of the next codeword. Points closer than the index spacing to the last
+// are not recorded. Streams compressed with the freeze or LRU policies
+// are never reset, so their index only has the start of the stream.
+//
+// The index is written to a separate file, so the compressed stream is
+// unchanged. The file layout is:
+//
+//    byte 0-2  : magic number ('L', 'Z', 'X')
+//    byte 3    : format version
+//    byte 4-11 : uncompressed length of the stream (big endian)
+//    byte 12-15: number of points (big endian)
+//    byte 16-  : points, as an 8 byte uncompressed offset and an 8 byte
+//                bit offset (big endian)
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.util.Arrays;
+
+public class SeekIndex extends Lz {
+
+    // File format constants
+    private static final int MAGIC0     = 'L';
+    private static final int MAGIC1     = 'Z';
+    private static final int MAGIC2     = 'X';
+    private static final int VERSION    = 1;
+
+    // Initial number of points allocated
+    private static final int INITPOINTS = 64;
+
+    // Minimum spacing of points
+    private long spacing;
+
+    // Stream length and restart points
+    protected long   length;
+    protected int    num_points;
+    protected long[] uncomp_offsets;
+    protected long[] bit_offsets;
+
+    //=======================================================================
+    // Constructors
+    //=======================================================================
+
+    public SeekIndex() {
+        this(INDEXSPACING);
+    }
+
+    public SeekIndex(long spc) {
+        spacing        = spc;
+        uncomp_offsets = new long[INITPOINTS];
+        bit_offsets    = new long[INITPOINTS];
+    }
+
+    //=======================================================================
+    // Method name: clear
+    //
+    // Description:
+    //    Removes all the points, for a new stream.
+    //=======================================================================
+
+    protected void clear() {
+        length     = 0;
+        num_points = 0;
+    }
+
+    //=======================================================================
+    // Method name: add
+    //
+    // Description:
+    //    Adds a restart point, unless it is within the spacing of the 
+    //    last point added.
+    //=======================================================================
+
+    protected void add(long uncomp_offset, long bit_offset) {
+
+        if (num_points > 0 && uncomp_offset - uncomp_offsets[num_points-1] < spacing)
+            return;
+
+        if (num_points == uncomp_offsets.length) {
+            uncomp_offsets = Arrays.copyOf(uncomp_offsets, num_points << 1);
+            bit_offsets    = Arrays.copyOf(bit_offsets,    num_points << 1);
+        }
+
+        uncomp_offsets[num_points] = uncomp_offset;
+        bit_offsets[num_points]    = bit_offset;
+        num_points++;
+    }
+
+    //=======================================================================
+    // Method name: find
+    //
+    // Description:
+    //    Returns the index of the last point at or before the uncompressed
+    //    offset (the first point is always at offset 0).
+    //=======================================================================
+
+    protected int find(long uncomp_offset) {
+
+        int idx = Arrays.binarySearch(uncomp_offsets, 0, num_points, uncomp_offset);
+
+        return (idx >= 0) ? idx : Math.max(-idx - 2, 0);
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Uncompressed length of the stream
+    public long length() {
+        return length;
+    }
+
+    // Number of restart points
+    public int points() {
+        return num_points;
+    }
+
+    protected void set_length(long len) {
+        length = len;
+    }
+
+    //=======================================================================
+    // Method name: write
+    //
+    // Description:
+    //    Writes the index to the output stream, returning NOERROR, or
+    //    IO_ERROR if writing failed.
+    //=======================================================================
+
+    public int write(BufferedOutputStream op_file) {
+
+        clear_io_error();
+
+        putc((byte)MAGIC0, op_file);
+        putc((byte)MAGIC1, op_file);
+        putc((byte)MAGIC2, op_file);
+        putc((byte)VERSION, op_file);
+        put_long(length, 8, op_file);
+        put_long(num_points, 4, op_file);
+
+        for (int idx = 0; idx < num_points; idx++) {
+            put_long(uncomp_offsets[idx], 8, op_file);
+            put_long(bit_offsets[idx], 8, op_file);
+        }
+
+        flush(op_file);
+
+        return io_status("write", this);
+    }
+
+    //=======================================================================
+    // Method name: read
+    //
+    // Description:
+    //    Reads an index from the input stream, returning NOERROR, 
+    //    INDEX_ERROR if it isn't a valid index, or IO_ERROR if reading
+    //    failed.
+    //=======================================================================
+
+    public int read(BufferedInputStream ip_file) {
+
+        int status;
+
+        clear_io_error();
+        status = read_index(ip_file);
+
+        // A failed read looks like a bad index
+        return (io_status("read", this) != NOERROR) ? IO_ERROR : status;
+    }
+
+    private int read_index(BufferedInputStream ip_file) {
+
+        long count;
+
+        if (getc(ip_file) != MAGIC0 || getc(ip_file) != MAGIC1 || getc(ip_file) != MAGIC2 ||
+            getc(ip_file) != VERSION) {
+            System.out.format("***read: Error --- NOT AN INDEX FILE\n");
+            return INDEX_ERROR;
+        }
+
+        length = get_long(8, ip_file);
+        count  = get_long(4, ip_file);
+
+        if (length < 0 || count < 1 || count > Integer.MAX_VALUE) {
+            System.out.format("***read: Error --- BAD INDEX PARAMETERS\n");
+            return INDEX_ERROR;
+        }
+
+        num_points     = 0;
+        uncomp_offsets = new long[(int)count];
+        bit_offsets    = new long[(int)count];
+
+        for (int idx = 0; idx < count; idx++) {
+            uncomp_offsets[idx] = get_long(8, ip_file);
+            bit_offsets[idx]    = get_long(8, ip_file);
+
+            // The points must be in order, starting at the stream start
+            if (bit_offsets[idx] < 0 || uncomp_offsets[idx] > length ||
+                uncomp_offsets[idx] < ((idx == 0) ? 0 : uncomp_offsets[idx-1] + 1) ||
+                (idx == 0 && (uncomp_offsets[idx] != 0 || bit_offsets[idx] != 0))) {
+                System.out.format("***read: Error --- CORRUPT INDEX\n");
+                return INDEX_ERROR;
+            }
+        }
+
+        num_points = (int)count;
+
+        return NOERROR;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private void put_long(long val, int num_bytes, BufferedOutputStream op_file) {
+        for (int idx = num_bytes-1; idx >= 0; idx--)
+            putc((byte)(val >> (idx * BYTESIZE)), op_file);
+    }
+
+    // Returns -1 if the input runs out
+    private long get_long(int num_bytes, BufferedInputStream ip_file) {
+        long val = 0;
+        short ipbyte;
+
+        for (int idx = 0; idx < num_bytes; idx++) {
+            if ((ipbyte = getc(ip_file)) == -1)
+                return -1;
+            val = (val << BYTESIZE) | ipbyte;
+        }
+
+        return val;
+    }
+}
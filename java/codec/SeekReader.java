@@ -0,0 +1,133 @@
+//=======================================================================
+//
+// SeekReader.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The SeekReader class reads ranges of the uncompressed data from a
+// compressed file, using its seek index (see SeekIndex.java). Each read
+// decompresses from the last restart point at or before the range,
+// discarding the data before the range, and stops once the range is
+// complete, so only the segment covering the range is decoded.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+public class SeekReader extends Lz {
+
+    private FileChannel channel;
+    private SeekIndex   index;
+    private LzwDecoder  decoder;
+    private int         status;
+
+    //=======================================================================
+    // Constructors
+    //
+    // The channel is for the compressed file, with the stream starting at
+    // file position 0. A trained dictionary is needed for streams 
+    // compressed with one.
+    //=======================================================================
+
+    public SeekReader(FileChannel ch, SeekIndex idx) {
+        this(ch, idx, null);
+    }
+
+    public SeekReader(FileChannel ch, SeekIndex idx, DictFile dictfile) {
+        channel = ch;
+        index   = idx;
+        decoder = new LzwDecoder(dictfile);
+    }
+
+    //=======================================================================
+    // Method name: read
+    //
+    // Description:
+    //    Returns the len bytes of uncompressed data from offset, or fewer 
+    //    if the data ends first, or null on an error, with status() 
+    //    returning the error.
+    //=======================================================================
+
+    public byte[] read(long offset, int len) {
+
+        RangeOutputStream range;
+        int               point;
+
+        if (offset < 0 || len < 0) {
+            System.out.format("***read: Error --- BAD RANGE %d, %d\n", offset, len);
+            status = USER_ERROR;
+            return null;
+        }
+
+        len   = (int)Math.max(Math.min(len, index.length() - offset), 0);
+        range = new RangeOutputStream(offset - index.uncomp_offsets[point = index.find(offset)], len);
+
+        if (len > 0 && (status = decoder.decode_range(channel, index.bit_offsets[point], range,
+                                                      range.skip + len)) != NOERROR)
+            return null;
+
+        status = NOERROR;
+
+        return (range.count == len) ? range.data : Arrays.copyOf(range.data, range.count);
+    }
+
+    // Status of the last read
+    public int status() {
+        return status;
+    }
+
+    //=======================================================================
+    // The RangeOutputStream class discards the decompressed data before
+    // the range, and collects the range's data
+    //=======================================================================
+
+    private static class RangeOutputStream extends OutputStream {
+
+        long   skip;
+        byte[] data;
+        int    count;
+
+        RangeOutputStream(long skp, int len) {
+            skip = skp;
+            data = new byte[len];
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            int skipped = (int)Math.min(skip, len);
+            int copied  = Math.min(len - skipped, data.length - count);
+
+            skip -= skipped;
+            System.arraycopy(b, off + skipped, data, count, copied);
+            count += copied;
+        }
+    }
+}
@@ -0,0 +1,144 @@
+//=======================================================================
+//
+// SpscRing.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The SpscRing class is a bounded ring buffer, passing objects from a
+// single producer thread to a single consumer thread, without locks.
+// The producer only writes the tail index, and the consumer only the
+// head index, with each slot's contents published by the volatile
+// index write that follows it. A thread which finds the ring full (or
+// empty) spins briefly, then yields, then parks, until the other
+// thread catches up. A ring can be aborted, if the other thread has 
+// failed, so that a waiting thread gives up.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.concurrent.locks.LockSupport;
+
+public class SpscRing<T> {
+
+    // Backoff whilst waiting: spins, then yields, then parks
+    private static final int  SPINLIMIT  = 100;
+    private static final int  YIELDLIMIT = 200;
+    private static final long PARKNANOS  = 50000;
+
+    private final Object[] slots;
+    private final int      mask;
+
+    // Index of the next slot to take (written by the consumer), and of
+    // the next to put (written by the producer)
+    private volatile long head;
+    private volatile long tail;
+
+    private volatile boolean aborted;
+
+    //=======================================================================
+    // Constructor
+    //
+    // The size is rounded up to a power of 2.
+    //=======================================================================
+
+    public SpscRing(int size) {
+        int capacity = Integer.highestOneBit(Math.max(size - 1, 1)) << 1;
+
+        slots = new Object[capacity];
+        mask  = capacity - 1;
+    }
+
+    //=======================================================================
+    // Method name: put
+    //
+    // Description:
+    //    Adds an item to the ring, waiting whilst the ring is full. Only
+    //    called by the producer thread. Throws IllegalStateException if
+    //    the ring is aborted whilst waiting.
+    //=======================================================================
+
+    public void put(T item) {
+        long t    = tail;
+        int  idle = 0;
+
+        while (t - head == slots.length)
+            idle = backoff(idle);
+
+        slots[(int)t & mask] = item;
+        tail = t + 1;
+    }
+
+    //=======================================================================
+    // Method name: take
+    //
+    // Description:
+    //    Removes the oldest item from the ring, waiting whilst the ring is
+    //    empty. Only called by the consumer thread. Throws 
+    //    IllegalStateException if the ring is aborted whilst waiting.
+    //=======================================================================
+
+    @SuppressWarnings("unchecked")
+    public T take() {
+        long h    = head;
+        int  idle = 0;
+        T    item;
+
+        while (tail == h)
+            idle = backoff(idle);
+
+        item = (T)slots[(int)h & mask];
+        slots[(int)h & mask] = null;
+        head = h + 1;
+
+        return item;
+    }
+
+    //=======================================================================
+    // Method name: abort
+    //
+    // Description:
+    //    Stops either thread waiting on the ring, now or later.
+    //=======================================================================
+
+    public void abort() {
+        aborted = true;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private int backoff(int idle) {
+        if (aborted)
+            throw new IllegalStateException("ring aborted");
+
+        if (idle < SPINLIMIT)
+            Thread.onSpinWait();
+        else if (idle < YIELDLIMIT)
+            Thread.yield();
+        else
+            LockSupport.parkNanos(PARKNANOS);
+
+        return idle + 1;
+    }
+}
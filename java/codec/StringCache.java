@@ -0,0 +1,233 @@
+//=======================================================================
+//
+// StringCache.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The StringCache class is an optional cache of decoded strings for the
+// decompressor, so that a codeword decoded again and again (as on very
+// repetitive data) is output with one array copy, rather than by 
+// following its dictionary list every time.
+//
+// The strings are held in a single arena, filled from the start, with
+// each cached codeword's offset in the arena. A codeword is only cached
+// when it is decoded a second time (in the same generation), and only
+// if its string is at least MINCACHESTRLEN bytes, as shorter strings
+// are as quick to follow.
+//
+// The cached strings are only valid for the dictionary they were decoded
+// from. Each codeword's offset is tagged with the cache's generation, so
+// the whole cache is invalidated, without clearing it, by starting a new
+// generation. This is done when the dictionary is reset (detected from
+// its reset count), and when the arena is full. An LRU dictionary 
+// replaces entries without a reset, so the decompressor invalidates a
+// replaced entry's codeword when it is rebuilt.
+//=======================================================================
+
+package Lzw.codec;
+
+import java.util.Arrays;
+
+public class StringCache extends Lz {
+
+    // Offset for a codeword decoded once, but not yet cached
+    private static final int SEEN = -1;
+
+    // Initial number of codewords tagged (grown as needed)
+    private static final int INITCODEWORDS = 4096;
+
+    // Arena of cached strings, and the number of bytes used
+    protected byte[] arena;
+    private   int    arena_used;
+
+    // Per codeword arena offset (or SEEN), valid if tagged with the
+    // current generation
+    private int[] offset;
+    private int[] tag;
+    private int   generation = 1;
+
+    // Dictionary reset count the current generation is for
+    private int   dict_resets = -1;
+
+    // Statistics
+    private long  lookups;
+    private long  hits;
+    private long  flushes;
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public StringCache(int size) {
+        arena  = new byte[size];
+        offset = new int[INITCODEWORDS];
+        tag    = new int[INITCODEWORDS];
+    }
+
+    //=======================================================================
+    // Method name: lookup
+    //
+    // Description:
+    //    Returns the arena offset of a codeword's string, or -1 if it
+    //    isn't cached. If the dictionary has been reset since the last
+    //    lookup (resets being its reset count), a new generation is 
+    //    started first.
+    //=======================================================================
+
+    protected int lookup(int codeword, int resets) {
+
+        lookups++;
+
+        if (resets != dict_resets) {
+            dict_resets = resets;
+            new_generation();
+        }
+
+        if (codeword < tag.length && tag[codeword] == generation && offset[codeword] != SEEN) {
+            hits++;
+            return offset[codeword];
+        }
+
+        return -1;
+    }
+
+    //=======================================================================
+    // Method name: store
+    //
+    // Description:
+    //    Called with a codeword's string after a lookup missed. The first
+    //    time in a generation, the codeword is only marked as seen. The
+    //    second time, the string is copied into the arena, starting a new
+    //    generation first if the arena hasn't the space.
+    //=======================================================================
+
+    protected void store(int codeword, byte[] src, int off, int len) {
+
+        if (codeword >= tag.length)
+            grow(codeword + 1);
+
+        if (tag[codeword] != generation) {
+            tag[codeword]    = generation;
+            offset[codeword] = SEEN;
+            return;
+        }
+
+        if (len > arena.length)
+            return;
+
+        if (arena_used + len > arena.length) {
+            flushes++;
+            new_generation();
+            tag[codeword] = generation;
+        }
+
+        System.arraycopy(src, off, arena, arena_used, len);
+        offset[codeword] = arena_used;
+        arena_used      += len;
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Invalidates all of the cached strings, when the decompressor
+    //    starts a stream (which may be with a different dictionary).
+    //=======================================================================
+
+    protected void reset() {
+        dict_resets = -1;
+        new_generation();
+    }
+
+    //=======================================================================
+    // Method name: invalidate
+    //
+    // Description:
+    //    Removes a codeword from the cache, when its dictionary entry is
+    //    replaced.
+    //=======================================================================
+
+    protected void invalidate(int codeword) {
+        if (codeword < tag.length)
+            tag[codeword] = 0;
+    }
+
+    //=======================================================================
+    // Access functions
+    //=======================================================================
+
+    // Number of lookups and hits (strings output from the cache)
+    public long lookups() {
+        return lookups;
+    }
+
+    public long hits() {
+        return hits;
+    }
+
+    // Fraction of lookups which hit
+    public double hit_rate() {
+        return (lookups != 0) ? (double)hits / lookups : 0.0;
+    }
+
+    // Number of times the arena filled, and was emptied
+    public long flushes() {
+        return flushes;
+    }
+
+    // Arena size, and bytes of it in use
+    public int arena_size() {
+        return arena.length;
+    }
+
+    public int arena_used() {
+        return arena_used;
+    }
+
+    // Total memory used by the cache, in bytes
+    public long memory() {
+        return arena.length + (long)(offset.length + tag.length) * Integer.BYTES;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Invalidates all of the cached strings. (The tags are only cleared
+    // if the generation count wraps.)
+    private void new_generation() {
+        arena_used = 0;
+
+        if (++generation == 0) {
+            Arrays.fill(tag, 0);
+            generation = 1;
+        }
+    }
+
+    private void grow(int size) {
+        int len = Math.max(size, tag.length << 1);
+
+        offset = Arrays.copyOf(offset, len);
+        tag    = Arrays.copyOf(tag, len);
+    }
+}
@@ -32,6 +32,14 @@
 // decompress object, returning them via a passed pointer. The current
 // length of the input codewords is also passed in, as this is 
 // determined by the dictionary.
+//
+// unpack_batch() unpacks a batch of codewords into an array, given the
+// length of each (as Dict.codeword_lengths() anticipates them), so the
+// decompressor needn't call the unpacker per codeword. The input is 
+// loaded onto a 64 bit barrel shifter a word at a time, whilst there 
+// are at least 8 bytes left in the input block, and a byte at a time 
+// at the end of the block. Packers for the other stream formats can't
+// unpack in batches (see batch_unpacking()).
 //=======================================================================
 
 package Lzw.codec;
@@ -40,8 +48,7 @@ import java.io.*;
 
 public class Unpacker extends Lz {
 
-    private short ipbyte;
-    private int currlen, barrel;
+    private int ipbyte;
     private int op_codeword;
 
     private int delay_op_codeword;
@@ -49,7 +56,15 @@ public class Unpacker extends Lz {
 
     private short codeword_length;
 
-    private BufferedInputStream ip_file;
+    // Barrel shifter, and the number of bits on it, shared with the
+    // unpackers for other codeword formats
+    protected int currlen;
+    protected long barrel;
+
+    // Bytes put on the barrel shifter for a codeword not yet complete
+    protected int partial_count;
+
+    protected LzInput input;
     
     //=======================================================================
     // Constructors
@@ -59,14 +74,75 @@ public class Unpacker extends Lz {
         currlen = 0;
         barrel= 0;
         op_codeword = 0;
-        ip_file = new BufferedInputStream(System.in);
+        input = new LzInput(System.in);
     }
 
-    public Unpacker(boolean compmode, BufferedInputStream ifp) {
+    public Unpacker(boolean compmode, InputStream ifp) {
+        this(compmode, new LzInput(ifp));
+    }
+
+    public Unpacker(boolean compmode, LzInput ip) {
         currlen = 0;
         barrel= 0;
         op_codeword = 0;
-        ip_file = ifp;
+        input = ip;
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Discards any bits left on the barrel shifter, ready for a new
+    //    stream.
+    //=======================================================================
+
+    protected void reset() {
+        currlen       = 0;
+        barrel        = 0;
+        partial_count = 0;
+    }
+
+    //=======================================================================
+    // Method name: skip_bits
+    //
+    // Description:
+    //    Discards the first nbits (less than a byte) of the input, for
+    //    unpacking from a bit offset within a byte.
+    //=======================================================================
+
+    protected void skip_bits(int nbits) {
+
+        if (nbits == 0 || (ipbyte = input.get()) == -1)
+            return;
+
+        barrel  = (ipbyte & BYTEMASK) >> nbits;
+        currlen = BYTESIZE - nbits;
+    }
+
+    //=======================================================================
+    // Method name: align
+    //
+    // Description:
+    //    Discards the padding bits after a FLUSH codeword, up to the next
+    //    byte boundary.
+    //=======================================================================
+
+    protected void align() {
+        barrel >>>= currlen % BYTESIZE;
+        currlen  -= currlen % BYTESIZE;
+    }
+
+    //=======================================================================
+    // Method name: unpack
+    //
+    // Description:
+    //    As unpack() below, for unpackers which decode a codeword 
+    //    according to the number of codewords it may be (codeword_count),
+    //    rather than its length. Others ignore the count.
+    //=======================================================================
+
+    protected int unpack(IntRef codeword, int codeword_length, int codeword_count) {
+        return unpack(codeword, codeword_length);
     }
 
     //=======================================================================
@@ -75,25 +151,28 @@ public class Unpacker extends Lz {
     // Description:                                                          
     //    unpack() grabs bytes from input stream, placing then on a barrel
     //    shifter until it has enough bits for a codeword of the current 
-    //    codeword length (codeword_length). 
+    //    codeword length (codeword_length). It returns the number of bytes
+    //    input for the codeword, or 0 if the input ran out first. The bits
+    //    of an incomplete codeword are kept, so that unpacking can carry
+    //    on if the input is given more bytes.
     //=======================================================================
 
     protected int unpack(IntRef codeword, int codeword_length) {
 
-        int byte_count = 0;
+        int byte_count;
 
         // Start inputing bytes to form a whole codeword 
         do {
             // Gracefully fail if no more input bytes---codeword is
             // don't care. 
-            if ((ipbyte = getc(ip_file)) == -1) 
-                return byte_count;
+            if ((ipbyte = input.get()) == -1) 
+                return 0;
 
             // We successfully got a byte so increment the byte counter 
-            byte_count++;
+            partial_count++;
 
             // Put the byte on the barrel shifter 
-            barrel |= (ipbyte & BYTEMASK) << currlen;
+            barrel |= (long)(ipbyte & BYTEMASK) << currlen;
 
             // We have another byte's worth of bits 
             currlen += BYTESIZE;
@@ -102,14 +181,106 @@ public class Unpacker extends Lz {
         } while (currlen < codeword_length);
 
         // Codeword is bottom 'codeword_length' bits: I.e. mask=2^codeword_length - 1 
-        op_codeword = (barrel & ((0x1 << codeword_length) - 1));
+        op_codeword = (int)barrel & ((0x1 << codeword_length) - 1);
         currlen -= codeword_length;
-        barrel >>= codeword_length;
+        barrel >>>= codeword_length;
 
         // Return the codeword value in the pointer 
         codeword.value = op_codeword;
 
+        byte_count    = partial_count;
+        partial_count = 0;
+
         // Mark the operation as successful 
         return byte_count;
     }
+
+    //=======================================================================
+    // Method name: batch_unpacking
+    //
+    // Description:
+    //    Returns true if the unpacker can unpack_batch(), having codewords
+    //    of the lengths given. (Overridden by the other formats' 
+    //    unpackers.)
+    //=======================================================================
+
+    protected boolean batch_unpacking() {
+        return true;
+    }
+
+    //=======================================================================
+    // Method name: unpack_batch
+    //
+    // Description:
+    //    Unpacks up to num codewords into codewords[], of the lengths in
+    //    lengths[], returning the number unpacked. Fewer are unpacked if
+    //    the input runs out (the bits of an incomplete codeword are kept,
+    //    as for unpack()), or after a reserved codeword (from FIRSTCW up
+    //    to first_cw, such as CLEAR or FLUSH), as the following codewords'
+    //    lengths then change. The number of bytes input is returned in
+    //    byte_count.
+    //=======================================================================
+
+    protected int unpack_batch(int[] codewords, int[] lengths, int num, int first_cw, IntRef byte_count) {
+
+        long   bar   = barrel;
+        int    len   = currlen;
+        int    bytes = partial_count;
+        int    count = 0;
+        int    cw_len, codeword, take;
+
+        partial_count = 0;
+
+        while (count < num) {
+
+            cw_len = lengths[count];
+
+            if (len < cw_len) {
+
+                // Load as many whole bytes as fit on the barrel shifter
+                // from a word of the input, if there are 8 bytes left 
+                if (input.limit - input.pos >= Long.BYTES) {
+                    take       = (Long.SIZE - len) / BYTESIZE;
+                    bar       |= (input.peek_long() & (-1L >>> (Long.SIZE - take * BYTESIZE))) << len;
+                    len       += take * BYTESIZE;
+                    bytes     += take;
+                    input.pos += take;
+
+                // Otherwise input a byte at a time, which may need the 
+                // next block
+                } else {
+                    do {
+                        if ((ipbyte = input.get()) == -1) {
+                            barrel           = bar;
+                            currlen          = len;
+                            partial_count    = bytes;
+                            byte_count.value = 0;
+                            return count;
+                        }
+
+                        bar   |= (long)ipbyte << len;
+                        len   += BYTESIZE;
+                        bytes++;
+                    } while (len < cw_len);
+                }
+            }
+
+            // Codeword is bottom 'cw_len' bits
+            codeword = (int)bar & ((0x1 << cw_len) - 1);
+            bar    >>>= cw_len;
+            len     -= cw_len;
+
+            codewords[count++] = codeword;
+
+            // A reserved codeword ends the batch
+            if (codeword >= FIRSTCW && codeword < first_cw)
+                break;
+        }
+
+        barrel           = bar;
+        currlen          = len;
+        byte_count.value = bytes;
+
+        return count;
+    }
 }
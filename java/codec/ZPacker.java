@@ -0,0 +1,223 @@
+//=======================================================================
+//
+// ZPacker.java                                          date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The ZPacker class packs codewords as the Unix compress (.Z) format
+// does, for the compressor in FORMAT_Z. The codewords are packed LSB
+// first, as for Packer, but compress sets the codeword length itself,
+// from the number of entries it has built, rather than taking it from
+// the dictionary:
+//
+//    - Codewords start at 9 bits, and the length is incremented after
+//      the codeword output when the next free entry no longer fits in
+//      the length (one codeword later than Dict increments it).
+//    - Codewords are written in groups of 8, so a group is a whole
+//      number of bytes. When the length changes, or after a CLEAR 
+//      codeword (block mode only), the rest of the current group is
+//      padded out, as the decompressor only sees the change after 
+//      reading a whole group.
+//
+// The packer follows the compressor's next free entry by counting a
+// build after each codeword (other than CLEAR), until the dictionary is
+// full. This matches Comp, which always builds after a codeword unless
+// the dictionary is full, or it sends a CLEAR.
+//=======================================================================
+
+package Lzw.codec;
+
+public class ZPacker extends Packer {
+
+    // Configuration, from the stream header
+    private int     max_bits;
+    private boolean block_mode;
+
+    // Codeword length, the largest codeword for it, and the compressor's
+    // next free entry
+    private int n_bits;
+    private int max_code;
+    private int free_ent;
+
+    // Bits output for the current group of codewords
+    private int group_bits;
+
+    private LzOutput output;
+    private long     barrel;
+    private int      residue;
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public ZPacker(LzOutput op, Header hdr) {
+        super(true, op);
+
+        output     = op;
+        max_bits   = hdr.max_cw_len;
+        block_mode = hdr.clear_enable;
+
+        reset();
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Clears the barrel shifter and returns to 9 bit codewords, ready
+    //    for a new stream.
+    //=======================================================================
+
+    @Override
+    protected void reset() {
+        barrel     = 0;
+        residue    = 0;
+        group_bits = 0;
+        free_ent   = block_mode ? CLEARCW + 1 : FIRSTCW;
+
+        start_bits();
+    }
+
+    @Override
+    protected int residue_bits() {
+        return residue;
+    }
+
+    //=======================================================================
+    // Method name: pack
+    //
+    // Description:
+    //    Packs a codeword at the current .Z codeword length (the length
+    //    passed in is ignored), returning the number of bytes output.
+    //    EOFFLUSH outputs the bits left, padded to a whole byte.
+    //=======================================================================
+
+    @Override
+    protected int pack(int ip_codeword, int codeword_length) {
+
+        int byte_count = 0;
+
+        if (ip_codeword == EOFFLUSH) {
+            if (residue > 0)
+                byte_count = put_residue();
+
+            output.flush();
+
+            return byte_count;
+        }
+
+        barrel     |= (long)ip_codeword << residue;
+        residue    += n_bits;
+        group_bits += n_bits;
+
+        while (residue >= BYTESIZE)
+            byte_count += put_byte();
+
+        // A complete group needs no padding
+        if (group_bits == n_bits * BYTESIZE)
+            group_bits = 0;
+
+        // After a CLEAR, the compressor starts again from 9 bits, with an
+        // empty dictionary
+        if (block_mode && ip_codeword == CLEARCW) {
+            byte_count += pad_group();
+            free_ent    = CLEARCW + 1;
+            start_bits();
+
+        // If the next entry won't fit, move to longer codewords
+        } else {
+            if (free_ent > max_code) {
+                byte_count += pad_group();
+                set_bits(n_bits + 1);
+            }
+
+            // Count the entry the compressor builds after this codeword
+            if (free_ent < (1 << max_bits))
+                free_ent++;
+        }
+
+        return byte_count;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Pads out the rest of the current group, returning the bytes output
+    private int pad_group() {
+        int byte_count = 0;
+
+        if (group_bits == 0)
+            return 0;
+
+        if (residue > 0)
+            byte_count += put_residue();
+
+        // A group is n_bits bytes
+        for (int idx = (group_bits + BYTESIZE - 1) / BYTESIZE; idx < n_bits; idx++)
+            byte_count += put_zero();
+
+        group_bits = 0;
+
+        return byte_count;
+    }
+
+    // Codewords start at 9 bits. The first increment is always at the 
+    // end of the 9 bit codewords, even when that is the maximum length,
+    // so 9 bit .Z streams (as written by compress) have 10 bit codewords 
+    // once the dictionary is full.
+    private void start_bits() {
+        n_bits   = MINCWLEN;
+        max_code = (1 << MINCWLEN) - 1;
+    }
+
+    // Sets the codeword length. At the maximum length, the largest 
+    // codeword is past the end of the dictionary, so it never changes.
+    private void set_bits(int bits) {
+        n_bits   = bits;
+        max_code = (n_bits == max_bits) ? (1 << max_bits) : (1 << n_bits) - 1;
+    }
+
+    private int put_byte() {
+        output.put((byte)(barrel & BYTEMASK));
+        barrel  >>= BYTESIZE;
+        residue  -= BYTESIZE;
+
+        return 1;
+    }
+
+    // Outputs the bits left on the barrel shifter as a whole byte
+    private int put_residue() {
+        output.put((byte)(barrel & BYTEMASK));
+        barrel  = 0;
+        residue = 0;
+
+        return 1;
+    }
+
+    private int put_zero() {
+        output.put((byte)0);
+
+        return 1;
+    }
+}
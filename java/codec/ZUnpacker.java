@@ -0,0 +1,214 @@
+//=======================================================================
+//
+// ZUnpacker.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The ZUnpacker class unpacks codewords from a Unix compress (.Z) 
+// format stream, for the decompressor in FORMAT_Z. It follows the 
+// compressor's codeword length and group padding in the same way as
+// ZPacker (see ZPacker.java), counting an entry build after each
+// codeword, and skipping the rest of a group when the length changes
+// or after a CLEAR codeword.
+//=======================================================================
+
+package Lzw.codec;
+
+public class ZUnpacker extends Unpacker {
+
+    // Configuration, from the stream header
+    private int     max_bits;
+    private boolean block_mode;
+
+    // Codeword length, the largest codeword for it, and the compressor's
+    // next free entry
+    private int n_bits;
+    private int max_code;
+    private int free_ent;
+
+    // Bits of the current group unpacked, and padding bytes still to be
+    // skipped from the last group
+    private int group_bits;
+    private int skip_bytes;
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public ZUnpacker(LzInput ip) {
+        super(false, ip);
+
+        max_bits = ZMAXCWLEN;
+
+        reset();
+    }
+
+    //=======================================================================
+    // Method name: configure
+    //
+    // Description:
+    //    Sets the stream parameters from the header just read, and resets
+    //    the unpacker for the stream's first codeword.
+    //=======================================================================
+
+    protected void configure(Header hdr) {
+        max_bits   = hdr.max_cw_len;
+        block_mode = hdr.clear_enable;
+
+        reset();
+    }
+
+    //=======================================================================
+    // Method name: reset
+    //
+    // Description:
+    //    Discards any bits left on the barrel shifter, and returns to 9 
+    //    bit codewords, ready for a new stream.
+    //=======================================================================
+
+    @Override
+    protected void reset() {
+        barrel        = 0;
+        currlen       = 0;
+        partial_count = 0;
+        group_bits    = 0;
+        skip_bytes    = 0;
+        free_ent      = block_mode ? CLEARCW + 1 : FIRSTCW;
+
+        start_bits();
+    }
+
+    @Override
+    protected void skip_bits(int nbits) {
+        int ipbyte;
+
+        if (nbits == 0 || (ipbyte = input.get()) == -1)
+            return;
+
+        barrel     = ipbyte >> nbits;
+        currlen    = BYTESIZE - nbits;
+        group_bits = nbits;
+    }
+
+    //=======================================================================
+    // Method name: unpack
+    //
+    // Description:
+    //    Unpacks a codeword at the current .Z codeword length (the length
+    //    passed in is ignored), returning the number of bytes input for
+    //    it, or 0 if the input ran out first. As for Unpacker, unpacking
+    //    carries on if the input is given more bytes.
+    //=======================================================================
+
+    @Override
+    protected int unpack(IntRef codeword, int codeword_length) {
+
+        int ipbyte, byte_count;
+
+        // Skip the padding at the end of the last group
+        while (skip_bytes > 0) {
+            if (input.get() == -1)
+                return 0;
+
+            partial_count++;
+            skip_bytes--;
+        }
+
+        while (currlen < n_bits) {
+            if ((ipbyte = input.get()) == -1)
+                return 0;
+
+            partial_count++;
+            barrel  |= (long)ipbyte << currlen;
+            currlen += BYTESIZE;
+        }
+
+        codeword.value = (int)(barrel & ((1 << n_bits) - 1));
+        barrel     >>= n_bits;
+        currlen     -= n_bits;
+        group_bits  += n_bits;
+
+        if (group_bits == n_bits * BYTESIZE)
+            group_bits = 0;
+
+        // After a CLEAR, the compressor started again from 9 bits
+        if (block_mode && codeword.value == CLEARCW) {
+            skip_group();
+            free_ent = CLEARCW + 1;
+            start_bits();
+
+        // If the compressor's next entry didn't fit, it moved to longer
+        // codewords
+        } else {
+            if (free_ent > max_code) {
+                skip_group();
+                set_bits(n_bits + 1);
+            }
+
+            if (free_ent < (1 << max_bits))
+                free_ent++;
+        }
+
+        byte_count    = partial_count;
+        partial_count = 0;
+
+        return byte_count;
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // The rest of the current group is padding, so drop the bits already
+    // input, and skip the bytes not yet input
+    private void skip_group() {
+
+        if (group_bits == 0)
+            return;
+
+        skip_bytes = n_bits - (group_bits + currlen) / BYTESIZE;
+        barrel     = 0;
+        currlen    = 0;
+        group_bits = 0;
+    }
+
+    // Codewords start at 9 bits. The first increment is always at the 
+    // end of the 9 bit codewords, even when that is the maximum length,
+    // so 9 bit .Z streams (as written by compress) have 10 bit codewords 
+    // once the dictionary is full.
+    private void start_bits() {
+        n_bits   = MINCWLEN;
+        max_code = (1 << MINCWLEN) - 1;
+    }
+
+    private void set_bits(int bits) {
+        n_bits   = bits;
+        max_code = (n_bits == max_bits) ? (1 << max_bits) : (1 << n_bits) - 1;
+    }
+
+    // Codewords aren't unpacked by length alone, so not in batches
+    @Override
+    protected boolean batch_unpacking() {
+        return false;
+    }
+}
@@ -0,0 +1,187 @@
+//=======================================================================
+//
+// BatchTest.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of batch mode: files in a directory compress and decompress
+// back, and a file whose output can't be written fails with IO_ERROR,
+// leaving no output, while the other files are still coded.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.nio.file.*;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+public class BatchTest extends LzwTest {
+
+    private static final int NUMFILES = 6;
+
+    public BatchTest() {
+        super("BatchTest");
+    }
+
+    public static void main(String[] argv) throws IOException {
+        BatchTest test = new BatchTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        round_trip(1);
+        round_trip(4);
+        framed(1);
+        framed(2);
+        missing_path();
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Compresses a directory, with one file's output blocked, and 
+    // decompresses the rest back
+    private void round_trip(int threads) throws IOException {
+
+        Path     dir     = Files.createTempDirectory("BatchTest");
+        byte[][] data    = new byte[NUMFILES][];
+        Path[]   files   = new Path[NUMFILES];
+        String   what    = threads + " threads";
+        int      blocked = 2;
+        int      status;
+
+        for (int idx = 0; idx < NUMFILES; idx++) {
+            data[idx]  = (idx % 2 == 0) ? text(20000 * idx, 60 + idx) : random(5000 * idx, 60 + idx);
+            files[idx] = dir.resolve("file" + idx);
+            Files.write(files[idx], data[idx]);
+        }
+
+        // A directory in the way of an output file
+        Files.createDirectory(lzw(files[blocked]));
+
+        status = new BatchCodec(true, threads, 12, POLICY_RESET, null).run(new String[] {dir.toString()});
+
+        check(status == IO_ERROR, "blocked file status " + what);
+        check(Files.isDirectory(lzw(files[blocked])), "blocked output left alone " + what);
+
+        for (int idx = 0; idx < NUMFILES; idx++) {
+            if (idx != blocked) {
+                check(Files.isRegularFile(lzw(files[idx])), "file " + idx + " compressed " + what);
+                Files.delete(files[idx]);
+            }
+        }
+
+        // Only the compressed files are decompressed
+        status = new BatchCodec(false, threads, 12, POLICY_RESET, null).run(new String[] {dir.toString()});
+
+        check(status == NOERROR, "decompress status " + what);
+
+        for (int idx = 0; idx < NUMFILES; idx++)
+            if (idx != blocked)
+                check_data(data[idx], Files.readAllBytes(files[idx]), 0, data[idx].length, 
+                           "file " + idx + " " + what);
+
+        remove(dir);
+    }
+
+    // Framed files are decompressed by the workers, each reusing its 
+    // frame decompressor, including after a corrupt file
+    private void framed(int threads) throws IOException {
+
+        Path                  dir     = Files.createTempDirectory("BatchTest");
+        byte[][]              data    = new byte[NUMFILES][];
+        Path[]                files   = new Path[NUMFILES];
+        String                what    = threads + " threads";
+        int                   corrupt = 3;
+        ByteArrayOutputStream comp;
+        byte[]                bad;
+        int                   status;
+
+        for (int idx = 0; idx < NUMFILES; idx++) {
+            data[idx]  = text(MINFRAMEBLOCK * idx + 100, 80 + idx);
+            files[idx] = dir.resolve("file" + idx);
+            comp       = new ByteArrayOutputStream();
+
+            new FrameComp(2, MINFRAMEBLOCK, 12, POLICY_RESET).compress(new ByteArrayInputStream(data[idx]), comp);
+            Files.write(lzw(files[idx]), comp.toByteArray());
+        }
+
+        bad = Files.readAllBytes(lzw(files[corrupt]));
+        Files.write(lzw(files[corrupt]), Arrays.copyOf(bad, bad.length / 2));
+
+        status = new BatchCodec(false, threads, 12, POLICY_RESET, null).run(new String[] {dir.toString()});
+
+        check(status == DECOMPRESSION_ERROR, "framed corrupt file status " + what);
+        check(!Files.exists(files[corrupt]), "framed corrupt file output removed " + what);
+
+        for (int idx = 0; idx < NUMFILES; idx++)
+            if (idx != corrupt)
+                check_data(data[idx], Files.readAllBytes(files[idx]), 0, data[idx].length, 
+                           "framed file " + idx + " " + what);
+
+        remove(dir);
+    }
+
+    // A path which doesn't exist fails, but the other paths are coded
+    private void missing_path() throws IOException {
+
+        Path   dir  = Files.createTempDirectory("BatchTest");
+        Path   file = dir.resolve("file");
+        int    status;
+
+        Files.write(file, text(1000, 70));
+
+        status = new BatchCodec(true, 1, 12, POLICY_RESET, null)
+                    .run(new String[] {dir.resolve("none").toString(), file.toString()});
+
+        check(status == USER_ERROR, "missing path status");
+        check(Files.isRegularFile(lzw(file)), "other path compressed");
+
+        remove(dir);
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static Path lzw(Path file) {
+        return Paths.get(file.toString() + ".lzw");
+    }
+
+    private static void remove(Path dir) throws IOException {
+        try (Stream<Path> walk = Files.walk(dir)) {
+            walk.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+        }
+    }
+}
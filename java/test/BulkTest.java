@@ -0,0 +1,164 @@
+//=======================================================================
+//
+// BulkTest.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of LzwEncoder's and LzwDecoder's array and ByteBuffer methods:
+// round trips at offsets, compress_bound() holding for incompressible
+// data, outputs too small, engine reuse over streams with different
+// parameters, and the stream based encode() and decode().
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class BulkTest extends LzwTest {
+
+    public BulkTest() {
+        super("BulkTest");
+    }
+
+    public static void main(String[] argv) {
+        BulkTest test = new BulkTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        LzwDecoder decoder = new LzwDecoder();
+        byte[]     text    = text(250000, 10);
+        byte[]     rand    = random(100000, 11);
+
+        // One decoder for all the streams, with their different parameters
+        for (int policy : new int[] {POLICY_RESET, POLICY_FREEZE, POLICY_RATIO, POLICY_LRU}) {
+            for (int maxcwlen : new int[] {MINCWLEN, 12, 16, MAXCWLENLIMIT}) {
+                LzwEncoder encoder = new LzwEncoder(maxcwlen, policy);
+                String     what    = "policy " + policy + " bits " + maxcwlen;
+
+                check_data(text, decompress(decoder, compress(encoder, text), text.length), 0, text.length,
+                           "text " + what);
+                check_data(rand, decompress(decoder, compress(encoder, rand), rand.length), 0, rand.length,
+                           "random " + what);
+            }
+        }
+
+        offsets(text);
+        byte_buffers(text, false);
+        byte_buffers(text, true);
+        too_small(text);
+        streams(text);
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Compresses from and to offsets within larger arrays
+    private void offsets(byte[] data) {
+
+        LzwEncoder encoder = new LzwEncoder();
+        LzwDecoder decoder = new LzwDecoder();
+        byte[]     src     = new byte[data.length + 200];
+        byte[]     comp    = new byte[encoder.compress_bound(data.length) + 300];
+        byte[]     dst     = new byte[data.length + 400];
+        int        clen, dlen;
+
+        System.arraycopy(data, 0, src, 100, data.length);
+
+        clen = encoder.compress(src, 100, data.length, comp, 300);
+        dlen = decoder.decompress(comp, 300, clen, dst, 400);
+
+        check(clen > 0 && clen == encoder.output_bytecount(), "compressed length at offset");
+        check_data(data, dst, 400, dlen, "round trip at offsets");
+    }
+
+    // Round trips through heap or direct ByteBuffers, checking positions
+    private void byte_buffers(byte[] data, boolean direct) {
+
+        LzwEncoder encoder = new LzwEncoder(14, POLICY_LRU);
+        LzwDecoder decoder = new LzwDecoder();
+        ByteBuffer src     = alloc(data.length, direct);
+        ByteBuffer comp    = alloc(encoder.compress_bound(data.length), direct);
+        ByteBuffer dst     = alloc(data.length, direct);
+        byte[]     got     = new byte[data.length];
+        int        clen, dlen;
+
+        src.put(data).flip();
+        clen = encoder.compress(src, comp);
+        comp.flip();
+        dlen = decoder.decompress(comp, dst);
+        dst.flip().get(got);
+
+        check(clen > 0 && !src.hasRemaining() && comp.limit() == clen && !comp.hasRemaining(),
+              "buffer positions, direct " + direct);
+        check_data(data, got, 0, dlen, "buffer round trip, direct " + direct);
+    }
+
+    // Outputs too small for the data fail cleanly
+    private void too_small(byte[] data) {
+
+        LzwEncoder encoder = new LzwEncoder();
+        LzwDecoder decoder = new LzwDecoder();
+        byte[]     comp    = compress(encoder, data);
+
+        check(encoder.compress(data, 0, data.length, new byte[comp.length - 1]) == -1, "compress overflow");
+        check(decoder.decompress(comp, 0, comp.length, new byte[data.length - 1]) == -1 &&
+              decoder.status() == BUFFER_ERROR, "decompress overflow");
+
+        // The engines carry on after a failure
+        check_data(data, decompress(decoder, compress(encoder, data), data.length), 0, data.length,
+                   "round trip after overflow");
+    }
+
+    // Streams through encode() and decode()
+    private void streams(byte[] data) {
+
+        LzwEncoder            encoder = new LzwEncoder(16, POLICY_RATIO);
+        LzwDecoder            decoder = new LzwDecoder();
+        ByteArrayOutputStream comp    = new ByteArrayOutputStream();
+        ByteArrayOutputStream got     = new ByteArrayOutputStream();
+
+        check(encoder.encode(new ByteArrayInputStream(data), comp) == NOERROR, "encode status");
+        check(decoder.decode(new ByteArrayInputStream(comp.toByteArray()), got) == NOERROR, "decode status");
+        check(Arrays.equals(data, got.toByteArray()), "encode/decode round trip");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static ByteBuffer alloc(int size, boolean direct) {
+        return direct ? ByteBuffer.allocateDirect(size) : ByteBuffer.allocate(size);
+    }
+}
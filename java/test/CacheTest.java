@@ -0,0 +1,112 @@
+//=======================================================================
+//
+// CacheTest.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of the decoder's string cache: decoding with a cache gives the
+// same data, for each policy and with arenas small enough to be flushed,
+// repetitive data hits the cache, and the statistics are consistent.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.util.Random;
+
+public class CacheTest extends LzwTest {
+
+    public CacheTest() {
+        super("CacheTest");
+    }
+
+    public static void main(String[] argv) {
+        CacheTest test = new CacheTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        byte[]      data = repetitive(400000);
+        LzwDecoder  decoder;
+        StringCache cache;
+
+        for (int policy : new int[] {POLICY_RESET, POLICY_FREEZE, POLICY_RATIO, POLICY_LRU}) {
+            for (int size : new int[] {MINCACHESIZE, 1 << 20}) {
+                decoder = new LzwDecoder();
+                decoder.set_string_cache(size);
+
+                // Twice, to reuse the cache over streams
+                for (int pass = 0; pass < 2; pass++)
+                    check_data(data, decompress(decoder, compress(new LzwEncoder(16, policy), data), data.length),
+                               0, data.length, "policy " + policy + " cache " + size + " pass " + pass);
+
+                cache = decoder.string_cache();
+                check(cache.hits() > 0 && cache.hits() <= cache.lookups() && cache.arena_used() <= cache.arena_size(),
+                      "statistics policy " + policy + " cache " + size);
+                check(size > MINCACHESIZE || cache.flushes() > 0, "small cache flushed, policy " + policy);
+            }
+        }
+
+        // Random data's strings are too short to be cached
+        decoder = new LzwDecoder();
+        decoder.set_string_cache(1 << 16);
+        data    = random(100000, 50);
+        check_data(data, decompress(decoder, compress(new LzwEncoder(), data), data.length), 0, data.length,
+                   "random data");
+        check(decoder.string_cache().hits() == 0, "random data not cached");
+
+        // Removing the cache
+        decoder.set_string_cache(0);
+        check(decoder.string_cache() == null, "cache removed");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Data made of a few random records, repeated in a random order, so 
+    // that long strings are decoded many times
+    private static byte[] repetitive(int len) {
+        byte[][] records = new byte[8][];
+        byte[]   data    = new byte[len];
+        Random   rand    = new Random(51);
+        byte[]   record;
+
+        for (int idx = 0; idx < records.length; idx++)
+            records[idx] = random(40 + idx * 10, idx);
+
+        for (int off = 0; off < len; off += record.length) {
+            record = records[rand.nextInt(records.length)];
+            System.arraycopy(record, 0, data, off, Math.min(record.length, len - off));
+        }
+
+        return data;
+    }
+}
@@ -0,0 +1,218 @@
+//=======================================================================
+//
+// ChannelTest.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of coding between file channels (as with -m): the output is the
+// same as for arrays, and decodes back, for small and empty files, from
+// a channel's position, and for a file larger than a mapped region, 
+// with data across the region boundary.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+
+public class ChannelTest extends LzwTest {
+
+    // Size of the data written either side of the region boundary in the
+    // large file
+    private static final int BOUNDARYDATA = 1 << 20;
+
+    public ChannelTest() {
+        super("ChannelTest");
+    }
+
+    public static void main(String[] argv) throws IOException {
+        ChannelTest test = new ChannelTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        LzwEncoder encoder = new LzwEncoder();
+        LzwDecoder decoder = new LzwDecoder();
+
+        round_trip(encoder, decoder, text(500000, 100), "text");
+        round_trip(encoder, decoder, random(200000, 101), "random");
+        round_trip(encoder, decoder, new byte[1], "one byte");
+        round_trip(encoder, decoder, new byte[0], "empty");
+        round_trip(new LzwEncoder(16, POLICY_RATIO, null, FORMAT_Z), decoder, text(500000, 102), ".Z");
+
+        positioned(encoder, decoder, text(100000, 103));
+        empty_stream(decoder);
+        large(encoder, decoder);
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Encodes the data between files, which must match the array output,
+    // and decodes it back
+    private void round_trip(LzwEncoder encoder, LzwDecoder decoder, byte[] data, String what) throws IOException {
+
+        Path   file  = Files.createTempFile("ChannelTest", ".dat");
+        Path   cfile = Files.createTempFile("ChannelTest", ".lzw");
+        Path   dfile = Files.createTempFile("ChannelTest", ".out");
+
+        Files.write(file, data);
+
+        check(encode(encoder, file, cfile) == NOERROR, what + " encode status");
+        check(Arrays.equals(Files.readAllBytes(cfile), compress(encoder, data)), what + " same as array");
+
+        check(decode(decoder, cfile, dfile) == NOERROR, what + " decode status");
+        check_data(data, Files.readAllBytes(dfile), 0, (int)Files.size(dfile), what);
+
+        delete(file, cfile, dfile);
+    }
+
+    // Coding starts from the input channel's position
+    private void positioned(LzwEncoder encoder, LzwDecoder decoder, byte[] data) throws IOException {
+
+        Path                  file  = Files.createTempFile("ChannelTest", ".dat");
+        Path                  cfile = Files.createTempFile("ChannelTest", ".lzw");
+        Path                  dfile = Files.createTempFile("ChannelTest", ".out");
+        int                   skip  = 12345;
+        ByteArrayOutputStream out   = new ByteArrayOutputStream();
+
+        Files.write(file, data);
+
+        try (FileChannel ip = FileChannel.open(file, StandardOpenOption.READ);
+             FileChannel op = FileChannel.open(cfile, StandardOpenOption.WRITE)) {
+            ip.position(skip);
+            check(encoder.encode(ip, op) == NOERROR, "positioned encode status");
+        }
+
+        // The stream follows some other data in the compressed file
+        out.write(data, 0, skip);
+        out.write(Files.readAllBytes(cfile));
+        Files.write(cfile, out.toByteArray());
+
+        try (FileChannel ip = FileChannel.open(cfile, StandardOpenOption.READ);
+             FileChannel op = FileChannel.open(dfile, StandardOpenOption.WRITE)) {
+            ip.position(skip);
+            check(decoder.decode(ip, op) == NOERROR, "positioned decode status");
+        }
+
+        check_data(Arrays.copyOfRange(data, skip, data.length), Files.readAllBytes(dfile), 0, 
+                   (int)Files.size(dfile), "positioned");
+
+        delete(file, cfile, dfile);
+    }
+
+    // An empty compressed file decodes to an empty file
+    private void empty_stream(LzwDecoder decoder) throws IOException {
+
+        Path cfile = Files.createTempFile("ChannelTest", ".lzw");
+        Path dfile = Files.createTempFile("ChannelTest", ".out");
+
+        check(decode(decoder, cfile, dfile) == NOERROR && Files.size(dfile) == 0, "empty stream");
+
+        delete(cfile, dfile);
+    }
+
+    // A (sparse) file of more than a mapped region, mostly zeros, with
+    // data at its start and across the region boundary, round trips
+    private void large(LzwEncoder encoder, LzwDecoder decoder) throws IOException {
+
+        Path file  = Files.createTempFile("ChannelTest", ".dat");
+        Path cfile = Files.createTempFile("ChannelTest", ".lzw");
+        Path dfile = Files.createTempFile("ChannelTest", ".out");
+
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            ch.write(ByteBuffer.wrap(text(BOUNDARYDATA, 104)), 0);
+            ch.write(ByteBuffer.wrap(text(2 * BOUNDARYDATA, 105)), MAPREGIONSIZE - BOUNDARYDATA);
+            ch.write(ByteBuffer.wrap(random(BOUNDARYDATA, 106)), MAPREGIONSIZE + BOUNDARYDATA);
+        }
+
+        check(Files.size(file) > MAPREGIONSIZE, "large file size");
+
+        check(encode(encoder, file, cfile) == NOERROR, "large encode status");
+        check(decode(decoder, cfile, dfile) == NOERROR, "large decode status");
+        check(same_files(file, dfile), "large");
+
+        delete(file, cfile, dfile);
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static int encode(LzwEncoder encoder, Path ip_file, Path op_file) throws IOException {
+        try (FileChannel ip = FileChannel.open(ip_file, StandardOpenOption.READ);
+             FileChannel op = FileChannel.open(op_file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return encoder.encode(ip, op);
+        }
+    }
+
+    private static int decode(LzwDecoder decoder, Path ip_file, Path op_file) throws IOException {
+        try (FileChannel ip = FileChannel.open(ip_file, StandardOpenOption.READ);
+             FileChannel op = FileChannel.open(op_file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            return decoder.decode(ip, op);
+        }
+    }
+
+    // Compares two files a block at a time
+    private static boolean same_files(Path file1, Path file2) throws IOException {
+
+        ByteBuffer buf1 = ByteBuffer.allocate(IOBLOCKSIZE * 16);
+        ByteBuffer buf2 = ByteBuffer.allocate(IOBLOCKSIZE * 16);
+
+        try (FileChannel ch1 = FileChannel.open(file1, StandardOpenOption.READ);
+             FileChannel ch2 = FileChannel.open(file2, StandardOpenOption.READ)) {
+
+            if (ch1.size() != ch2.size())
+                return false;
+
+            while (ch1.read(buf1.clear()) > 0) {
+                buf2.clear().limit(buf1.position());
+
+                while (buf2.hasRemaining() && ch2.read(buf2) > 0)
+                    ;
+
+                if (!buf1.flip().equals(buf2.flip()))
+                    return false;
+            }
+        }
+
+        return true;
+    }
+
+    private static void delete(Path... files) throws IOException {
+        for (Path file : files)
+            Files.delete(file);
+    }
+}
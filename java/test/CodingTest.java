@@ -0,0 +1,119 @@
+//=======================================================================
+//
+// CodingTest.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of the codeword coding options: range coded and phased in 
+// codewords, and the maximum string length, with round trips for each
+// policy and codeword length, the expected effect on the stream size,
+// and the options that can't be combined.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+
+public class CodingTest extends LzwTest {
+
+    public CodingTest() {
+        super("CodingTest");
+    }
+
+    public static void main(String[] argv) {
+        CodingTest test = new CodingTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        LzwDecoder decoder = new LzwDecoder();
+        LzwEncoder encoder;
+        byte[]     text    = text(300000, 40);
+        byte[]     plain;
+        String     what;
+
+        for (int policy : new int[] {POLICY_RESET, POLICY_FREEZE, POLICY_RATIO, POLICY_LRU}) {
+            for (int maxcwlen : new int[] {MINCWLEN, 12, 16}) {
+                what  = "policy " + policy + " bits " + maxcwlen;
+                plain = compress(new LzwEncoder(maxcwlen, policy), text);
+
+                encoder = new LzwEncoder(maxcwlen, policy);
+                encoder.set_range_coding(true);
+                check(compress(encoder, text).length < plain.length, "range coding smaller " + what);
+                round_trips(encoder, decoder, "range coded " + what);
+
+                encoder = new LzwEncoder(maxcwlen, policy);
+                encoder.set_phased_coding(true);
+                check(compress(encoder, text).length <= plain.length, "phasing in no bigger " + what);
+                round_trips(encoder, decoder, "phased in " + what);
+
+                encoder = new LzwEncoder(maxcwlen, policy);
+                encoder.set_max_string_length(MINSTRLEN + policy);
+                round_trips(encoder, decoder, "maximum string length " + what);
+            }
+        }
+
+        // Runs are limited by the maximum string length
+        encoder = new LzwEncoder(16, POLICY_FREEZE);
+        plain   = compress(encoder, new byte[100000]);
+        encoder.set_max_string_length(16);
+        check(compress(encoder, new byte[100000]).length > plain.length, "limited runs bigger");
+        round_trips(encoder, decoder, "limited runs");
+
+        // Disabled again, the streams are as before
+        encoder.set_max_string_length(0);
+        check(java.util.Arrays.equals(compress(encoder, new byte[100000]), plain), "limit removed");
+
+        // Options which can't be combined
+        encoder = new LzwEncoder(12, POLICY_RESET);
+        encoder.set_range_coding(true);
+        check(encoder.set_phased_coding(true) == USER_ERROR, "range coded and phased in");
+
+        encoder = new LzwEncoder(16, POLICY_RATIO, null, FORMAT_Z);
+        check(encoder.set_range_coding(true) == USER_ERROR && encoder.set_phased_coding(true) == USER_ERROR &&
+              encoder.set_max_string_length(100) == USER_ERROR, ".Z options");
+
+        check(new LzwEncoder().set_max_string_length(1) == USER_ERROR, "string length too short");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Round trips text, random and repetitive data with an encoder
+    private void round_trips(LzwEncoder encoder, LzwDecoder decoder, String what) {
+
+        byte[][] inputs = {text(100000, 41), random(30000, 42), new byte[70000], new byte[0], text(1, 43)};
+
+        for (byte[] data : inputs)
+            check_data(data, decompress(decoder, compress(encoder, data), data.length), 0, data.length,
+                       what + " length " + data.length);
+    }
+}
@@ -0,0 +1,173 @@
+//=======================================================================
+//
+// DictTest.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of trained dictionaries: a dictionary trained on sample data is
+// saved and loaded unchanged, a primed stream decompresses with it and
+// is smaller than an unprimed one on related data, and a stream whose
+// dictionary is missing, different or for other parameters, or a 
+// corrupt dictionary file, fails with DICTFILE_ERROR.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.*;
+
+public class DictTest extends LzwTest {
+
+    public DictTest() {
+        super("DictTest");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        DictTest test = new DictTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        DictFile dictfile = train(text(200000, 80), 12, POLICY_RESET);
+        DictFile loaded   = load(save(dictfile));
+
+        check(loaded != null && Arrays.equals(save(loaded), save(dictfile)), "saved and loaded");
+
+        for (int len : new int[] {0, 1, 100, 2000, 50000})
+            primed(loaded, 12, POLICY_RESET, text(len, 81 + len), len >= 100, "text " + len);
+
+        primed(train(text(200000, 82), 16, POLICY_RATIO), 16, POLICY_RATIO, text(5000, 83), true, "ratio");
+        primed(train(new byte[0], 12, POLICY_RESET), 12, POLICY_RESET, text(5000, 84), false, "empty sample");
+
+        mismatched(loaded);
+        corrupt(save(dictfile));
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Compresses data primed with the dictionary, which must decompress
+    // with it, and (if related to the sample) compress better than 
+    // without it
+    private void primed(DictFile dictfile, int maxcwlen, int policy, byte[] data, boolean related, String what) {
+
+        LzwEncoder encoder = new LzwEncoder(maxcwlen, policy, dictfile);
+        LzwDecoder decoder = new LzwDecoder(dictfile);
+        byte[]     comp    = compress(encoder, data);
+        byte[]     plain   = compress(new LzwEncoder(maxcwlen, policy), data);
+
+        check(encoder.status() == NOERROR, what + " encoder status");
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, what + " round trip");
+
+        if (related)
+            check(comp.length < plain.length, what + " smaller primed (" + comp.length + " vs " + plain.length + ")");
+    }
+
+    // A primed stream needs the dictionary it was compressed with, and a
+    // dictionary can only prime streams with its parameters
+    private void mismatched(DictFile dictfile) {
+
+        byte[]     data  = text(5000, 85);
+        byte[]     comp  = compress(new LzwEncoder(12, POLICY_RESET, dictfile), data);
+        DictFile   other = train(text(200000, 86), 12, POLICY_RESET);
+        LzwDecoder decoder;
+
+        decoder = new LzwDecoder();
+        check(decompress(decoder, comp, data.length) == null && decoder.status() == DICTFILE_ERROR, 
+              "missing dictionary");
+
+        decoder = new LzwDecoder(other);
+        check(decompress(decoder, comp, data.length) == null && decoder.status() == DICTFILE_ERROR, 
+              "different dictionary");
+
+        check(new LzwEncoder(16, POLICY_RESET, dictfile).status() == DICTFILE_ERROR, "other codeword length");
+        check(new LzwEncoder(12, POLICY_RATIO, dictfile).status() == DICTFILE_ERROR, "other CLEAR setting");
+    }
+
+    // Damaged dictionary files are rejected when loaded
+    private void corrupt(byte[] file) {
+
+        byte[] bad;
+
+        bad = file.clone();
+        bad[2] = 'W';
+        check(load_status(bad) == DICTFILE_ERROR, "not a dictionary file");
+
+        bad = file.clone();
+        bad[4] = 30;
+        check(load_status(bad) == DICTFILE_ERROR, "bad codeword length");
+
+        bad = file.clone();
+        bad[bad.length - 1] ^= 1;
+        check(load_status(bad) == DICTFILE_ERROR, "corrupt entry");
+
+        bad = Arrays.copyOf(file, file.length / 2);
+        check(load_status(bad) == DICTFILE_ERROR, "truncated file");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // A dictionary trained on the sample, for streams with the parameters
+    private DictFile train(byte[] sample, int maxcwlen, int policy) {
+
+        DictFile dictfile = new DictFile();
+
+        check(dictfile.train(new BufferedInputStream(new ByteArrayInputStream(sample)), 
+                             new Header(maxcwlen, policy)) == NOERROR, "trained");
+
+        return dictfile;
+    }
+
+    // A dictionary, as written to its file
+    private static byte[] save(DictFile dictfile) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        dictfile.write(new BufferedOutputStream(out));
+
+        return out.toByteArray();
+    }
+
+    // A dictionary read from a file, or null if it couldn't be read
+    private static DictFile load(byte[] file) {
+
+        DictFile dictfile = new DictFile();
+
+        return (dictfile.read(new BufferedInputStream(new ByteArrayInputStream(file))) == NOERROR) ? dictfile : null;
+    }
+
+    private static int load_status(byte[] file) {
+        return new DictFile().read(new BufferedInputStream(new ByteArrayInputStream(file)));
+    }
+}
@@ -0,0 +1,155 @@
+//=======================================================================
+//
+// FrameTest.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of framed streams, compressed by FrameComp and decompressed by
+// FrameDecomp: the stream doesn't depend on the number of threads, 
+// round trips over block boundaries, framed streams are recognised,
+// and truncated or corrupt streams fail.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.Arrays;
+
+public class FrameTest extends LzwTest {
+
+    private static final int BLOCKSIZE = 0x2000;
+
+    public FrameTest() {
+        super("FrameTest");
+    }
+
+    public static void main(String[] argv) {
+        FrameTest test = new FrameTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        byte[] data = text(10 * BLOCKSIZE + 123, 20);
+        byte[] comp = framed(1, data);
+        byte[] bad;
+
+        for (int threads : new int[] {2, 4, 7})
+            check(Arrays.equals(comp, framed(threads, data)), "same stream on " + threads + " threads");
+
+        check(FrameHeader.is_framed(new BufferedInputStream(new ByteArrayInputStream(comp))), "is framed");
+        check(!FrameHeader.is_framed(new BufferedInputStream(new ByteArrayInputStream(compress(new LzwEncoder(), data)))),
+              "plain stream not framed");
+
+        for (int len : new int[] {0, 1, BLOCKSIZE - 1, BLOCKSIZE, BLOCKSIZE + 1, 3 * BLOCKSIZE})
+            for (int threads : new int[] {1, 3})
+                check_data(data(len), unframe(threads, framed(threads, data(len))), 0, len,
+                           "round trip " + len + " on " + threads + " threads");
+
+        check_data(data, unframe(4, comp), 0, data.length, "round trip");
+
+        // A range coded template encoder's blocks
+        check_data(data, unframe(4, framed(4, data, range_encoder())), 0, data.length, "range coded blocks");
+
+        // Truncated, or with a corrupt block
+        check(unframe(4, Arrays.copyOf(comp, comp.length / 2)) == null, "truncated stream");
+
+        bad = comp.clone();
+        for (int idx = comp.length / 3; idx < comp.length / 2; idx += 10)
+            bad[idx] ^= 0x55;
+        check(unframe(4, bad) == null, "corrupt stream");
+
+        // A compressed length more than a block can compress to is 
+        // rejected, before its buffer is allocated (the first frame 
+        // header follows the container header)
+        for (int comp_len : new int[] {BLOCKSIZE * 4, Integer.MAX_VALUE}) {
+            bad = comp.clone();
+            for (int idx = 0; idx < 4; idx++)
+                bad[12 + idx] = (byte)(comp_len >> ((3 - idx) * BYTESIZE));
+            check(unframe_status(4, bad) == HEADER_ERROR, "compressed length " + comp_len);
+        }
+
+        // Blocks compressed to their largest still pass the check
+        data = random(3 * BLOCKSIZE, 21);
+        check_data(data, unframe(4, framed(4, data, range_encoder(MAXCWLENLIMIT))), 0, data.length, 
+                   "expanded blocks");
+        check_data(data, unframe(4, framed(4, data, new LzwEncoder(ZMAXCWLEN, POLICY_RATIO, null, FORMAT_Z))), 0,
+                   data.length, "expanded .Z blocks");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static byte[] data(int len) {
+        return text(len, len);
+    }
+
+    private static LzwEncoder range_encoder() {
+        return range_encoder(12);
+    }
+
+    private static LzwEncoder range_encoder(int maxcwlen) {
+        LzwEncoder encoder = new LzwEncoder(maxcwlen, POLICY_RESET);
+
+        encoder.set_range_coding(true);
+
+        return encoder;
+    }
+
+    private static byte[] framed(int threads, byte[] data) {
+        return framed(threads, data, new LzwEncoder(12, POLICY_RESET));
+    }
+
+    // Compresses data to a framed stream, on the given number of threads
+    private static byte[] framed(int threads, byte[] data, LzwEncoder template) {
+        ByteArrayOutputStream comp = new ByteArrayOutputStream();
+
+        new FrameComp(threads, BLOCKSIZE, template).compress(new ByteArrayInputStream(data), comp);
+
+        return comp.toByteArray();
+    }
+
+    // Decompresses a framed stream, returning null on an error
+    private static byte[] unframe(int threads, byte[] comp) {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        if (new FrameDecomp(threads, new LzwDecoder()).decompress(new ByteArrayInputStream(comp), data) != NOERROR)
+            return null;
+
+        return data.toByteArray();
+    }
+
+    // Decompresses a framed stream, returning the status
+    private static int unframe_status(int threads, byte[] comp) {
+        return new FrameDecomp(threads, new LzwDecoder()).decompress(new ByteArrayInputStream(comp), 
+                                                                     new ByteArrayOutputStream());
+    }
+}
@@ -0,0 +1,205 @@
+//=======================================================================
+//
+// HeaderTest.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of the stream header: headerless (legacy) streams, as written by
+// the Python version and older versions of this codec, read against a 
+// known vector and a reference legacy compressor (across dictionary 
+// resets), by each decoding method, and bad headers rejected.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.*;
+
+public class HeaderTest extends LzwTest {
+
+    // "TOBEORNOTTOBEORTOBEORNOT", as compressed by the Python version
+    private static final byte[] KNOWN = "TOBEORNOTTOBEORTOBEORNOT".getBytes();
+    private static final int[]  KNOWN_LEGACY = {
+        0x54, 0x9e, 0x08, 0x29, 0xf2, 0x44, 0x8a, 0x93, 0x27, 0x54, 0x00, 0x0a,
+        0x24, 0x98, 0x70, 0x60, 0xc1, 0x83
+    };
+
+    public HeaderTest() {
+        super("HeaderTest");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        HeaderTest test = new HeaderTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        LzwDecoder decoder = new LzwDecoder();
+        byte[]     known   = new byte[KNOWN_LEGACY.length];
+
+        for (int idx = 0; idx < known.length; idx++)
+            known[idx] = (byte)KNOWN_LEGACY[idx];
+
+        check(Arrays.equals(legacy_compress(KNOWN), known), "reference compressor");
+        check_data(KNOWN, decompress(decoder, known, KNOWN.length), 0, KNOWN.length, "known vector");
+
+        // Each input fills the dictionary several times, and the small
+        // alphabets give many KwK codewords, including straight after a
+        // reset
+        legacy(decoder, text(300000, 60), "text");
+        legacy(decoder, random(200000, 61), "random");
+        legacy(decoder, alphabet(300000, 2, 62), "two letter");
+        legacy(decoder, alphabet(300000, 3, 63), "three letter");
+        legacy(decoder, new byte[1], "one byte");
+        legacy(decoder, "L-L-L-L--L".getBytes(), "starting 'L', 'Z'");
+
+        check(decoder.decompress(new byte[0], 0, 0, new byte[1]) == 0, "empty stream");
+
+        headers(decoder);
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Decodes a legacy stream with each method
+    private void legacy(LzwDecoder decoder, byte[] data, String what) throws IOException {
+
+        byte[]                comp = legacy_compress(data);
+        ByteArrayOutputStream out  = new ByteArrayOutputStream();
+        InputStream           in;
+
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, what + " array");
+
+        check(decoder.decode(new ByteArrayInputStream(comp), out) == NOERROR, what + " stream status");
+        check_data(data, out.toByteArray(), 0, out.size(), what + " stream");
+
+        in = new LzwInputStream(new ByteArrayInputStream(comp));
+        check_data(data, in.readAllBytes(), 0, data.length, what + " filter stream");
+    }
+
+    // Streams which start with this codec's magic number must have a good
+    // header
+    private void headers(LzwDecoder decoder) {
+
+        byte[] data = text(1000, 64);
+        byte[] comp = compress(new LzwEncoder(), data);
+        byte[] bad;
+
+        check(comp[0] == 'L' && comp[1] == 'Z' && comp[2] == 1, "magic number");
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, "header");
+
+        bad = comp.clone();
+        bad[2] = 3;
+        check(decompress(decoder, bad, data.length) == null && decoder.status() == HEADER_ERROR, "bad version");
+
+        bad = comp.clone();
+        bad[3] = 0x03;
+        check(decompress(decoder, bad, data.length) == null && decoder.status() == HEADER_ERROR, "bad flags");
+
+        bad = Arrays.copyOf(comp, 4);
+        check(decompress(decoder, bad, data.length) == null && decoder.status() == HEADER_ERROR, "truncated header");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Random letters from the first num of the alphabet
+    private static byte[] alphabet(int len, int num, long seed) {
+        Random rand = new Random(seed);
+        byte[] data = new byte[len];
+
+        for (int idx = 0; idx < len; idx++)
+            data[idx] = (byte)('a' + rand.nextInt(num));
+
+        return data;
+    }
+
+    // Compresses data to a legacy stream, as the Python version does: 9 to
+    // 12 bit codewords, packed LSB first, with the dictionary reset when 
+    // full and the entry built straight after the reset, and the last
+    // byte padded with ones
+    private static byte[] legacy_compress(byte[] data) {
+
+        ByteArrayOutputStream   out     = new ByteArrayOutputStream();
+        HashMap<Integer, Integer> entries = new HashMap<Integer, Integer>();
+        Integer                 match;
+        int                     previous = -1;
+        int                     next     = FIRSTCW;
+        int                     len      = MINCWLEN;
+        long                    barrel   = 0;
+        int                     residue  = 0;
+
+        for (byte val : data) {
+            int ipbyte = val & BYTEMASK;
+
+            if (previous == -1)
+                previous = ipbyte;
+            else if ((match = entries.get((previous << BYTESIZE) | ipbyte)) != null)
+                previous = match;
+            else {
+                barrel  |= (long)previous << residue;
+                residue += len;
+
+                for (; residue >= BYTESIZE; residue -= BYTESIZE, barrel >>= BYTESIZE)
+                    out.write((int)barrel);
+
+                if (next == 1 << MAXCWLEN) {
+                    entries.clear();
+                    next = FIRSTCW;
+                    len  = MINCWLEN;
+                }
+
+                entries.put((previous << BYTESIZE) | ipbyte, next);
+
+                if (len < MAXCWLEN && next == 1 << len)
+                    len++;
+
+                next++;
+                previous = ipbyte;
+            }
+        }
+
+        if (previous != -1) {
+            barrel  |= (long)previous << residue;
+            residue += len;
+        }
+
+        // The flush pads with the ones of a masked NULL codeword
+        barrel |= (long)((1 << MAXCWLEN) - 1) << residue;
+
+        for (; residue > 0; residue -= BYTESIZE, barrel >>= BYTESIZE)
+            out.write((int)barrel);
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,329 @@
+//=======================================================================
+//
+// ImageTest.java                                        date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of ImageLzwEncoder and ImageLzwDecoder: known GIF and TIFF 
+// vectors, codeword lengths for each minimum code size against streams
+// packed here, with and without early change, GIF sub-blocks, a 
+// destination too small for the strip, round trips through dictionary
+// CLEARs, and errors.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.*;
+
+public class ImageTest extends LzwTest {
+
+    // A 10x10 GIF image's pixels, and its image data (the minimum code 
+    // size, then the sub-blocks), from "What's In A GIF" (M. Flickinger)
+    private static final String GIF_PIXELS = 
+        "1111122222" + "1111122222" + "1111122222" + "1110000222" + "1110000222" +
+        "2220000111" + "2220000111" + "2222211111" + "2222211111" + "2222211111";
+    private static final int[]  GIF_DATA   = {
+        0x02, 0x16, 0x8c, 0x2d, 0x99, 0x87, 0x2a, 0x1c, 0xdc, 0x33, 0xa0, 0x02, 0x75,
+        0xec, 0x95, 0xfa, 0xa8, 0xde, 0x60, 0x8c, 0x04, 0x91, 0x4c, 0x01, 0x00
+    };
+
+    // The example strip from the TIFF 6.0 specification: the codewords
+    // CLEAR 7 258 8 8 258 6 6 EOI, in 9 bits, MSB first
+    private static final byte[] TIFF_PIXELS = {7, 7, 7, 8, 8, 7, 7, 6, 6};
+    private static final int[]  TIFF_DATA   = {
+        0x80, 0x01, 0xe0, 0x40, 0x80, 0x44, 0x08, 0x0c, 0x06, 0x80, 0x80
+    };
+
+    public ImageTest() {
+        super("ImageTest");
+    }
+
+    public static void main(String[] argv) {
+        ImageTest test = new ImageTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        known_vectors();
+
+        for (int mincodesize = IMAGEMINCODESIZE; mincodesize <= IMAGEMAXCODESIZE; mincodesize++) {
+            codeword_lengths(mincodesize, false, false, "GIF code size " + mincodesize);
+            round_trips(ImageLzwEncoder.gif(mincodesize), ImageLzwDecoder.gif(mincodesize), mincodesize, 
+                        "GIF code size " + mincodesize);
+        }
+
+        codeword_lengths(IMAGEMAXCODESIZE, true, true, "TIFF");
+        round_trips(ImageLzwEncoder.tiff(), ImageLzwDecoder.tiff(), IMAGEMAXCODESIZE, "TIFF");
+
+        sub_blocks();
+        truncated();
+        errors();
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Known streams decode to their images, and encoding the images gives
+    // the same streams
+    private void known_vectors() {
+
+        byte[] pixels = new byte[GIF_PIXELS.length()];
+        byte[] gif    = bytes(GIF_DATA);
+        byte[] tiff   = bytes(TIFF_DATA);
+        byte[] dst    = new byte[pixels.length];
+        byte[] comp;
+        int    len;
+
+        for (int idx = 0; idx < pixels.length; idx++)
+            pixels[idx] = (byte)(GIF_PIXELS.charAt(idx) - '0');
+
+        len = ImageLzwDecoder.gif(gif[0]).decode_blocks(gif, 1, gif.length - 1, dst, 0, dst.length);
+        check_data(pixels, dst, 0, len, "GIF vector decoded");
+
+        comp = new byte[ImageLzwEncoder.gif(2).encode_bound(pixels.length)];
+        len  = ImageLzwEncoder.gif(2).encode(pixels, 0, pixels.length, comp, 0);
+        check_data(Arrays.copyOfRange(gif, 2, gif.length - 1), comp, 0, len, "GIF vector encoded");
+
+        dst = new byte[TIFF_PIXELS.length];
+        len = ImageLzwDecoder.tiff().decode(tiff, 0, tiff.length, dst, 0, dst.length);
+        check_data(TIFF_PIXELS, dst, 0, len, "TIFF vector decoded");
+
+        comp = new byte[ImageLzwEncoder.tiff().encode_bound(TIFF_PIXELS.length)];
+        len  = ImageLzwEncoder.tiff().encode(TIFF_PIXELS, 0, TIFF_PIXELS.length, comp, 0);
+        check_data(tiff, comp, 0, len, "TIFF vector encoded");
+    }
+
+    // A strip with no repeated pairs of bytes is all root codewords, so
+    // its stream can be packed here, with the codeword length going up 
+    // as a decoder's next free entry reaches 2^length (or one less, with
+    // early change). Up to 12 bits, for the larger code sizes.
+    private void codeword_lengths(int mincodesize, boolean msbfirst, boolean earlychange, String what) {
+
+        byte[] data   = de_bruijn(1 << mincodesize, 3000);
+        byte[] expect = pack_roots(data, mincodesize, msbfirst, earlychange);
+        byte[] comp   = new byte[expect.length + 16];
+        byte[] dst    = new byte[data.length];
+        int    len;
+
+        len = new ImageLzwEncoder(mincodesize, msbfirst, earlychange).encode(data, 0, data.length, comp, 0);
+        check_data(expect, comp, 0, len, what + " codeword lengths encoded");
+
+        len = new ImageLzwDecoder(mincodesize, msbfirst, earlychange).decode(expect, 0, expect.length, dst, 0, dst.length);
+        check_data(data, dst, 0, len, what + " codeword lengths decoded");
+
+        // Without the right early change setting, the lengths go wrong
+        if (mincodesize == IMAGEMAXCODESIZE) {
+            len = new ImageLzwDecoder(mincodesize, msbfirst, !earlychange).decode(expect, 0, expect.length, dst, 0, dst.length);
+            check(len < 0 || !Arrays.equals(data, 0, data.length, dst, 0, len), what + " early change needed");
+        }
+    }
+
+    // Round trips of data with runs (many KwK codewords), text, and 
+    // random data, over enough codewords for the dictionary to be 
+    // cleared many times
+    private void round_trips(ImageLzwEncoder encoder, ImageLzwDecoder decoder, int mincodesize, String what) {
+
+        byte[][] inputs = {new byte[200000], text(200000, 70), random(200000, 71), new byte[0], random(1, 72)};
+        byte[]   comp, dst;
+        int      len;
+
+        for (byte[] input : inputs) {
+            byte[] data = input.clone();
+
+            for (int idx = 0; idx < data.length; idx++)
+                data[idx] &= (1 << mincodesize) - 1;
+
+            comp = new byte[encoder.encode_bound(data.length)];
+            dst  = new byte[data.length];
+            len  = encoder.encode(data, 0, data.length, comp, 0);
+            len  = decoder.decode(comp, 0, len, dst, 0, dst.length);
+
+            check_data(data, dst, 0, len, what + " round trip length " + data.length);
+        }
+    }
+
+    // GIF image data in sub-blocks, of any sizes, decodes as without them
+    private void sub_blocks() {
+
+        Random          rand    = new Random(73);
+        ImageLzwEncoder encoder = ImageLzwEncoder.gif(7);
+        byte[]          data    = text(100000, 74);
+        byte[]          comp    = new byte[encoder.encode_bound(data.length)];
+        byte[]          dst     = new byte[data.length];
+        int             len     = encoder.encode(data, 0, data.length, comp, 0);
+
+        for (int max_block : new int[] {255, 1, 17}) {
+            ByteArrayOutputStream blocks = new ByteArrayOutputStream();
+            byte[]                src;
+
+            for (int pos = 0, size; pos < len; pos += size) {
+                size = Math.min(1 + rand.nextInt(max_block), len - pos);
+                blocks.write(size);
+                blocks.write(comp, pos, size);
+            }
+
+            blocks.write(0);
+            blocks.write(comp, 0, 10);
+            src = blocks.toByteArray();
+
+            Arrays.fill(dst, (byte)0);
+            check_data(data, dst, 0, ImageLzwDecoder.gif(7).decode_blocks(src, 0, src.length, dst, 0, dst.length),
+                       "sub-blocks up to " + max_block);
+        }
+    }
+
+    // A destination shorter than the strip is filled, without writing past
+    // its end, even in the middle of a string
+    private void truncated() {
+
+        ImageLzwEncoder encoder = ImageLzwEncoder.tiff();
+        ImageLzwDecoder decoder = ImageLzwDecoder.tiff();
+        byte[]          data    = new byte[50000];
+        byte[]          comp    = new byte[encoder.encode_bound(data.length)];
+        byte[]          dst     = new byte[data.length];
+        int             len     = encoder.encode(data, 0, data.length, comp, 0);
+
+        for (int dstlen : new int[] {0, 1, 1000, 12345, data.length - 1}) {
+            Arrays.fill(dst, (byte)0x55);
+
+            check(decoder.decode(comp, 0, len, dst, 0, dstlen) == dstlen && decoder.status() == NOERROR, 
+                  "truncated to " + dstlen);
+            check(Arrays.equals(data, 0, dstlen, dst, 0, dstlen) && 
+                  (dstlen == dst.length || dst[dstlen] == 0x55), "truncated contents " + dstlen);
+        }
+    }
+
+    // Bad code sizes, bytes, destinations and codewords
+    private void errors() {
+
+        ImageLzwEncoder encoder = ImageLzwEncoder.gif(2);
+        byte[]          data    = {0, 1, 2, 3, 4};
+        byte[]          comp    = new byte[100];
+        byte[]          dst     = new byte[100];
+
+        check(encoder.configure(IMAGEMINCODESIZE - 1, false, false) == USER_ERROR, "code size too small");
+        check(encoder.configure(IMAGEMAXCODESIZE + 1, false, false) == USER_ERROR, "code size too large");
+        check(encoder.configure(2, false, false) == NOERROR, "code size reconfigured");
+
+        check(encoder.encode(data, 0, data.length, comp, 0) == -1 && encoder.status() == USER_ERROR, 
+              "byte too large for code size");
+        check(encoder.encode(data, 0, 4, new byte[1], 0) == -1 && encoder.status() == BUFFER_ERROR, 
+              "destination too small");
+
+        // CLEAR, then 7, which isn't a root
+        comp[0] = (byte)(4 | 7 << 3);
+        check(ImageLzwDecoder.gif(2).decode(comp, 0, 2, dst, 0, dst.length) == -1, "first codeword not a root");
+
+        // CLEAR, 1, then 7, which is past the next free entry (6)
+        comp[0] = (byte)(4 | 1 << 3 | 7 << 6);
+        comp[1] = (byte)(7 >> 2);
+        check(ImageLzwDecoder.gif(2).decode(comp, 0, 2, dst, 0, dst.length) == -1, "codeword not yet built");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static byte[] bytes(int[] vals) {
+        byte[] data = new byte[vals.length];
+
+        for (int idx = 0; idx < vals.length; idx++)
+            data[idx] = (byte)vals[idx];
+
+        return data;
+    }
+
+    // Up to max bytes of a de Bruijn sequence over num symbols, in which 
+    // each pair of symbols appears just once: each symbol, and each pair
+    // of it and a larger symbol (the Lyndon words), then the first again
+    private static byte[] de_bruijn(int num, int max) {
+        ByteArrayOutputStream seq = new ByteArrayOutputStream();
+
+        for (int sym = 0; sym < num; sym++) {
+            seq.write(sym);
+
+            for (int next = sym + 1; next < num; next++) {
+                seq.write(sym);
+                seq.write(next);
+            }
+        }
+
+        seq.write(0);
+
+        return Arrays.copyOf(seq.toByteArray(), Math.min(seq.size(), max));
+    }
+
+    // Packs CLEAR, the data bytes as root codewords, and EOI. A decoder
+    // builds an entry for each codeword after the first, and reads the
+    // next codeword at the length that leaves.
+    private static byte[] pack_roots(byte[] data, int mincodesize, boolean msbfirst, boolean earlychange) {
+
+        ByteArrayOutputStream out     = new ByteArrayOutputStream();
+        int[]                 cws     = new int[data.length + 2];
+        int                   clear   = 1 << mincodesize;
+        int                   next    = clear + 2;
+        int                   cw_len  = mincodesize + 1;
+        long                  barrel  = 0;
+        int                   bits    = 0;
+
+        cws[0] = clear;
+        cws[cws.length - 1] = clear + 1;
+
+        for (int idx = 0; idx < data.length; idx++)
+            cws[idx + 1] = data[idx] & BYTEMASK;
+
+        for (int idx = 0; idx < cws.length; idx++) {
+            if (msbfirst)
+                barrel = (barrel << cw_len) | cws[idx];
+            else
+                barrel |= (long)cws[idx] << bits;
+
+            for (bits += cw_len; bits >= BYTESIZE; bits -= BYTESIZE) {
+                out.write((int)(msbfirst ? barrel >>> (bits - BYTESIZE) : barrel));
+
+                if (!msbfirst)
+                    barrel >>>= BYTESIZE;
+            }
+
+            // The data codewords after the first each build an entry
+            if (idx >= 2 && idx < cws.length - 1 && ++next == (1 << cw_len) - (earlychange ? 1 : 0) &&
+                cw_len < IMAGEMAXCWLEN)
+                cw_len++;
+        }
+
+        if (bits > 0)
+            out.write((int)(msbfirst ? barrel << (BYTESIZE - bits) : barrel));
+
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,218 @@
+//=======================================================================
+//
+// IoErrorTest.java                                      date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of IO errors: an input or output stream which fails part way
+// through makes the engines, and the framed, pipelined, dictionary and
+// index readers and writers, return IO_ERROR to the caller (rather than
+// exiting), and the engines can be used again afterwards.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+
+public class IoErrorTest extends LzwTest {
+
+    // Point at which the streams fail
+    private static final int FAILAT = 50000;
+
+    public IoErrorTest() {
+        super("IoErrorTest");
+    }
+
+    public static void main(String[] argv) {
+        IoErrorTest test = new IoErrorTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() {
+
+        byte[] data = text(300000, 80);
+
+        engines(data);
+        frames(data);
+        pipelined(data);
+        files(data);
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Pooled and new encoders and decoders
+    private void engines(byte[] data) {
+
+        LzwPool    pool    = new LzwPool();
+        LzwEncoder encoder = pool.acquire_encoder();
+        LzwDecoder decoder = pool.acquire_decoder();
+        byte[]     comp    = compress(new LzwEncoder(), data);
+        ByteArrayOutputStream out;
+
+        check(encoder.encode(new FailingInput(data), new ByteArrayOutputStream()) == IO_ERROR, "encoder input");
+        check(encoder.encode(new ByteArrayInputStream(data), new FailingOutput()) == IO_ERROR, "encoder output");
+
+        check(decoder.decode(new FailingInput(comp), new ByteArrayOutputStream()) == IO_ERROR, "decoder input");
+        check(decoder.decode(new ByteArrayInputStream(comp), new FailingOutput()) == IO_ERROR, "decoder output");
+
+        // The engines carry on afterwards
+        out = new ByteArrayOutputStream();
+        check(encoder.encode(new ByteArrayInputStream(data), out) == NOERROR, "encoder after error");
+
+        comp = out.toByteArray();
+        out  = new ByteArrayOutputStream();
+        check(decoder.decode(new ByteArrayInputStream(comp), out) == NOERROR, "decoder after error");
+        check_data(data, out.toByteArray(), 0, out.size(), "round trip after error");
+
+        pool.release_encoder(encoder);
+        pool.release_decoder(decoder);
+    }
+
+    // Framed compression and decompression
+    private void frames(byte[] data) {
+
+        FrameComp             comp   = new FrameComp(2, 0x2000, new LzwEncoder());
+        FrameDecomp           decomp = new FrameDecomp(2, new LzwDecoder());
+        ByteArrayOutputStream out    = new ByteArrayOutputStream();
+
+        check(comp.compress(new FailingInput(data), new ByteArrayOutputStream()) == IO_ERROR, "framed input");
+        check(comp.compress(new ByteArrayInputStream(data), new FailingOutput()) == IO_ERROR, "framed output");
+
+        check(comp.compress(new ByteArrayInputStream(data), out) == NOERROR, "framed after error");
+
+        check(decomp.decompress(new FailingInput(out.toByteArray()), new ByteArrayOutputStream()) == IO_ERROR,
+              "unframed input");
+        check(decomp.decompress(new ByteArrayInputStream(out.toByteArray()), new FailingOutput()) == IO_ERROR,
+              "unframed output");
+    }
+
+    // Pipelined compression
+    private void pipelined(byte[] data) {
+        check(new PipeComp(12, POLICY_RESET).compress(new FailingInput(data), new ByteArrayOutputStream()) == IO_ERROR,
+              "pipelined input");
+        check(new PipeComp(12, POLICY_RESET).compress(new ByteArrayInputStream(data), new FailingOutput()) == IO_ERROR,
+              "pipelined output");
+    }
+
+    // Dictionary and index files
+    private void files(byte[] data) {
+
+        DictFile              dictfile = new DictFile();
+        SeekIndex             index    = new SeekIndex(0x1000);
+        LzwEncoder            encoder  = new LzwEncoder(12, POLICY_RESET);
+        ByteArrayOutputStream out      = new ByteArrayOutputStream();
+
+        check(dictfile.train(new BufferedInputStream(new FailingInput(data)), new Header(12, POLICY_RESET)) == IO_ERROR,
+              "dictionary training input");
+        check(dictfile.train(new BufferedInputStream(new ByteArrayInputStream(data)), 
+                             new Header(12, POLICY_RESET)) == NOERROR, "dictionary trained");
+        check(dictfile.write(new BufferedOutputStream(new FailingOutput(10))) == IO_ERROR, "dictionary output");
+
+        dictfile.write(new BufferedOutputStream(out));
+        check(new DictFile().read(new BufferedInputStream(new FailingInput(out.toByteArray(), 100))) == IO_ERROR,
+              "dictionary input");
+
+        encoder.set_index(index);
+        compress(encoder, data);
+        check(index.write(new BufferedOutputStream(new FailingOutput(10))) == IO_ERROR, "index output");
+
+        out = new ByteArrayOutputStream();
+        index.write(new BufferedOutputStream(out));
+        check(new SeekIndex().read(new BufferedInputStream(new FailingInput(out.toByteArray(), 100))) == IO_ERROR,
+              "index input");
+    }
+
+    //=======================================================================
+    // Failing streams
+    //=======================================================================
+
+    // Reads the data, failing at a point before its end
+    private static class FailingInput extends InputStream {
+
+        private byte[] data;
+        private int    pos;
+        private int    fail_at;
+
+        FailingInput(byte[] dat) {
+            this(dat, Math.min(FAILAT, dat.length / 2));
+        }
+
+        FailingInput(byte[] dat, int failat) {
+            data    = dat;
+            fail_at = failat;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+
+            return (read(b, 0, 1) == 1) ? (b[0] & BYTEMASK) : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (pos >= fail_at)
+                throw new IOException("input failed");
+
+            len = Math.min(len, fail_at - pos);
+            System.arraycopy(data, pos, b, off, len);
+            pos += len;
+
+            return len;
+        }
+    }
+
+    // Takes limit bytes, then fails
+    private static class FailingOutput extends OutputStream {
+
+        private int limit;
+
+        FailingOutput() {
+            this(FAILAT / 4);
+        }
+
+        FailingOutput(int lim) {
+            limit = lim;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte)b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if ((limit -= len) < 0)
+                throw new IOException("output failed");
+        }
+    }
+}
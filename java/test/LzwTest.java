@@ -0,0 +1,137 @@
+//=======================================================================
+//
+// LzwTest.java                                          date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// The LzwTest class is the base of the codec's tests. Each test is a
+// program, run by 'make test', which counts the checks that fail and
+// exits with a non-zero status if any did. The test data is generated
+// from a seed, so every run checks the same data: text like data, built
+// from a small vocabulary so that it compresses well, and random bytes,
+// which don't compress at all.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class LzwTest extends Lz {
+
+    // Vocabulary of the text like data
+    private static final String[] WORDS = {
+        "the ", "codeword ", "dictionary ", "of ", "and ", "string ", "a ",
+        "compress ", "entry ", "to ", "byte ", "stream ", "is ", "in ",
+        "reset ", "\n", "length ", "LZW ", "data ", ", "
+    };
+
+    private String name;
+    private int    checks;
+    private int    failures;
+
+    //=======================================================================
+    // Constructor
+    //=======================================================================
+
+    public LzwTest(String test_name) {
+        name = test_name;
+    }
+
+    //=======================================================================
+    // Method name: check
+    //
+    // Description:
+    //    Records a check, reporting it if it failed.
+    //=======================================================================
+
+    public void check(boolean passed, String what) {
+        checks++;
+
+        if (!passed) {
+            failures++;
+            System.out.format("%s: FAILED --- %s\n", name, what);
+        }
+    }
+
+    // Checks that len bytes of data from off match the expected bytes
+    // (failing if there's no data)
+    public void check_data(byte[] expect, byte[] data, int off, int len, String what) {
+        check(data != null && len == expect.length &&
+              Arrays.equals(expect, 0, expect.length, data, off, off + len), what);
+    }
+
+    //=======================================================================
+    // Method name: finish
+    //
+    // Description:
+    //    Reports the test's result, and exits with the number of failures
+    //    as the status (up to 100).
+    //=======================================================================
+
+    public void finish() {
+        System.out.format("%s: %d checks, %d failed\n", name, checks, failures);
+        System.exit(Math.min(failures, 100));
+    }
+
+    //=======================================================================
+    // Test data generators
+    //=======================================================================
+
+    // Text like data of len bytes
+    public static byte[] text(int len, long seed) {
+        Random        rand = new Random(seed);
+        StringBuilder sb   = new StringBuilder(len + 16);
+
+        while (sb.length() < len)
+            sb.append(WORDS[Math.min(rand.nextInt(WORDS.length), rand.nextInt(WORDS.length))]);
+
+        return Arrays.copyOf(sb.toString().getBytes(), len);
+    }
+
+    // Random bytes
+    public static byte[] random(int len, long seed) {
+        byte[] data = new byte[len];
+
+        new Random(seed).nextBytes(data);
+
+        return data;
+    }
+
+    // Compresses data with an encoder, returning the compressed stream
+    public static byte[] compress(LzwEncoder encoder, byte[] data) {
+        byte[] comp = new byte[encoder.compress_bound(data.length)];
+        int    len  = encoder.compress(data, 0, data.length, comp);
+
+        return (len < 0) ? null : Arrays.copyOf(comp, len);
+    }
+
+    // Decompresses a stream of a known length with a decoder, returning
+    // the data, or null on an error
+    public static byte[] decompress(LzwDecoder decoder, byte[] comp, int len) {
+        byte[] data = new byte[len];
+
+        return (comp != null && decoder.decompress(comp, 0, comp.length, data) == len) ? data : null;
+    }
+}
@@ -0,0 +1,277 @@
+//=======================================================================
+//
+// PipeTest.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of pipelined compression: PipeComp's output is byte for byte 
+// the serial encoder's, for each configuration of the encoder (the seek
+// index included), and the SpscRing connecting its stages keeps its 
+// items in order as it wraps, waits when full or empty, and gives up 
+// when aborted.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.*;
+
+public class PipeTest extends LzwTest {
+
+    private static final int RINGSIZE = 4;
+
+    // Delay before a helper thread acts, long enough for the thread 
+    // under test to be waiting
+    private static final long DELAYMS = 50;
+
+    public PipeTest() {
+        super("PipeTest");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        PipeTest test = new PipeTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws Exception {
+
+        byte[]     data     = text(1000000, 70);
+        DictFile   dictfile = new DictFile();
+        LzwEncoder encoder;
+
+        dictfile.train(new BufferedInputStream(new ByteArrayInputStream(text(100000, 71))), 
+                       new Header(12, POLICY_RESET));
+
+        identical(new LzwEncoder(), null, data, "default");
+        identical(new LzwEncoder(16, POLICY_RATIO), null, data, "ratio");
+        identical(new LzwEncoder(12, POLICY_LRU), null, data, "lru");
+        identical(new LzwEncoder(24, POLICY_FREEZE), null, random(300000, 72), "random");
+        identical(new LzwEncoder(), null, new byte[0], "empty");
+        identical(new LzwEncoder(), null, new byte[1], "one byte");
+        identical(new LzwEncoder(12, POLICY_RESET, dictfile), dictfile, data, "primed");
+        identical(new LzwEncoder(12, POLICY_RATIO, null, FORMAT_Z), null, data, ".Z ratio");
+        identical(new LzwEncoder(9, POLICY_FREEZE, null, FORMAT_Z), null, data, ".Z freeze");
+
+        encoder = new LzwEncoder(12, POLICY_RATIO);
+        encoder.set_range_coding(true);
+        identical(encoder, null, data, "range coded");
+
+        encoder = new LzwEncoder(12, POLICY_RATIO);
+        encoder.set_phased_coding(true);
+        identical(encoder, null, data, "phased in");
+
+        encoder = new LzwEncoder(12, POLICY_RESET, dictfile);
+        encoder.set_phased_coding(true);
+        identical(encoder, dictfile, data, "primed phased in");
+
+        encoder = new LzwEncoder(16, POLICY_FREEZE);
+        encoder.set_max_string_length(20);
+        identical(encoder, null, new byte[200000], "maximum string length");
+
+        indexed(new LzwEncoder(12, POLICY_RESET), data, "indexed");
+
+        encoder = new LzwEncoder(12, POLICY_RESET);
+        encoder.set_phased_coding(true);
+        indexed(encoder, data, "indexed phased in");
+
+        check(new PipeComp(8, POLICY_RESET).compress(new ByteArrayInputStream(data), 
+                                                     new ByteArrayOutputStream()) == USER_ERROR, "bad configuration");
+
+        ring_order();
+        ring_full();
+        ring_empty();
+        ring_threads();
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Compresses data with the encoder, serially and pipelined, and 
+    // decompresses it (with the encoder's trained dictionary, if any)
+    private void identical(LzwEncoder encoder, DictFile dictfile, byte[] data, String what) {
+
+        byte[] serial = compress(encoder, data);
+        byte[] piped  = pipe(encoder, data, what);
+
+        check(Arrays.equals(serial, piped), what + " identical");
+        check_data(data, decompress(new LzwDecoder(dictfile), piped, data.length), 0, data.length, what + " round trip");
+    }
+
+    // As identical(), with the seek indexes the same too
+    private void indexed(LzwEncoder encoder, byte[] data, String what) {
+
+        SeekIndex serial = new SeekIndex(0x1000);
+        SeekIndex piped  = new SeekIndex(0x1000);
+
+        encoder.set_index(serial);
+        compress(encoder, data);
+
+        encoder.set_index(piped);
+        pipe(encoder, data, what);
+
+        check(serial.points() > 1 && serial.points() == piped.points(), what + " index points");
+        check(Arrays.equals(index_bytes(serial), index_bytes(piped)), what + " index identical");
+
+        identical(encoder, null, data, what);
+    }
+
+    // Items keep their order as the ring wraps, put and taken a few at a
+    // time
+    private void ring_order() {
+
+        SpscRing<Integer> ring = new SpscRing<Integer>(RINGSIZE);
+        boolean           ok   = true;
+
+        for (int round = 0; round < 100; round++) {
+            for (int idx = 0; idx < RINGSIZE - 1; idx++)
+                ring.put(round * RINGSIZE + idx);
+
+            for (int idx = 0; idx < RINGSIZE - 1; idx++)
+                ok &= (ring.take() == round * RINGSIZE + idx);
+        }
+
+        check(ok, "ring wrap around");
+    }
+
+    // A put to a full ring waits, and gives up when the ring is aborted,
+    // leaving the items in it
+    private void ring_full() throws InterruptedException {
+
+        SpscRing<Integer> ring    = new SpscRing<Integer>(RINGSIZE);
+        boolean           ok      = true;
+        boolean           waited  = false;
+        Thread            aborter = delayed(ring::abort);
+
+        for (int idx = 0; idx < RINGSIZE; idx++)
+            ring.put(idx);
+
+        try {
+            ring.put(RINGSIZE);
+        } catch (IllegalStateException e) {
+            waited = true;
+        }
+
+        aborter.join();
+
+        for (int idx = 0; idx < RINGSIZE; idx++)
+            ok &= (ring.take() == idx);
+
+        check(waited, "full ring put waits");
+        check(ok, "full ring items kept");
+    }
+
+    // A take from an empty ring waits, until an item is put, or the ring
+    // is aborted
+    private void ring_empty() throws InterruptedException {
+
+        SpscRing<Integer> ring   = new SpscRing<Integer>(RINGSIZE);
+        boolean           waited = false;
+        Thread            putter = delayed(() -> ring.put(42));
+
+        check(ring.take() == 42, "empty ring take waits for put");
+        putter.join();
+
+        putter = delayed(ring::abort);
+
+        try {
+            ring.take();
+        } catch (IllegalStateException e) {
+            waited = true;
+        }
+
+        putter.join();
+        check(waited, "empty ring take aborted");
+    }
+
+    // Many items passed between two threads, with the ring filling and 
+    // emptying, arrive in order
+    private void ring_threads() throws InterruptedException {
+
+        SpscRing<Integer> ring     = new SpscRing<Integer>(RINGSIZE);
+        int               count    = 100000;
+        boolean           ok       = true;
+        Thread            producer = new Thread(() -> {
+            for (int idx = 0; idx < count; idx++)
+                ring.put(idx);
+        });
+
+        producer.start();
+
+        for (int idx = 0; idx < count; idx++)
+            ok &= (ring.take() == idx);
+
+        producer.join();
+        check(ok, "ring between threads");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Compresses data pipelined with the encoder, returning the stream
+    private byte[] pipe(LzwEncoder encoder, byte[] data, String what) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        check(new PipeComp(encoder).compress(new ByteArrayInputStream(data), out) == NOERROR, what + " status");
+
+        return out.toByteArray();
+    }
+
+    // A seek index, as written to its file
+    private static byte[] index_bytes(SeekIndex index) {
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BufferedOutputStream  op  = new BufferedOutputStream(out);
+
+        index.write(op);
+
+        return out.toByteArray();
+    }
+
+    // Starts a thread running action after a delay
+    private static Thread delayed(Runnable action) {
+
+        Thread thread = new Thread(() -> {
+            try {
+                Thread.sleep(DELAYMS);
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            action.run();
+        });
+
+        thread.start();
+
+        return thread;
+    }
+}
@@ -0,0 +1,238 @@
+//=======================================================================
+//
+// PoolTest.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of LzwPool: engines used concurrently by many threads, reused
+// engines giving the same streams as new ones, engines configured from
+// template encoders and decoders, and released engines restored to the
+// template's settings.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+public class PoolTest extends LzwTest {
+
+    private static final int THREADS = 8;
+    private static final int INPUTS  = 200;
+
+    public PoolTest() {
+        super("PoolTest");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        PoolTest test = new PoolTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws Exception {
+        concurrent(new LzwPool(4, 12, POLICY_RESET), "plain");
+        templates();
+        released();
+        released_decoder();
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Many threads compress and decompress inputs, with pooled engines,
+    // checking each stream is the same as a new encoder's
+    private void concurrent(LzwPool pool, String what) throws Exception {
+
+        ExecutorService           workers = Executors.newFixedThreadPool(THREADS);
+        ArrayList<Future<String>> results = new ArrayList<Future<String>>();
+        LzwEncoder                fresh   = pool.acquire_encoder();
+        byte[][]                  expect  = new byte[INPUTS][];
+        int                       failed  = 0;
+
+        // The expected streams, each from a new encoder
+        for (int idx = 0; idx < INPUTS; idx++)
+            expect[idx] = compress(fresh.copy(), input(idx));
+
+        for (int idx = 0; idx < INPUTS; idx++) {
+            final int input = idx;
+            results.add(workers.submit(() -> code_input(pool, input, expect[input])));
+        }
+
+        for (Future<String> result : results)
+            if (result.get() != null) {
+                check(false, what + " " + result.get());
+                failed++;
+            }
+
+        workers.shutdown();
+
+        check(failed == 0, what + " concurrent coding");
+    }
+
+    // Pools configured from templates, with range coding, phased in 
+    // codewords, a maximum string length, and a string cache
+    private void templates() throws Exception {
+
+        LzwEncoder range   = new LzwEncoder(16, POLICY_LRU);
+        LzwEncoder phased  = new LzwEncoder(12, POLICY_RESET);
+        LzwDecoder cached  = new LzwDecoder();
+        LzwPool    pool;
+        LzwEncoder encoder;
+        byte[]     data    = input(1);
+
+        range.set_range_coding(true);
+        phased.set_phased_coding(true);
+        phased.set_max_string_length(20);
+        cached.set_string_cache(1 << 16);
+
+        pool    = new LzwPool(2, range, cached);
+        encoder = pool.acquire_encoder();
+
+        check(Arrays.equals(compress(encoder, data), compress(range, data)), "range coding template");
+        check(pool.acquire_decoder().string_cache() != null, "string cache template");
+
+        concurrent(pool, "range coded");
+
+        // The pool has its own copy of the template
+        range.set_range_coding(false);
+        check(!Arrays.equals(compress(pool.acquire_encoder(), data), compress(range, data)), "template copied");
+
+        pool    = new LzwPool(2, phased, new LzwDecoder());
+        encoder = pool.acquire_encoder();
+
+        check(encoder.max_string_length() == 20, "maximum string length template");
+        check(Arrays.equals(compress(encoder, data), compress(phased, data)), "phased in template");
+
+        concurrent(pool, "phased in");
+    }
+
+    // An encoder whose settings are changed, and given an index, comes 
+    // back from the pool with the template's settings, and no index
+    private void released() throws Exception {
+
+        LzwEncoder range   = new LzwEncoder(12, POLICY_RESET);
+        SeekIndex  index   = new SeekIndex(0x1000);
+        byte[]     data    = input(20);
+        byte[]     other   = input(21);
+        LzwPool    pool;
+        LzwEncoder encoder;
+        long       indexed;
+
+        range.set_range_coding(true);
+
+        pool    = new LzwPool(1, range, new LzwDecoder());
+        encoder = pool.acquire_encoder();
+
+        encoder.set_range_coding(false);
+        encoder.set_phased_coding(true);
+        encoder.set_max_string_length(50);
+        encoder.set_sync_flush(true);
+        encoder.set_index(index);
+        compress(encoder, data);
+
+        indexed = index.length();
+        pool.release_encoder(encoder);
+
+        check(pool.acquire_encoder() == encoder, "released encoder reused");
+        check(encoder.max_string_length() == 0, "released maximum string length");
+        check(Arrays.equals(compress(encoder, other), compress(range, other)), "released settings");
+        check(indexed == data.length && index.length() == indexed, "released index removed");
+    }
+
+    // A decoder whose string cache is changed, or removed, comes back from
+    // the pool with the template's string cache
+    private void released_decoder() throws Exception {
+
+        LzwDecoder cached  = new LzwDecoder();
+        LzwEncoder encoder = new LzwEncoder(12, POLICY_RESET);
+        byte[]     data    = input(22);
+        byte[]     comp    = compress(encoder, data);
+        LzwPool    pool;
+        LzwDecoder decoder;
+
+        cached.set_string_cache(1 << 16);
+
+        pool    = new LzwPool(1, encoder, cached);
+        decoder = pool.acquire_decoder();
+
+        decoder.set_string_cache(0);
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, "uncached decode");
+        pool.release_decoder(decoder);
+
+        check(pool.acquire_decoder() == decoder, "released decoder reused");
+        check(decoder.string_cache() != null, "released string cache restored");
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, "released cached decode");
+
+        decoder.set_string_cache(1 << 12);
+        pool.release_decoder(decoder);
+
+        check(pool.acquire_decoder() == decoder, "resized decoder reused");
+        check(decoder.string_cache() != null && decoder.string_cache().arena_size() == cached.string_cache().arena_size(), 
+              "released string cache size restored");
+
+        // A pool without a cache removes a worker's cache
+        pool    = new LzwPool(1, encoder, new LzwDecoder());
+        decoder = pool.acquire_decoder();
+
+        decoder.set_string_cache(1 << 16);
+        pool.release_decoder(decoder);
+
+        check(pool.acquire_decoder() == decoder && decoder.string_cache() == null, "released string cache removed");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Compresses and decompresses an input with pooled engines, returning
+    // null, or what failed
+    private static String code_input(LzwPool pool, int idx, byte[] expect) {
+
+        LzwEncoder encoder = pool.acquire_encoder();
+        LzwDecoder decoder = pool.acquire_decoder();
+        byte[]     data    = input(idx);
+        byte[]     comp    = compress(encoder, data);
+        byte[]     got     = decompress(decoder, comp, data.length);
+
+        pool.release_encoder(encoder);
+        pool.release_decoder(decoder);
+
+        if (!Arrays.equals(comp, expect))
+            return "stream " + idx + " differs";
+
+        return Arrays.equals(got, data) ? null : "round trip " + idx;
+    }
+
+    // Inputs of varied sizes, some random
+    private static byte[] input(int idx) {
+        return (idx % 5 == 4) ? random(idx * 50, idx) : text(idx * 531 + 1, idx);
+    }
+}
@@ -0,0 +1,123 @@
+//=======================================================================
+//
+// SeekTest.java                                         date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of seek indexes: ranges read with a SeekReader match the data,
+// for streams whose dictionary is reset (with many restart points) or
+// never reset (with just the start), and an index written and read back
+// is the same.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.Arrays;
+
+public class SeekTest extends LzwTest {
+
+    // Index spacing, so that a small stream has many points
+    private static final long SPACING = 0x1000;
+
+    public SeekTest() {
+        super("SeekTest");
+    }
+
+    public static void main(String[] argv) throws IOException {
+        SeekTest test = new SeekTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        byte[] data = text(400000, 30);
+
+        ranges(data, 9, POLICY_RESET, true);
+        ranges(data, 12, POLICY_RATIO, false);
+        ranges(data, 12, POLICY_LRU, false);
+        ranges(random(100000, 31), 10, POLICY_RESET, true);
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Compresses data with an index, and reads ranges of it
+    private void ranges(byte[] data, int maxcwlen, int policy, boolean resets) throws IOException {
+
+        LzwEncoder  encoder = new LzwEncoder(maxcwlen, policy);
+        SeekIndex   index   = new SeekIndex(SPACING);
+        SeekIndex   copy    = new SeekIndex();
+        Path        file    = Files.createTempFile("SeekTest", ".lzw");
+        Path        ixfile  = Files.createTempFile("SeekTest", ".lzx");
+        String      what    = "policy " + policy + " bits " + maxcwlen;
+        SeekReader  reader;
+        FileChannel ch;
+        byte[]      got;
+
+        encoder.set_index(index);
+        Files.write(file, compress(encoder, data));
+
+        check(index.length() == data.length, "index length " + what);
+        check(resets ? index.points() > data.length / SPACING / 4 : index.points() >= 1, "index points " + what);
+
+        // Written and read back
+        try (BufferedOutputStream op = new BufferedOutputStream(Files.newOutputStream(ixfile))) {
+            index.write(op);
+        }
+
+        try (BufferedInputStream ip = new BufferedInputStream(Files.newInputStream(ixfile))) {
+            check(copy.read(ip) == NOERROR && copy.length() == index.length() && copy.points() == index.points(),
+                  "index read back " + what);
+        }
+
+        ch     = FileChannel.open(file, StandardOpenOption.READ);
+        reader = new SeekReader(ch, copy);
+
+        for (long off : new long[] {0, 1, SPACING - 1, SPACING, 12345, data.length / 2, data.length - 10}) {
+            for (int len : new int[] {0, 1, 100, 5000}) {
+                got = reader.read(off, len);
+                check_data(Arrays.copyOfRange(data, (int)off, (int)Math.min(off + len, data.length)),
+                           got, 0, (got == null) ? 0 : got.length, "range " + off + ":" + len + " " + what);
+            }
+        }
+
+        // Past the end, the range is cut short
+        check(reader.read(data.length, 10).length == 0, "range at end " + what);
+        check(reader.read(-1, 10) == null && reader.status() == USER_ERROR, "bad range " + what);
+
+        ch.close();
+        Files.delete(file);
+        Files.delete(ixfile);
+    }
+}
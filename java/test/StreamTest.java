@@ -0,0 +1,328 @@
+//=======================================================================
+//
+// StreamTest.java                                       date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of the LzwOutputStream and LzwInputStream filter streams: round
+// trips written and read in various sizes of chunk, single byte reads,
+// skip(), input arriving a byte at a time, short sync flushed messages
+// over a pipe, the sync flush latency, finished streams, and corrupt
+// streams.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.concurrent.*;
+
+public class StreamTest extends LzwTest {
+
+    public StreamTest() {
+        super("StreamTest");
+    }
+
+    public static void main(String[] argv) throws IOException {
+        StreamTest test = new StreamTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        byte[] data;
+
+        for (int len : new int[] {0, 1, 100, 70000, 300000}) {
+            data = text(len, len);
+
+            round_trip(data, 12, POLICY_RESET, len + 1, "reset " + len);
+            round_trip(data, 16, POLICY_LRU, 7, "lru " + len);
+            round_trip(data, 9, POLICY_RATIO, 4096, "ratio " + len);
+        }
+
+        round_trip(random(200000, 1), 12, POLICY_RESET, 1000, "random");
+
+        // Runs give strings far longer than a block, with strings that 
+        // could be up to 16M bytes long
+        round_trip(new byte[5000000], 24, POLICY_FREEZE, 1 << 20, "runs");
+
+        single_bytes(text(5000, 2));
+        skips(text(200000, 3));
+        trickle(text(100000, 4));
+        piped(null);
+        piped(new LzwEncoder(12, POLICY_RESET));
+        latency();
+        finished();
+        corrupt(text(100000, 5));
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Writes data in chunks of chunk bytes, and reads it back the same
+    private void round_trip(byte[] data, int maxcwlen, int policy, int chunk, String what) throws IOException {
+
+        ByteArrayOutputStream comp = new ByteArrayOutputStream();
+        LzwOutputStream       out  = new LzwOutputStream(comp, maxcwlen, policy);
+
+        for (int off = 0; off < data.length; off += chunk)
+            out.write(data, off, Math.min(chunk, data.length - off));
+
+        out.close();
+
+        check_data(data, read_all(new LzwInputStream(new ByteArrayInputStream(comp.toByteArray())), chunk),
+                   0, data.length, "round trip " + what);
+    }
+
+    // Writes and reads a byte at a time
+    private void single_bytes(byte[] data) throws IOException {
+
+        ByteArrayOutputStream comp = new ByteArrayOutputStream();
+        LzwOutputStream       out  = new LzwOutputStream(comp);
+        LzwInputStream        in;
+        byte[]                got  = new byte[data.length];
+        int                   idx  = 0;
+        int                   b;
+
+        for (byte val : data)
+            out.write(val);
+
+        out.close();
+
+        in = new LzwInputStream(new ByteArrayInputStream(comp.toByteArray()));
+
+        while (idx < got.length && (b = in.read()) != -1)
+            got[idx++] = (byte)b;
+
+        check(idx == data.length && in.read() == -1, "single byte read length");
+        check_data(data, got, 0, idx, "single byte round trip");
+    }
+
+    // Skips through the data, checking the bytes read after each skip
+    private void skips(byte[] data) throws IOException {
+
+        LzwInputStream in = new LzwInputStream(new ByteArrayInputStream(compress_stream(data)));
+        byte[]         b  = new byte[10];
+        long           pos = 0;
+        int            len;
+
+        while (pos < data.length) {
+            pos += in.skip(12345);
+
+            if ((len = in.read(b, 0, b.length)) > 0) {
+                check_data(java.util.Arrays.copyOfRange(data, (int)pos, (int)pos + len), b, 0, len,
+                           "read after skip to " + pos);
+                pos += len;
+            } else
+                break;
+        }
+
+        check(pos == data.length && in.skip(1) == 0 && in.read() == -1, "skip to the end");
+        in.close();
+    }
+
+    // Reads a stream whose input arrives a byte at a time
+    private void trickle(byte[] data) throws IOException {
+
+        InputStream slow = new FilterInputStream(new ByteArrayInputStream(compress_stream(data))) {
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+
+        check_data(data, read_all(new LzwInputStream(slow), 4096), 0, data.length, "trickled input");
+    }
+
+    // Short messages, sync flushed over a pipe, reach the reader while the
+    // stream is still open. With an encoder, the header carries the 
+    // optional max string length field.
+    private void piped(LzwEncoder encoder) throws IOException {
+
+        PipedInputStream  pi     = new PipedInputStream(0x10000);
+        PipedOutputStream po     = new PipedOutputStream(pi);
+        LzwInputStream    in     = new LzwInputStream(pi);
+        ExecutorService   reader = Executors.newSingleThreadExecutor();
+        String            what   = (encoder == null) ? "plain header" : "strlen header";
+        LzwOutputStream   out;
+
+        if (encoder == null)
+            out = new LzwOutputStream(po, 12, POLICY_RESET, true);
+        else {
+            encoder.set_sync_flush(true);
+            encoder.set_max_string_length(100);
+            out = new LzwOutputStream(po, encoder);
+        }
+
+        try {
+            for (String msg : new String[] {"hi", "there", "hi there"}) {
+                Future<byte[]> got = reader.submit(() -> read_n(in, msg.length()));
+
+                out.write(msg.getBytes());
+                out.flush();
+
+                try {
+                    check(new String(got.get(5, TimeUnit.SECONDS)).equals(msg), "piped message " + msg + " " + what);
+                } catch (InterruptedException | ExecutionException | TimeoutException e) {
+                    check(false, "piped message " + msg + " " + what + " (" + e + ")");
+                    break;
+                }
+            }
+        } finally {
+            reader.shutdownNow();
+        }
+
+        out.close();
+    }
+
+    // The flush latency includes the time the sink takes to flush
+    private void latency() throws IOException {
+
+        final long      delay = 20;
+        OutputStream    slow  = new FilterOutputStream(new ByteArrayOutputStream()) {
+            public void flush() throws IOException {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                }
+                super.flush();
+            }
+        };
+        LzwOutputStream out   = new LzwOutputStream(slow, 12, POLICY_RESET, true);
+
+        check(out.flush_count() == 0 && out.mean_flush_latency() == 0, "no flushes");
+
+        for (int idx = 0; idx < 3; idx++) {
+            out.write(text(100, idx));
+            out.flush();
+        }
+
+        // A flush with nothing written isn't counted
+        out.flush();
+
+        check(out.flush_count() == 3, "flush count");
+        check(out.mean_flush_latency() >= delay * 1000000 && out.max_flush_latency() >= out.mean_flush_latency(),
+              "latency to the sink");
+
+        out.close();
+    }
+
+    // A finished stream can't be written, and a closed one can't be read
+    private void finished() throws IOException {
+
+        LzwOutputStream out = new LzwOutputStream(new ByteArrayOutputStream());
+        LzwInputStream  in  = new LzwInputStream(new ByteArrayInputStream(compress_stream(text(10, 6))));
+
+        out.finish();
+        check(throws_io(() -> out.write(1)), "write after finish");
+
+        in.close();
+        check(throws_io(() -> in.read()), "read after close");
+    }
+
+    // Corrupt and truncated streams throw IOExceptions
+    private void corrupt(byte[] data) throws IOException {
+
+        byte[] comp = compress_stream(data);
+        byte[] bad;
+
+        bad = comp.clone();
+        bad[2] = 3;
+        check(read_fails(bad), "bad header");
+
+        bad = java.util.Arrays.copyOf(comp, 3);
+        check(read_fails(bad), "truncated header");
+
+        // Codewords overwritten throughout the stream
+        bad = comp.clone();
+        for (int idx = 100; idx < bad.length; idx += 97)
+            bad[idx] = (byte)0xff;
+        check(read_fails(bad), "bad codewords");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    // Reads exactly len bytes, blocking until they arrive
+    private static byte[] read_n(InputStream in, int len) throws IOException {
+
+        byte[] buf = new byte[len];
+        int    idx = 0;
+        int    n;
+
+        while (idx < len && (n = in.read(buf, idx, len - idx)) >= 0)
+            idx += n;
+
+        return buf;
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+
+    private static boolean throws_io(IoAction action) {
+        try {
+            action.run();
+        } catch (IOException e) {
+            return true;
+        }
+
+        return false;
+    }
+
+    // True if reading the stream fails
+    private static boolean read_fails(byte[] comp) {
+        return throws_io(() -> read_all(new LzwInputStream(new ByteArrayInputStream(comp)), 100));
+    }
+
+    private static byte[] compress_stream(byte[] data) throws IOException {
+        ByteArrayOutputStream comp = new ByteArrayOutputStream();
+        LzwOutputStream       out  = new LzwOutputStream(comp, 16, POLICY_RESET);
+
+        out.write(data);
+        out.close();
+
+        return comp.toByteArray();
+    }
+
+    // Reads an input stream to its end, in chunks of up to chunk bytes
+    private static byte[] read_all(InputStream in, int chunk) throws IOException {
+        ByteArrayOutputStream data = new ByteArrayOutputStream();
+        byte[]                b    = new byte[chunk];
+        int                   len;
+
+        while ((len = in.read(b, 0, chunk)) != -1)
+            data.write(b, 0, len);
+
+        in.close();
+
+        return data.toByteArray();
+    }
+}
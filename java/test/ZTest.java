@@ -0,0 +1,181 @@
+//=======================================================================
+//
+// ZTest.java                                            date: 2026/10/18
+//
+// Author: Simon Southwell
+//
+// Copyright (c) 2026 Simon Southwell
+//
+// This file is part of Lzw.
+//
+// Lzw is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// Lzw is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with Lzw. If not, see <http://www.gnu.org/licenses/>.
+//
+//=======================================================================
+
+//=======================================================================
+// Tests of the Unix compress (.Z) format: known streams, as compress
+// writes them, decode (and the encoder writes them the same), and 
+// streams of 9, 12 and 16 bit codewords, in block mode (the ratio
+// policy, with CLEAR codewords) and without (the freeze policy), round
+// trip.
+//
+// The known streams follow compress 4.0's output(): codewords packed
+// LSB first, in groups of 8, with a group padded out to its full length
+// when the codeword length changes or after a CLEAR, and the last 
+// group only to a whole byte. Each decodes with gzip -d too.
+//=======================================================================
+
+package Lzw.test;
+
+import Lzw.codec.*;
+import java.io.*;
+import java.util.*;
+
+public class ZTest extends LzwTest {
+
+    // Header flag for block mode
+    private static final int    BLOCKMODE = 0x80;
+
+    private static final byte[] KNOWN = "TOBEORNOTTOBEORTOBEORNOT".getBytes();
+
+    // KNOWN, as compress -b16 writes it
+    private static final String KNOWN_16 = 
+        "1f9d90549e0829f2448a932754020e2ca890a04184";
+
+    // KNOWN twice, as compress -b12 writes it with a CLEAR between them
+    private static final String KNOWN_CLEAR = 
+        "1f9d8c549e0829f2448a932754020e2ca890a04184000100000000000000549e0829f244" +
+        "8a932754020e2ca890a04184";
+
+    // Bytes counting up from 0 for RUNLENGTH bytes, as compress -C -b9 
+    // writes them (without block mode). The dictionary fills, and the 
+    // codewords move to 10 bits, part way through.
+    private static final int    RUNLENGTH = 600;
+    private static final String KNOWN_9   = 
+        "1f9d090002081840a080810308122858c0a08183071022489840a182850b183268d8c0a1" +
+        "83870f2042881841a28489132852a858c1a2858b173062c89841a3868d1b3872e8d8c1a3" +
+        "878f1f4082081942a488912348922859c2a489932750a2489942a58a952b58b268d9c2a5" +
+        "8b972f60c2881943a68c993368d2a859c3a68d9b3770e2c89943a78e9d3b78f2e8d9c3a7" +
+        "8f9f3f8002091a44a890a1438812295ac4a891a3479022499a44a992a54b983269dac4a9" +
+        "93a74fa042891a45aa94a953a852a95ac5aa95ab57b062c99a45ab96ad5bb872e9dac5ab" +
+        "97af5fc082091b46ac98b163c892295bc6ac99b367d0a2499b46ad9ab56bd8b269dbc6ad" +
+        "9bb76fe0c2891b47ae9cb973e8d2a95bc7ae9dbb77f0e2c99b47af9ebd7bf8f2e9dbc7af" +
+        "9fbf7f00010000000000000002116410420a31e4104412516411461a71e4114822916412" +
+        "4a2ab1e4124c32d164134e3af1e4135042116514524a31e5145452516515565a71e51558" +
+        "629165165a6ab1e5165c72d165175e7af1e5176082116618628a31e6186492516619669a" +
+        "71e61968a291661a6aaab1e61a6cb2d1661b6ebaf1e61b70c211671c72ca31e71c74d251" +
+        "671d76da71e71d78e291671e7aeab1e71e7cf2d1671f7efaf1e71f4002116410420a31e4" +
+        "104412516411461a71e41148229164124a2ab1e4124c32d164134e3af1e4135042116514" +
+        "524a31e5145452516515";
+
+    public ZTest() {
+        super("ZTest");
+    }
+
+    public static void main(String[] argv) throws Exception {
+        ZTest test = new ZTest();
+
+        test.run();
+        test.finish();
+    }
+
+    //=======================================================================
+    // Method name: run
+    //=======================================================================
+
+    public void run() throws IOException {
+
+        byte[] counting = new byte[RUNLENGTH];
+        byte[] twice    = new byte[KNOWN.length * 2];
+        byte[] mixed    = new byte[600000];
+
+        for (int idx = 0; idx < RUNLENGTH; idx++)
+            counting[idx] = (byte)idx;
+
+        System.arraycopy(KNOWN, 0, twice, 0, KNOWN.length);
+        System.arraycopy(KNOWN, 0, twice, KNOWN.length, KNOWN.length);
+
+        known(KNOWN, hex(KNOWN_16), new LzwEncoder(16, POLICY_RATIO, null, FORMAT_Z), "16 bit");
+        known(counting, hex(KNOWN_9), new LzwEncoder(9, POLICY_FREEZE, null, FORMAT_Z), "9 bit");
+        known(twice, hex(KNOWN_CLEAR), null, "CLEAR");
+
+        // Text, then random bytes, then text, so the ratio drops and the
+        // block mode compressor CLEARs the dictionary
+        System.arraycopy(text(200000, 90), 0, mixed, 0, 200000);
+        System.arraycopy(random(200000, 91), 0, mixed, 200000, 200000);
+        System.arraycopy(text(200000, 92), 0, mixed, 400000, 200000);
+
+        for (int maxcwlen : new int[] {MINCWLEN, 12, ZMAXCWLEN}) {
+            for (int policy : new int[] {POLICY_RATIO, POLICY_FREEZE}) {
+                String what = maxcwlen + " bit " + ((policy == POLICY_RATIO) ? "block mode" : "freeze");
+
+                round_trip(maxcwlen, policy, text(300000, 93), what + " text");
+                round_trip(maxcwlen, policy, random(100000, 94), what + " random");
+                round_trip(maxcwlen, policy, mixed, what + " mixed");
+                round_trip(maxcwlen, policy, new byte[100000], what + " runs");
+                round_trip(maxcwlen, policy, counting, what + " counting");
+                round_trip(maxcwlen, policy, new byte[1], what + " one byte");
+                round_trip(maxcwlen, policy, new byte[0], what + " empty");
+            }
+        }
+    }
+
+    //=======================================================================
+    // Test methods
+    //=======================================================================
+
+    // Decodes a known stream, by array and stream, and checks the 
+    // encoder (if any) writes it
+    private void known(byte[] data, byte[] comp, LzwEncoder encoder, String what) throws IOException {
+
+        LzwDecoder            decoder = new LzwDecoder();
+        ByteArrayOutputStream out     = new ByteArrayOutputStream();
+
+        check_data(data, decompress(decoder, comp, data.length), 0, data.length, what + " known vector");
+
+        check(decoder.decode(new ByteArrayInputStream(comp), out) == NOERROR, what + " known vector stream status");
+        check_data(data, out.toByteArray(), 0, out.size(), what + " known vector stream");
+
+        if (encoder != null)
+            check(Arrays.equals(compress(encoder, data), comp), what + " known vector encoded");
+    }
+
+    // Compresses data to a .Z stream, which must decompress
+    private void round_trip(int maxcwlen, int policy, byte[] data, String what) throws IOException {
+
+        LzwEncoder  encoder = new LzwEncoder(maxcwlen, policy, null, FORMAT_Z);
+        byte[]      comp    = compress(encoder, data);
+        InputStream in;
+
+        check(comp != null && (comp[2] & BYTEMASK) == (maxcwlen | ((policy == POLICY_RATIO) ? BLOCKMODE : 0)), 
+              what + " header");
+        check_data(data, decompress(new LzwDecoder(), comp, data.length), 0, data.length, what);
+
+        in = new LzwInputStream(new ByteArrayInputStream(comp));
+        check_data(data, in.readAllBytes(), 0, data.length, what + " filter stream");
+    }
+
+    //=======================================================================
+    // Internal methods
+    //=======================================================================
+
+    private static byte[] hex(String str) {
+        byte[] bytes = new byte[str.length() / 2];
+
+        for (int idx = 0; idx < bytes.length; idx++)
+            bytes[idx] = (byte)Integer.parseInt(str.substring(idx * 2, idx * 2 + 2), 16);
+
+        return bytes;
+    }
+}